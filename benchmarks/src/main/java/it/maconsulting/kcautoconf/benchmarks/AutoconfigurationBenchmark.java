@@ -0,0 +1,90 @@
+package it.maconsulting.kcautoconf.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import it.maconsulting.kcautoconf.model.PathConfigurationMapper;
+import it.maconsulting.kcautoconf.services.AutoconfigurationService;
+import it.maconsulting.kcautoconf.services.JsonKeycloakConfigurationGenerator;
+import it.maconsulting.kcautoconf.services.SwaggerOperationService;
+import it.maconsulting.kcautoconf.services.SwaggerV2OperationService;
+import it.maconsulting.kcautoconf.services.SwaggerV3OperationService;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the controllers scan, the mapping to the Keycloak model and the settings export scale with the
+ * size of the API: {@code controllers} x {@code methods} x {@code paths}, with Swagger v2 or v3 annotations.
+ * Run it with the gc profiler (the default of {@link BenchmarkRunner}) to get the allocation rate.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AutoconfigurationBenchmark {
+
+    @Param({"10", "100", "500"})
+    private int controllers;
+
+    @Param({"10"})
+    private int methods;
+
+    @Param({"1", "3"})
+    private int paths;
+
+    @Param({"v2", "v3"})
+    private String swagger;
+
+    private GenericApplicationContext context;
+
+    private AutoconfigurationService autoconfigurationService;
+
+    private JsonKeycloakConfigurationGenerator configurationGenerator;
+
+    private final PathConfigurationMapper pathConfigurationMapper = new PathConfigurationMapper();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private List<PathConfiguration> pathConfigurations;
+
+    @Setup
+    public void setup() {
+        boolean swaggerV2 = "v2".equals(swagger);
+        context = SyntheticApi.createContext(controllers, methods, paths, swaggerV2);
+        List<SwaggerOperationService> swaggerOperationServices =
+                List.of(swaggerV2 ? new SwaggerV2OperationService() : new SwaggerV3OperationService());
+        autoconfigurationService = new AutoconfigurationService(context, new PolicyEnforcerConfig(), swaggerOperationServices);
+        autoconfigurationService.updateKeycloakConfiguration();
+        configurationGenerator = new JsonKeycloakConfigurationGenerator(autoconfigurationService);
+        pathConfigurations = autoconfigurationService.getPathConfigurationsDom();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<PathConfiguration> scan() {
+        return autoconfigurationService.getPathConfigurationsDom();
+    }
+
+    @Benchmark
+    public List<PolicyEnforcerConfig.PathConfig> mapper() {
+        return pathConfigurationMapper.toPathConfigs(pathConfigurations, true);
+    }
+
+    @Benchmark
+    public byte[] export() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(configurationGenerator.generateConfigurationAsJson());
+    }
+}
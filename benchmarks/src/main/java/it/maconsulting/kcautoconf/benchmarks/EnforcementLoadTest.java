@@ -0,0 +1,287 @@
+package it.maconsulting.kcautoconf.benchmarks;
+
+import it.maconsulting.kcautoconf.enforcement.DecisionCache;
+import it.maconsulting.kcautoconf.enforcement.DecisionCachingFilter;
+import it.maconsulting.kcautoconf.enforcement.PathMatchingConfigurationResolver;
+import it.maconsulting.kcautoconf.services.AutoconfigurationService;
+import it.maconsulting.kcautoconf.services.ResourceIdResolver;
+import it.maconsulting.kcautoconf.services.SwaggerV3OperationService;
+import jakarta.servlet.Filter;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+import org.keycloak.adapters.authorization.integration.jakarta.ServletPolicyEnforcerFilter;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.context.annotation.AnnotationConfigUtils;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.support.GenericWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End to end load test of the policy enforcer configured by the library.<br>
+ * For each path table size and cache setting, a synthetic API is served by an embedded Tomcat, behind the
+ * {@code ServletPolicyEnforcerFilter} (optionally wrapped by the {@link DecisionCachingFilter}), and the paths are
+ * configured by the {@link AutoconfigurationService}. Keycloak is imitated by a {@link KeycloakStub} with a
+ * configurable latency. The clients send authorized requests to random operations, with a pool of tokens, and
+ * the test reports:
+ * <ul>
+ *     <li>the throughput, in requests per second</li>
+ *     <li>the p50 and p99 latency, in microseconds</li>
+ *     <li>the bytes allocated by the Tomcat worker threads per request</li>
+ *     <li>the calls to Keycloak per request</li>
+ * </ul>
+ * Options, all optional: {@code --controllers=1,10,100} (each controller has 10 operations),
+ * {@code --cache=false,true}, {@code --threads=8}, {@code --tokens=32}, {@code --latency-ms=2},
+ * {@code --warmup-s=5}, {@code --duration-s=15}.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar it.maconsulting.kcautoconf.benchmarks.EnforcementLoadTest --controllers=10,100
+ * </pre>
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public final class EnforcementLoadTest {
+
+    private static final int METHODS = 10;
+
+    private EnforcementLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int[] controllerCounts = Arrays.stream(options.getOrDefault("controllers", "1,10,100").split(","))
+                .mapToInt(value -> Integer.parseInt(value.trim())).toArray();
+        boolean[] cacheSettings = parseBooleans(options.getOrDefault("cache", "false,true"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        int tokens = Integer.parseInt(options.getOrDefault("tokens", "32"));
+        Duration latency = Duration.ofMillis(Long.parseLong(options.getOrDefault("latency-ms", "2")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup-s", "5")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-s", "15")));
+
+        // the controller classes can be generated only once, the smaller APIs use the first ones
+        List<Class<?>> controllers = SyntheticApi.createControllers(Arrays.stream(controllerCounts).max().orElse(1),
+                METHODS, 1, false);
+
+        System.out.printf("Keycloak latency %d ms, %d client threads, %d tokens, %d s warm-up, %d s measurement%n",
+                latency.toMillis(), threads, tokens, warmup.toSeconds(), duration.toSeconds());
+        System.out.printf("%8s %6s %12s %10s %10s %12s %12s %8s%n",
+                "paths", "cache", "requests/s", "p50 (us)", "p99 (us)", "bytes/req", "kc calls/req", "errors");
+        try (KeycloakStub keycloak = KeycloakStub.start(latency)) {
+            for (int controllerCount : controllerCounts) {
+                for (boolean cache : cacheSettings) {
+                    Result result = run(keycloak, controllers.subList(0, controllerCount), cache, threads, tokens, warmup, duration);
+                    System.out.printf("%8d %6s %12.0f %10d %10d %12d %12.3f %8d%n",
+                            controllerCount * METHODS, cache, result.throughput(), result.p50Micros(), result.p99Micros(),
+                            result.bytesPerRequest(), result.keycloakCallsPerRequest(), result.errors());
+                }
+            }
+        }
+    }
+
+    private static Result run(KeycloakStub keycloak, List<Class<?>> controllers, boolean cache, int threads, int tokens,
+                              Duration warmup, Duration duration) throws Exception {
+        GenericWebApplicationContext context = new GenericWebApplicationContext();
+        AnnotationConfigUtils.registerAnnotationConfigProcessors(context);
+        context.registerBean(WebConfig.class);
+        SyntheticApi.registerControllers(context, controllers);
+
+        PolicyEnforcerConfig policyEnforcerConfig = keycloak.newPolicyEnforcerConfig();
+        PathMatchingConfigurationResolver resolver = new PathMatchingConfigurationResolver(policyEnforcerConfig);
+        Filter filter = new ServletPolicyEnforcerFilter(resolver);
+        if (cache) {
+            filter = new DecisionCachingFilter(filter, new DecisionCache(100_000, Duration.ofMinutes(1), Duration.ofSeconds(5)), resolver);
+        }
+
+        Tomcat tomcat = startTomcat(context, filter);
+        try {
+            // the enforcer and the path trie are created on the first request, when the paths are configured
+            new AutoconfigurationService(context, policyEnforcerConfig, List.of(new SwaggerV3OperationService()))
+                    .updateKeycloakConfiguration();
+            keycloak.registerResources(policyEnforcerConfig.getPaths());
+            new ResourceIdResolver(HttpClient.newHttpClient(), 8, 3, Duration.ofMillis(100))
+                    .resolve(policyEnforcerConfig, policyEnforcerConfig.getPaths());
+
+            List<HttpRequest> requests = createRequests(keycloak, tomcat.getConnector().getLocalPort(), controllers.size(), tokens);
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            load(client, requests, threads, warmup);
+            long keycloakCalls = keycloak.getRequestCount();
+            Map<Long, Long> allocated = workerAllocations();
+            Load load = load(client, requests, threads, duration);
+            long bytes = allocatedSince(allocated);
+            keycloakCalls = keycloak.getRequestCount() - keycloakCalls;
+
+            long[] latencies = load.latencies();
+            Arrays.sort(latencies);
+            int count = Math.max(1, latencies.length);
+            return new Result(latencies.length / (duration.toNanos() / 1e9),
+                    percentile(latencies, 0.50) / 1000, percentile(latencies, 0.99) / 1000,
+                    bytes / count, (double) keycloakCalls / count, load.errors());
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+            context.close();
+        }
+    }
+
+    private static Tomcat startTomcat(GenericWebApplicationContext context, Filter filter) throws IOException, LifecycleException {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("kcautoconf-load").toString());
+        tomcat.setPort(0);
+        Context servletContext = tomcat.addContext("", null);
+
+        Tomcat.addServlet(servletContext, "dispatcher", new DispatcherServlet(context)).setLoadOnStartup(1);
+        servletContext.addServletMappingDecoded("/", "dispatcher");
+
+        FilterDef filterDef = new FilterDef();
+        filterDef.setFilterName("policyEnforcer");
+        filterDef.setFilter(filter);
+        servletContext.addFilterDef(filterDef);
+        FilterMap filterMap = new FilterMap();
+        filterMap.setFilterName("policyEnforcer");
+        filterMap.addURLPattern("/*");
+        servletContext.addFilterMap(filterMap);
+
+        tomcat.getConnector();
+        tomcat.start();
+        return tomcat;
+    }
+
+    private static List<HttpRequest> createRequests(KeycloakStub keycloak, int port, int controllers, int tokens) {
+        String[] bearerTokens = new String[tokens];
+        for (int t = 0; t < tokens; t++) {
+            bearerTokens[t] = "Bearer " + keycloak.issueToken("user" + t);
+        }
+        Random random = new Random(42);
+        List<HttpRequest> requests = new ArrayList<>(4096);
+        for (int i = 0; i < 4096; i++) {
+            int controller = random.nextInt(controllers);
+            int method = random.nextInt(METHODS);
+            requests.add(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/resource" + controller + "/operation" + method))
+                    .method(SyntheticApi.httpMethod(method), HttpRequest.BodyPublishers.noBody())
+                    .header("Authorization", bearerTokens[random.nextInt(tokens)])
+                    .build());
+        }
+        return requests;
+    }
+
+    private static Load load(HttpClient client, List<HttpRequest> requests, int threads, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        LongAdder errors = new LongAdder();
+        long[][] latencies = new long[threads][];
+        Thread[] clients = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            clients[t] = new Thread(() -> {
+                long[] recorded = new long[1 << 16];
+                int count = 0;
+                int cursor = index;
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = requests.get(cursor++ % requests.size());
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 300) {
+                            errors.increment();
+                        }
+                    } catch (IOException e) {
+                        errors.increment();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    if (count == recorded.length) {
+                        recorded = Arrays.copyOf(recorded, count * 2);
+                    }
+                    recorded[count++] = System.nanoTime() - start;
+                }
+                latencies[index] = Arrays.copyOf(recorded, count);
+            }, "load-client-" + t);
+            clients[t].start();
+        }
+        for (Thread clientThread : clients) {
+            clientThread.join();
+        }
+        return new Load(Arrays.stream(latencies).flatMapToLong(Arrays::stream).toArray(), errors.sum());
+    }
+
+    /**
+     * @return the bytes allocated so far by each Tomcat worker thread, by thread id
+     */
+    private static Map<Long, Long> workerAllocations() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Map<Long, Long> allocated = new HashMap<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().contains("-exec-")) {
+                allocated.put(thread.getId(), threadMXBean.getThreadAllocatedBytes(thread.getId()));
+            }
+        }
+        return allocated;
+    }
+
+    private static long allocatedSince(Map<Long, Long> before) {
+        long bytes = 0;
+        for (Map.Entry<Long, Long> after : workerAllocations().entrySet()) {
+            bytes += after.getValue() - before.getOrDefault(after.getKey(), 0L);
+        }
+        return bytes;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') == -1) {
+                throw new IllegalArgumentException("Unknown option " + arg + ", expected --name=value");
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static boolean[] parseBooleans(String values) {
+        String[] split = values.split(",");
+        boolean[] booleans = new boolean[split.length];
+        for (int i = 0; i < split.length; i++) {
+            booleans[i] = Boolean.parseBoolean(split[i].trim());
+        }
+        return booleans;
+    }
+
+    @Configuration
+    @EnableWebMvc
+    static class WebConfig {
+    }
+
+    private record Load(long[] latencies, long errors) {
+    }
+
+    private record Result(double throughput, long p50Micros, long p99Micros, long bytesPerRequest,
+                          double keycloakCallsPerRequest, long errors) {
+    }
+}
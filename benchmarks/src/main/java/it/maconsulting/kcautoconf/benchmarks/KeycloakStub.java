@@ -0,0 +1,311 @@
+package it.maconsulting.kcautoconf.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local HTTP stub imitating the Keycloak endpoints used by the policy enforcer: the UMA discovery document, the
+ * token endpoint (client credentials and UMA ticket grants) and the protection API resource set. Every request
+ * waits {@code latency} before being answered, to imitate the network and the server time.<br>
+ * Tokens are not signed: the enforcer reads them, the verification being left to the application. Every UMA
+ * ticket request is granted, with the requested permissions.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public final class KeycloakStub implements AutoCloseable {
+
+    public static final String REALM = "bench";
+
+    public static final String CLIENT_ID = "bench-client";
+
+    public static final String CLIENT_SECRET = "bench-secret";
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final Duration latency;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, ObjectNode> resourcesById = new ConcurrentHashMap<>();
+
+    private final Map<String, String> idsByUri = new ConcurrentHashMap<>();
+
+    private final Map<String, String> idsByName = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+
+    private KeycloakStub(Duration latency) throws IOException {
+        this.latency = latency;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(64, runnable -> {
+            Thread thread = new Thread(runnable, "keycloak-stub-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 512);
+        server.createContext("/realms/" + REALM, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @param latency the wait before answering each request
+     * @return the started stub
+     */
+    public static KeycloakStub start(Duration latency) throws IOException {
+        return new KeycloakStub(latency);
+    }
+
+    /**
+     * @return the url to be used as {@code auth-server-url}
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return the number of requests served so far
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * @return an enforcer configuration pointing to the stub, with no paths
+     */
+    public PolicyEnforcerConfig newPolicyEnforcerConfig() {
+        PolicyEnforcerConfig config = new PolicyEnforcerConfig();
+        config.setAuthServerUrl(getUrl());
+        config.setRealm(REALM);
+        config.setResource(CLIENT_ID);
+        config.setCredentials(Map.of("secret", CLIENT_SECRET));
+        return config;
+    }
+
+    /**
+     * Registers a Keycloak resource for each path, with the scopes of all its methods.
+     *
+     * @param paths the paths of the enforcer configuration
+     */
+    public void registerResources(List<PolicyEnforcerConfig.PathConfig> paths) {
+        for (PolicyEnforcerConfig.PathConfig path : paths) {
+            String id = idsByUri.computeIfAbsent(path.getPath(), uri -> UUID.randomUUID().toString());
+            String name = path.getName() != null ? path.getName() : path.getPath();
+            Set<String> scopes = new LinkedHashSet<>(path.getScopes() != null ? path.getScopes() : List.of());
+            path.getMethods().forEach(method -> scopes.addAll(method.getScopes()));
+
+            ObjectNode resource = objectMapper.createObjectNode()
+                    .put("_id", id)
+                    .put("name", name)
+                    .put("ownerManagedAccess", false);
+            resource.putArray("uris").add(path.getPath());
+            ArrayNode resourceScopes = resource.putArray("resource_scopes");
+            scopes.forEach(scope -> resourceScopes.addObject().put("name", scope));
+            resourcesById.put(id, resource);
+            idsByName.put(name, id);
+        }
+    }
+
+    /**
+     * @param subject the subject of the token
+     * @return an access token of the realm, valid for one hour
+     */
+    public String issueToken(String subject) {
+        long now = System.currentTimeMillis() / 1000;
+        ObjectNode claims = objectMapper.createObjectNode()
+                .put("jti", UUID.randomUUID().toString())
+                .put("iss", getUrl() + "/realms/" + REALM)
+                .put("sub", subject)
+                .put("typ", "Bearer")
+                .put("azp", CLIENT_ID)
+                .put("iat", now)
+                .put("exp", now + 3600);
+        return jwt(claims);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try (exchange) {
+            sleep();
+            String path = exchange.getRequestURI().getPath().substring(("/realms/" + REALM).length());
+            if (path.equals("/.well-known/uma2-configuration")) {
+                respond(exchange, 200, discovery());
+            } else if (path.equals("/protocol/openid-connect/token")) {
+                respond(exchange, 200, token(parseForm(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8))));
+            } else if (path.equals("/authz/protection/resource_set")) {
+                respond(exchange, 200, findResources(parseForm(exchange.getRequestURI().getRawQuery())));
+            } else if (path.startsWith("/authz/protection/resource_set/")) {
+                ObjectNode resource = resourcesById.get(path.substring("/authz/protection/resource_set/".length()));
+                respond(exchange, resource != null ? 200 : 404, resource != null ? resource : objectMapper.createObjectNode());
+            } else if (path.equals("/authz/protection/permission")) {
+                respond(exchange, 201, objectMapper.createObjectNode().put("ticket", UUID.randomUUID().toString()));
+            } else {
+                respond(exchange, 404, objectMapper.createObjectNode().put("error", "not_found"));
+            }
+        }
+    }
+
+    private ObjectNode discovery() {
+        String realmUrl = getUrl() + "/realms/" + REALM;
+        return objectMapper.createObjectNode()
+                .put("issuer", realmUrl)
+                .put("authorization_endpoint", realmUrl + "/protocol/openid-connect/auth")
+                .put("token_endpoint", realmUrl + "/protocol/openid-connect/token")
+                .put("introspection_endpoint", realmUrl + "/protocol/openid-connect/token/introspect")
+                .put("end_session_endpoint", realmUrl + "/protocol/openid-connect/logout")
+                .put("jwks_uri", realmUrl + "/protocol/openid-connect/certs")
+                .put("registration_endpoint", realmUrl + "/clients-registrations/openid-connect")
+                .put("resource_registration_endpoint", realmUrl + "/authz/protection/resource_set")
+                .put("permission_endpoint", realmUrl + "/authz/protection/permission")
+                .put("policy_endpoint", realmUrl + "/authz/protection/uma-policy");
+    }
+
+    private ObjectNode token(Map<String, List<String>> form) {
+        String grantType = first(form, "grant_type");
+        if ("urn:ietf:params:oauth:grant-type:uma-ticket".equals(grantType)) {
+            if ("decision".equals(first(form, "response_mode"))) {
+                return objectMapper.createObjectNode().put("result", true);
+            }
+            return tokenResponse(rpt(form.getOrDefault("permission", List.of())));
+        }
+        return tokenResponse(issueToken("service-account-" + CLIENT_ID));
+    }
+
+    private ObjectNode tokenResponse(String accessToken) {
+        return objectMapper.createObjectNode()
+                .put("access_token", accessToken)
+                .put("expires_in", 3600)
+                .put("refresh_expires_in", 0)
+                .put("token_type", "Bearer")
+                .put("not-before-policy", 0);
+    }
+
+    /**
+     * Grants the requested permissions, in the {@code resourceId#scope1,scope2} form.
+     */
+    private String rpt(List<String> requestedPermissions) {
+        long now = System.currentTimeMillis() / 1000;
+        ObjectNode claims = objectMapper.createObjectNode()
+                .put("jti", UUID.randomUUID().toString())
+                .put("iss", getUrl() + "/realms/" + REALM)
+                .put("typ", "Bearer")
+                .put("azp", CLIENT_ID)
+                .put("iat", now)
+                .put("exp", now + 3600);
+        ArrayNode permissions = claims.putObject("authorization").putArray("permissions");
+        for (String requested : requestedPermissions) {
+            int separator = requested.indexOf('#');
+            String resourceId = separator == -1 ? requested : requested.substring(0, separator);
+            ObjectNode resource = resourcesById.get(resourceId);
+            ObjectNode permission = permissions.addObject().put("rsid", resourceId);
+            if (resource != null) {
+                permission.put("rsname", resource.get("name").asText());
+            }
+            ArrayNode scopes = permission.putArray("scopes");
+            if (separator != -1) {
+                for (String scope : requested.substring(separator + 1).split(",")) {
+                    if (!scope.isBlank()) {
+                        scopes.add(scope.trim());
+                    }
+                }
+            }
+        }
+        return jwt(claims);
+    }
+
+    private ArrayNode findResources(Map<String, List<String>> query) {
+        String id = null;
+        if (first(query, "name") != null) {
+            id = idsByName.get(first(query, "name"));
+        } else if (first(query, "uri") != null) {
+            id = idsByUri.get(first(query, "uri"));
+        }
+        ArrayNode result = objectMapper.createArrayNode();
+        if (id != null) {
+            if ("true".equals(first(query, "deep"))) {
+                result.add(resourcesById.get(id));
+            } else {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private String jwt(ObjectNode claims) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"RS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(claims.toString().getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString("unsigned".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void sleep() {
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency.toMillis(), latency.toNanosPart() % 1_000_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static Map<String, List<String>> parseForm(String form) {
+        Map<String, List<String>> values = new HashMap<>();
+        if (form == null || form.isEmpty()) {
+            return values;
+        }
+        for (String pair : form.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = URLDecoder.decode(separator == -1 ? pair : pair.substring(0, separator), StandardCharsets.UTF_8);
+            String value = separator == -1 ? "" : URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+            values.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+        return values;
+    }
+
+    private static String first(Map<String, List<String>> values, String name) {
+        List<String> list = values.get(name);
+        return list != null && !list.isEmpty() ? list.get(0) : null;
+    }
+}
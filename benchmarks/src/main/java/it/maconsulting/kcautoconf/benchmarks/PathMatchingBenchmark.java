@@ -0,0 +1,96 @@
+package it.maconsulting.kcautoconf.benchmarks;
+
+import it.maconsulting.kcautoconf.enforcement.PathTrie;
+import org.keycloak.common.util.PathMatcher;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link PathTrie} lookup with the linear lookup of the Keycloak {@link PathMatcher},
+ * which checks the request path against every configured path.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathMatchingBenchmark {
+
+    private static final int REQUESTS = 1024;
+
+    @Param({"10", "1000", "10000"})
+    private int pathCount;
+
+    private PathTrie<PolicyEnforcerConfig.PathConfig> trie;
+
+    private PathMatcher<PolicyEnforcerConfig.PathConfig> linear;
+
+    private String[] requests;
+
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        List<PolicyEnforcerConfig.PathConfig> paths = new ArrayList<>(pathCount);
+        for (int i = 0; i < pathCount; i++) {
+            // a realistic mix: collection, item and nested collection endpoints
+            paths.add(pathConfig(switch (i % 3) {
+                case 0 -> "/api/resource" + i;
+                case 1 -> "/api/resource" + i + "/{id}";
+                default -> "/api/resource" + i + "/{id}/items";
+            }));
+        }
+
+        PathTrie.Builder<PolicyEnforcerConfig.PathConfig> builder = PathTrie.builder();
+        paths.forEach(path -> builder.add(path.getPath(), path));
+        trie = builder.build();
+
+        linear = new PathMatcher<>() {
+            @Override
+            protected String getPath(PolicyEnforcerConfig.PathConfig pathConfig) {
+                return pathConfig.getPath();
+            }
+
+            @Override
+            protected Collection<PolicyEnforcerConfig.PathConfig> getPaths() {
+                return paths;
+            }
+        };
+
+        Random random = new Random(42);
+        requests = new String[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            requests[i] = paths.get(random.nextInt(pathCount)).getPath().replace("{id}", String.valueOf(random.nextInt(1000)));
+        }
+    }
+
+    @Benchmark
+    public PolicyEnforcerConfig.PathConfig trie() {
+        return trie.match(nextRequest());
+    }
+
+    @Benchmark
+    public PolicyEnforcerConfig.PathConfig linear() {
+        return linear.matches(nextRequest());
+    }
+
+    private String nextRequest() {
+        return requests[cursor++ & (REQUESTS - 1)];
+    }
+
+    private static PolicyEnforcerConfig.PathConfig pathConfig(String path) {
+        PolicyEnforcerConfig.PathConfig pathConfig = new PolicyEnforcerConfig.PathConfig();
+        pathConfig.setPath(path);
+        return pathConfig;
+    }
+}
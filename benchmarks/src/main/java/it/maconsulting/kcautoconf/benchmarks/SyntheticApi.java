@@ -0,0 +1,131 @@
+package it.maconsulting.kcautoconf.benchmarks;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.Authorization;
+import io.swagger.annotations.AuthorizationScope;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.StubMethod;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.web.bind.annotation.*;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates a synthetic API made of {@code controllers} rest controllers, each with {@code methods} handler
+ * methods mapped to {@code paths} paths, and registers the controllers in an application context.<br>
+ * Every handler method is annotated with the Swagger v2 {@code @ApiOperation} or with the v3 {@code @Operation},
+ * with two authorization scopes.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public final class SyntheticApi {
+
+    private static final List<Class<? extends Annotation>> MAPPINGS =
+            List.of(GetMapping.class, PostMapping.class, PutMapping.class, PatchMapping.class, DeleteMapping.class);
+
+    private SyntheticApi() {
+    }
+
+    public static GenericApplicationContext createContext(int controllers, int methods, int paths, boolean swaggerV2) {
+        GenericApplicationContext context = new GenericApplicationContext();
+        registerControllers(context, createControllers(controllers, methods, paths, swaggerV2));
+        context.refresh();
+        return context;
+    }
+
+    /**
+     * Generates the controllers. Since the classes are loaded by the class loader of the benchmarks, they can be
+     * generated only once per JVM: callers needing the same API more than once must keep the classes.
+     */
+    public static List<Class<?>> createControllers(int controllers, int methods, int paths, boolean swaggerV2) {
+        ClassLoader classLoader = SyntheticApi.class.getClassLoader();
+        List<Class<?>> classes = new ArrayList<>(controllers);
+        for (int c = 0; c < controllers; c++) {
+            classes.add(createController(c, methods, paths, swaggerV2)
+                    .make()
+                    .load(classLoader, ClassLoadingStrategy.Default.INJECTION)
+                    .getLoaded());
+        }
+        return classes;
+    }
+
+    public static void registerControllers(GenericApplicationContext context, List<Class<?>> controllers) {
+        for (int c = 0; c < controllers.size(); c++) {
+            context.registerBean("controller" + c, controllers.get(c));
+        }
+    }
+
+    /**
+     * @return the http method mapped by the handler method with the given index
+     */
+    public static String httpMethod(int method) {
+        return MAPPINGS.get(method % MAPPINGS.size()).getAnnotation(RequestMapping.class).method()[0].name();
+    }
+
+    private static DynamicType.Builder<Object> createController(int index, int methods, int paths, boolean swaggerV2) {
+        String resource = "resource" + index;
+        DynamicType.Builder<Object> builder = new ByteBuddy()
+                .subclass(Object.class)
+                .name("it.maconsulting.kcautoconf.benchmarks.generated.Controller" + index + (swaggerV2 ? "V2" : "V3"))
+                .annotateType(
+                        AnnotationDescription.Builder.ofType(RestController.class).build(),
+                        AnnotationDescription.Builder.ofType(RequestMapping.class).defineArray("value", "/api/" + resource).build());
+
+        for (int m = 0; m < methods; m++) {
+            String[] methodPaths = new String[paths];
+            for (int p = 0; p < paths; p++) {
+                methodPaths[p] = "/operation" + m + (p == 0 ? "" : "/alias" + p + "/{id}");
+            }
+            String scope = resource + ":operation" + m;
+            builder = builder.defineMethod("operation" + m, void.class, Visibility.PUBLIC)
+                    .intercept(StubMethod.INSTANCE)
+                    .annotateMethod(
+                            AnnotationDescription.Builder.ofType(MAPPINGS.get(m % MAPPINGS.size()))
+                                    .defineArray("value", methodPaths).build(),
+                            swaggerV2 ? apiOperation(resource, m, scope) : operation(resource, m, scope));
+        }
+        return builder;
+    }
+
+    private static AnnotationDescription apiOperation(String resource, int method, String scope) {
+        AnnotationDescription authorization = AnnotationDescription.Builder.ofType(Authorization.class)
+                .define("value", "oauth")
+                .defineAnnotationArray("scopes", TypeDescription.ForLoadedType.of(AuthorizationScope.class),
+                        authorizationScope(scope), authorizationScope(resource + ":any"))
+                .build();
+        return AnnotationDescription.Builder.ofType(ApiOperation.class)
+                .define("value", "Operation " + method + " on " + resource)
+                .define("nickname", resource + "-operation" + method)
+                .defineAnnotationArray("authorizations", TypeDescription.ForLoadedType.of(Authorization.class), authorization)
+                .build();
+    }
+
+    private static AnnotationDescription authorizationScope(String scope) {
+        return AnnotationDescription.Builder.ofType(AuthorizationScope.class)
+                .define("scope", scope)
+                .define("description", scope)
+                .build();
+    }
+
+    private static AnnotationDescription operation(String resource, int method, String scope) {
+        AnnotationDescription security = AnnotationDescription.Builder.ofType(SecurityRequirement.class)
+                .define("name", "oauth")
+                .defineArray("scopes", scope, resource + ":any")
+                .build();
+        return AnnotationDescription.Builder.ofType(Operation.class)
+                .define("operationId", resource + "-operation" + method)
+                .define("description", "Operation " + method + " on " + resource)
+                .defineAnnotationArray("security", TypeDescription.ForLoadedType.of(SecurityRequirement.class), security)
+                .build();
+    }
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright 2020-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.maconsulting.kcautoconf.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Reads the Spring web mappings and the Swagger operation annotations of every
+ * {@code @RestController} at compile time and writes them to {@value #INDEX_LOCATION}.<br>
+ * The index has the same structure of the {@code PathConfiguration} model, and it is loaded by the
+ * {@code AutoconfigurationService} in place of the reflective scan of the controllers.<br>
+ * The binary names of the indexed controllers are written to {@value #CONTROLLERS_LOCATION}: the index is used only
+ * for these controllers, the other ones (ie. the ones not compiled in an incremental build) are still scanned.
+ * <p>
+ * The swagger annotations used for scopes and names are the v2 ones ({@code @ApiOperation}) when they are
+ * in the compile classpath, otherwise the v3 ones ({@code @Operation}). The choice can be forced with the
+ * {@code -Akcautoconf.swagger=v2|v3} compiler option.
+ * <p>
+ * Like the runtime scan, the mapping, swagger and {@code @Enforcement} annotations are looked up on the
+ * superclasses and interfaces of the controller too, and nested controllers are indexed as well.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions(PathIndexProcessor.SWAGGER_OPTION)
+public class PathIndexProcessor extends AbstractProcessor {
+
+    public static final String INDEX_LOCATION = "META-INF/kcautoconf/path-index.json";
+
+    public static final String CONTROLLERS_LOCATION = "META-INF/kcautoconf/path-index.controllers";
+
+    static final String SWAGGER_OPTION = "kcautoconf.swagger";
+
+    private static final String REST_CONTROLLER = "org.springframework.web.bind.annotation.RestController";
+    private static final String REQUEST_MAPPING = "org.springframework.web.bind.annotation.RequestMapping";
+    private static final String API_OPERATION = "io.swagger.annotations.ApiOperation";
+    private static final String OPERATION = "io.swagger.v3.oas.annotations.Operation";
+    private static final String ENFORCEMENT = "it.maconsulting.kcautoconf.annotations.Enforcement";
+    private static final List<String> ENFORCEMENT_MODES = List.of("DISABLED", "PERMISSIVE", "ENFORCING");
+
+    private final Map<String, IndexedPath> paths = new LinkedHashMap<>();
+
+    private final Set<String> controllers = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!controllers.isEmpty()) {
+                writeIndex();
+            }
+            return false;
+        }
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            processType(type);
+        }
+        return false;
+    }
+
+    private void processType(TypeElement type) {
+        if (findAnnotation(type, REST_CONTROLLER) != null) {
+            controllers.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+            processController(type);
+        }
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            processType(nested);
+        }
+    }
+
+    private void processController(TypeElement type) {
+        AnnotationMirror classMapping = findInheritedAnnotation(getTypeHierarchy(type), REQUEST_MAPPING);
+        List<String> classPaths = getPaths(classMapping);
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            List<ExecutableElement> methodHierarchy = getMethodHierarchy(method, type);
+            AnnotationMirror methodMapping = findMappingAnnotation(methodHierarchy);
+            if (methodMapping != null) {
+                processMethod(method, methodHierarchy, type, classPaths, methodMapping);
+            }
+        }
+    }
+
+    private void processMethod(ExecutableElement method, List<ExecutableElement> methodHierarchy, TypeElement type,
+                               List<String> classPaths, AnnotationMirror methodMapping) {
+        List<String> methodPaths = getPaths(methodMapping);
+        List<String> httpMethods = getHttpMethods(methodMapping);
+        Operation operation = getOperation(method, methodHierarchy);
+        String enforcementMode = getEnforcementMode(methodHierarchy, type);
+
+        for (String basePath : classPaths) {
+            for (String methodPath : methodPaths) {
+                String fullPath = buildHttpPath(basePath, methodPath);
+                for (String httpMethod : httpMethods) {
+                    IndexedPath indexedPath = paths.computeIfAbsent(fullPath, IndexedPath::new);
+                    indexedPath.enforcementMode = indexedPath.methods.isEmpty() ? enforcementMode :
+                            combine(indexedPath.enforcementMode, enforcementMode);
+                    indexedPath.methods.add(new IndexedMethod(httpMethod, operation.scopes));
+                    indexedPath.name = operation.name;
+                    indexedPath.displayName = operation.displayName;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the {@code @Enforcement} of the method or, if missing, of its class, with the same rules of the
+     * runtime scan.
+     */
+    private String getEnforcementMode(List<ExecutableElement> methodHierarchy, TypeElement type) {
+        AnnotationMirror enforcement = findInheritedAnnotation(methodHierarchy, ENFORCEMENT);
+        if (enforcement == null) {
+            enforcement = findInheritedAnnotation(getTypeHierarchy(type), ENFORCEMENT);
+        }
+        AnnotationValue value = getValue(enforcement, "value");
+        return value != null && value.getValue() instanceof VariableElement mode ? mode.getSimpleName().toString() : null;
+    }
+
+    /**
+     * Keeps the stricter of two explicit modes, or no mode at all when only one of them is set.
+     */
+    private String combine(String current, String other) {
+        if (current == null || other == null) {
+            return null;
+        }
+        return ENFORCEMENT_MODES.indexOf(current) >= ENFORCEMENT_MODES.indexOf(other) ? current : other;
+    }
+
+    /**
+     * Finds the annotation itself or, when the element is annotated with a composed annotation
+     * (ie. {@code @GetMapping}), the composed one.
+     */
+    private AnnotationMirror findMappingAnnotation(List<ExecutableElement> methodHierarchy) {
+        for (ExecutableElement method : methodHierarchy) {
+            for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+                TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+                if (annotationType.getQualifiedName().contentEquals(REQUEST_MAPPING) ||
+                        findAnnotation(annotationType, REQUEST_MAPPING) != null) {
+                    return mirror;
+                }
+            }
+        }
+        return null;
+    }
+
+    private List<String> getPaths(AnnotationMirror mapping) {
+        List<String> result = new ArrayList<>();
+        if (mapping != null) {
+            result.addAll(getStrings(mapping, "path"));
+            if (result.isEmpty()) {
+                result.addAll(getStrings(mapping, "value"));
+            }
+        }
+        if (result.isEmpty()) {
+            result.add("");
+        }
+        return result;
+    }
+
+    private List<String> getHttpMethods(AnnotationMirror mapping) {
+        TypeElement annotationType = (TypeElement) mapping.getAnnotationType().asElement();
+        AnnotationMirror requestMapping = annotationType.getQualifiedName().contentEquals(REQUEST_MAPPING) ?
+                mapping : findAnnotation(annotationType, REQUEST_MAPPING);
+        return getStrings(requestMapping, "method");
+    }
+
+    private Operation getOperation(ExecutableElement method, List<ExecutableElement> methodHierarchy) {
+        String fallback = method.getSimpleName().toString();
+        if (useSwaggerV2()) {
+            AnnotationMirror apiOperation = findInheritedAnnotation(methodHierarchy, API_OPERATION);
+            List<String> scopes = new ArrayList<>();
+            for (AnnotationMirror authorization : getAnnotations(apiOperation, "authorizations")) {
+                for (AnnotationMirror scope : getAnnotations(authorization, "scopes")) {
+                    scopes.addAll(getStrings(scope, "scope"));
+                }
+            }
+            return new Operation(scopes, getString(apiOperation, "nickname", fallback), getString(apiOperation, "value", fallback));
+        }
+        if (processingEnv.getElementUtils().getTypeElement(OPERATION) == null) {
+            return new Operation(List.of(), null, null);
+        }
+        AnnotationMirror operation = findInheritedAnnotation(methodHierarchy, OPERATION);
+        List<String> scopes = new ArrayList<>();
+        for (AnnotationMirror security : getAnnotations(operation, "security")) {
+            scopes.addAll(getStrings(security, "scopes"));
+        }
+        return new Operation(scopes, getString(operation, "operationId", fallback), getString(operation, "description", fallback));
+    }
+
+    private boolean useSwaggerV2() {
+        String option = processingEnv.getOptions().get(SWAGGER_OPTION);
+        if (option != null) {
+            return "v2".equalsIgnoreCase(option);
+        }
+        return processingEnv.getElementUtils().getTypeElement(API_OPERATION) != null;
+    }
+
+    /**
+     * Returns the type followed by all its superclasses and interfaces, {@code Object} excluded.
+     */
+    private List<TypeElement> getTypeHierarchy(TypeElement type) {
+        List<TypeElement> hierarchy = new ArrayList<>();
+        collectTypeHierarchy(type, hierarchy);
+        return hierarchy;
+    }
+
+    private void collectTypeHierarchy(TypeElement type, List<TypeElement> hierarchy) {
+        if (type.getQualifiedName().contentEquals(Object.class.getName()) || hierarchy.contains(type)) {
+            return;
+        }
+        hierarchy.add(type);
+        for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(type.asType())) {
+            if (supertype instanceof DeclaredType declared && declared.asElement() instanceof TypeElement superElement) {
+                collectTypeHierarchy(superElement, hierarchy);
+            }
+        }
+    }
+
+    /**
+     * Returns the method followed by the methods it overrides or implements, in the order of
+     * {@link #getTypeHierarchy(TypeElement)}.
+     */
+    private List<ExecutableElement> getMethodHierarchy(ExecutableElement method, TypeElement type) {
+        List<ExecutableElement> hierarchy = new ArrayList<>();
+        hierarchy.add(method);
+        for (TypeElement supertype : getTypeHierarchy(type)) {
+            for (ExecutableElement candidate : ElementFilter.methodsIn(supertype.getEnclosedElements())) {
+                if (processingEnv.getElementUtils().overrides(method, candidate, type)) {
+                    hierarchy.add(candidate);
+                }
+            }
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Returns the annotation of the first element annotated with it, directly or through its annotations.
+     */
+    private AnnotationMirror findInheritedAnnotation(List<? extends Element> elements, String annotationName) {
+        for (Element element : elements) {
+            AnnotationMirror mirror = findAnnotation(element, annotationName);
+            if (mirror != null) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks for the annotation on the element and, recursively, on its annotations.
+     */
+    private AnnotationMirror findAnnotation(Element element, String annotationName) {
+        return findAnnotation(element, annotationName, new HashSet<>());
+    }
+
+    private AnnotationMirror findAnnotation(Element element, String annotationName, Set<String> visited) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            String qualifiedName = annotationType.getQualifiedName().toString();
+            if (qualifiedName.equals(annotationName)) {
+                return mirror;
+            }
+            if (!qualifiedName.startsWith("java.lang.annotation.") && visited.add(qualifiedName)) {
+                AnnotationMirror meta = findAnnotation(annotationType, annotationName, visited);
+                if (meta != null) {
+                    return meta;
+                }
+            }
+        }
+        return null;
+    }
+
+    private AnnotationValue getValue(AnnotationMirror mirror, String attribute) {
+        if (mirror == null) {
+            return null;
+        }
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(attribute)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private String getString(AnnotationMirror mirror, String attribute, String fallback) {
+        AnnotationValue value = getValue(mirror, attribute);
+        if (value != null && value.getValue() instanceof String string && !string.isEmpty()) {
+            return string;
+        }
+        return fallback;
+    }
+
+    /**
+     * Reads a String, String[] or enum[] attribute. Enum constants are returned by name.
+     */
+    private List<String> getStrings(AnnotationMirror mirror, String attribute) {
+        List<String> result = new ArrayList<>();
+        AnnotationValue value = getValue(mirror, attribute);
+        if (value == null) {
+            return result;
+        }
+        List<?> values = value.getValue() instanceof List<?> list ? list : List.of(value);
+        for (Object item : values) {
+            Object itemValue = ((AnnotationValue) item).getValue();
+            if (itemValue instanceof VariableElement constant) {
+                result.add(constant.getSimpleName().toString());
+            } else if (itemValue != null) {
+                result.add(itemValue.toString());
+            }
+        }
+        return result;
+    }
+
+    private List<AnnotationMirror> getAnnotations(AnnotationMirror mirror, String attribute) {
+        List<AnnotationMirror> result = new ArrayList<>();
+        AnnotationValue value = getValue(mirror, attribute);
+        if (value != null && value.getValue() instanceof List<?> list) {
+            for (Object item : list) {
+                if (((AnnotationValue) item).getValue() instanceof AnnotationMirror nested) {
+                    result.add(nested);
+                }
+            }
+        }
+        return result;
+    }
+
+    private String buildHttpPath(String... paths) {
+        StringBuilder sb = new StringBuilder();
+        for (String path : paths) {
+            if (!path.isEmpty()) {
+                sb.append(addLeadingSlash(path));
+            }
+        }
+        String path = addLeadingSlash(sb.toString());
+        return (path.length() > 1 && path.endsWith("/")) ? path.substring(0, path.lastIndexOf("/")) : path;
+    }
+
+    private String addLeadingSlash(String path) {
+        return !path.startsWith("/") ? "/" + path : path;
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (Writer writer = resource.openWriter()) {
+                writer.write(toJson());
+            }
+            FileObject controllersList = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", CONTROLLERS_LOCATION);
+            try (Writer writer = controllersList.openWriter()) {
+                writer.write(String.join("\n", controllers) + "\n");
+            }
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "kcautoconf: " + paths.size() + " paths written to " + INDEX_LOCATION);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "kcautoconf: unable to write " + INDEX_LOCATION + ": " + e.getMessage());
+        }
+    }
+
+    private String toJson() {
+        StringBuilder json = new StringBuilder("[");
+        Iterator<IndexedPath> iterator = paths.values().iterator();
+        while (iterator.hasNext()) {
+            IndexedPath path = iterator.next();
+            json.append("\n  {\"path\":").append(quote(path.path))
+                    .append(",\"name\":").append(quote(path.name))
+                    .append(",\"displayName\":").append(quote(path.displayName))
+                    .append(",\"methods\":[");
+            for (int i = 0; i < path.methods.size(); i++) {
+                IndexedMethod method = path.methods.get(i);
+                json.append(i > 0 ? "," : "")
+                        .append("{\"method\":").append(quote(method.method))
+                        .append(",\"scopes\":[");
+                for (int j = 0; j < method.scopes.size(); j++) {
+                    json.append(j > 0 ? "," : "").append(quote(method.scopes.get(j)));
+                }
+                json.append("]}");
+            }
+            json.append("]");
+            if (path.enforcementMode != null) {
+                json.append(",\"enforcementMode\":").append(quote(path.enforcementMode));
+            }
+            json.append("}").append(iterator.hasNext() ? "," : "");
+        }
+        return json.append("\n]\n").toString();
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static final class IndexedPath {
+        private final String path;
+        private String name;
+        private String displayName;
+        private String enforcementMode;
+        private final List<IndexedMethod> methods = new ArrayList<>();
+
+        private IndexedPath(String path) {
+            this.path = path;
+        }
+    }
+
+    private record IndexedMethod(String method, List<String> scopes) {
+        private IndexedMethod {
+            scopes = scopes.stream().filter(scope -> !scope.isBlank()).toList();
+        }
+    }
+
+    private record Operation(List<String> scopes, String name, String displayName) {
+    }
+}
@@ -0,0 +1,175 @@
+package it.maconsulting.kcautoconf.processor;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class PathIndexProcessorTest {
+
+    @TempDir
+    Path output;
+
+    @Test
+    void givenV3ControllerWithAuthzScopes_indexIsGenerated() throws IOException {
+        String index = compile("v3", "fixtures.AuthzController", """
+                package fixtures;
+
+                import io.swagger.v3.oas.annotations.Operation;
+                import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+                import org.springframework.web.bind.annotation.*;
+
+                @RestController
+                @RequestMapping("authorized")
+                public class AuthzController {
+
+                    @GetMapping
+                    @Operation(operationId = "Entity Getter", security = {@SecurityRequirement(name = "get", scopes = "entity:read")})
+                    public void get() {}
+
+                    @RequestMapping
+                    public void withoutVerb() {}
+                }
+                """);
+
+        Assertions.assertTrue(index.contains("{\"path\":\"/authorized\",\"name\":\"Entity Getter\",\"displayName\":\"get\""));
+        Assertions.assertTrue(index.contains("{\"method\":\"GET\",\"scopes\":[\"entity:read\"]}"));
+        Assertions.assertFalse(index.contains("withoutVerb"));
+        Assertions.assertEquals("fixtures.AuthzController\n",
+                Files.readString(output.resolve(PathIndexProcessor.CONTROLLERS_LOCATION)));
+    }
+
+    @Test
+    void givenMultiplePaths_allCombinationsAreIndexed() throws IOException {
+        String index = compile("v2", "fixtures.MultiplePathsController", """
+                package fixtures;
+
+                import org.springframework.web.bind.annotation.*;
+
+                @RestController
+                @RequestMapping({"myAwesomeMapping", "/foo"})
+                public class MultiplePathsController {
+
+                    @GetMapping({"one", "/two/"})
+                    public void get() {}
+
+                    @RequestMapping(method = {RequestMethod.PUT, RequestMethod.PATCH})
+                    public void update() {}
+                }
+                """);
+
+        for (String path : List.of("/myAwesomeMapping/one", "/myAwesomeMapping/two", "/foo/one", "/foo/two")) {
+            Assertions.assertTrue(index.contains("{\"path\":\"" + path + "\",\"name\":\"get\""), path);
+        }
+        Assertions.assertTrue(index.contains("{\"path\":\"/foo\",\"name\":\"update\",\"displayName\":\"update\",\"methods\":[" +
+                "{\"method\":\"PUT\",\"scopes\":[]},{\"method\":\"PATCH\",\"scopes\":[]}]}"));
+    }
+
+    @Test
+    void givenControllerImplementingAnnotatedInterface_interfaceAnnotationsAreIndexed() throws IOException {
+        String index = compile("v3", Map.of("fixtures.MappingsApi", """
+                package fixtures;
+
+                import io.swagger.v3.oas.annotations.Operation;
+                import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+                import org.springframework.web.bind.annotation.*;
+
+                @RequestMapping("mappings")
+                public interface MappingsApi {
+
+                    @GetMapping("{id}")
+                    @Operation(operationId = "Mapping Getter", security = {@SecurityRequirement(name = "get", scopes = "mapping:read")})
+                    String get(@PathVariable("id") String id);
+                }
+                """, "fixtures.MappingsController", """
+                package fixtures;
+
+                import org.springframework.web.bind.annotation.*;
+
+                @RestController
+                public class MappingsController implements MappingsApi {
+
+                    @Override
+                    public String get(String id) {
+                        return id;
+                    }
+                }
+                """));
+
+        Assertions.assertTrue(index.contains("{\"path\":\"/mappings/{id}\",\"name\":\"Mapping Getter\",\"displayName\":\"get\"," +
+                "\"methods\":[{\"method\":\"GET\",\"scopes\":[\"mapping:read\"]}]}"));
+    }
+
+    @Test
+    void givenNestedControllerWithInheritedV2Operation_indexIsGenerated() throws IOException {
+        String index = compile("v2", "fixtures.Controllers", """
+                package fixtures;
+
+                import io.swagger.annotations.ApiOperation;
+                import io.swagger.annotations.Authorization;
+                import io.swagger.annotations.AuthorizationScope;
+                import org.springframework.web.bind.annotation.*;
+
+                public class Controllers {
+
+                    public abstract static class BaseController {
+
+                        @PostMapping
+                        @ApiOperation(value = "Entity Creator", nickname = "create",
+                                authorizations = {@Authorization(value = "create", scopes = {@AuthorizationScope(scope = "entity:create", description = "")})})
+                        public abstract void create();
+                    }
+
+                    @RestController
+                    @RequestMapping("nested")
+                    public static class NestedController extends BaseController {
+
+                        @Override
+                        public void create() {}
+                    }
+                }
+                """);
+
+        Assertions.assertTrue(index.contains("{\"path\":\"/nested\",\"name\":\"create\",\"displayName\":\"Entity Creator\"," +
+                "\"methods\":[{\"method\":\"POST\",\"scopes\":[\"entity:create\"]}]}"));
+        Assertions.assertEquals("fixtures.Controllers$NestedController\n",
+                Files.readString(output.resolve(PathIndexProcessor.CONTROLLERS_LOCATION)));
+    }
+
+    private String compile(String swaggerVersion, String className, String source) throws IOException {
+        return compile(swaggerVersion, Map.of(className, source));
+    }
+
+    private String compile(String swaggerVersion, Map<String, String> sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<JavaFileObject> files = new ArrayList<>();
+        sources.forEach((className, source) -> files.add(new SimpleJavaFileObject(
+                URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        }));
+        List<String> options = List.of(
+                "-classpath", System.getProperty("java.class.path"),
+                "-d", output.toString(),
+                "-A" + PathIndexProcessor.SWAGGER_OPTION + "=" + swaggerVersion);
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, null, options, null, files);
+        task.setProcessors(List.of(new PathIndexProcessor()));
+
+        Assertions.assertTrue(task.call());
+        return Files.readString(output.resolve(PathIndexProcessor.INDEX_LOCATION));
+    }
+}
@@ -17,6 +17,7 @@ package it.maconsulting.kcautoconf;
 
 import it.maconsulting.kcautoconf.services.AutoconfigurationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 
@@ -25,7 +26,9 @@ import org.springframework.context.annotation.Configuration;
  * It integrates the  and performs the automatic
  * resources and scopes configuration.<br>
  * The process is additive and not destructive. It means that if a policy-enforcement configuration section is present
- * in the application.properties or application.yaml file, it is kept.
+ * in the application.properties or application.yaml file, it is kept.<br>
+ * With {@code kcautoconf.deferred} the process is left to the {@link AutoconfigurationService}: it runs in background
+ * once the singletons are created, while the context finishes its refresh.
  *
  * @author Michele Arciprete
  * @since 1.0-SNAPSHOT
@@ -35,8 +38,11 @@ import org.springframework.context.annotation.Configuration;
 public class KeycloakResourceAutoConfiguration {
 
     @Autowired
-    public KeycloakResourceAutoConfiguration(AutoconfigurationService autoconfigurationService) {
-        autoconfigurationService.updateKeycloakConfiguration();
+    public KeycloakResourceAutoConfiguration(AutoconfigurationService autoconfigurationService,
+                                             @Value("${kcautoconf.deferred:false}") boolean deferred) {
+        if (!deferred) {
+            autoconfigurationService.updateKeycloakConfiguration();
+        }
     }
 
 }
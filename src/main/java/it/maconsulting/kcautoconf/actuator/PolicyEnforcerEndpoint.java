@@ -0,0 +1,117 @@
+package it.maconsulting.kcautoconf.actuator;
+
+import it.maconsulting.kcautoconf.enforcement.MeteredPolicyEnforcerFilter;
+import it.maconsulting.kcautoconf.metrics.PathStatistics;
+import it.maconsulting.kcautoconf.model.PathDefinition;
+import it.maconsulting.kcautoconf.services.AutoconfigurationService;
+import it.maconsulting.kcautoconf.services.PolicyEnforcerPathMerger;
+import it.maconsulting.kcautoconf.services.PublishedConfiguration;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Actuator endpoint listing the paths of the {@link PolicyEnforcerConfig}, as seen by the enforcer, with their live
+ * statistics.<br>
+ * Each path reports its http methods and scopes, its enforcement mode and where it comes from: {@code yaml} if it
+ * was declared in the enforcer configuration, {@code annotations} if it was discovered by the autoconfiguration,
+ * {@code yaml+annotations} if both. The hits, and the average time spent matching the path and deciding, are
+ * collected by the {@link MeteredPolicyEnforcerFilter} in the {@link PathStatistics}: hot and dead paths can be
+ * spotted at a glance. A {@code DELETE} resets the statistics.
+ * <p>
+ * The paths are the ones of the last published configuration. A {@code POST} discovers the paths again and
+ * publishes a new configuration in background, see {@link AutoconfigurationService#refresh()}.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Endpoint(id = "kcpolicies")
+public class PolicyEnforcerEndpoint {
+
+    private final PolicyEnforcerConfig policyEnforcerConfig;
+
+    private final AutoconfigurationService autoconfigurationService;
+
+    private final PathStatistics statistics;
+
+    public PolicyEnforcerEndpoint(PolicyEnforcerConfig policyEnforcerConfig, AutoconfigurationService autoconfigurationService,
+                                  PathStatistics statistics) {
+        this.policyEnforcerConfig = policyEnforcerConfig;
+        this.autoconfigurationService = autoconfigurationService;
+        this.statistics = statistics;
+    }
+
+    @ReadOperation
+    public PolicyTable policies() {
+        PublishedConfiguration published = autoconfigurationService.getPublishedConfiguration();
+        PolicyEnforcerConfig config = published != null ? published.policyEnforcerConfig() : policyEnforcerConfig;
+        List<PolicyEnforcerConfig.PathConfig> paths;
+        synchronized (config) {
+            paths = new ArrayList<>(config.getPaths());
+        }
+        Set<String> discovered = new HashSet<>();
+        for (PathDefinition definition : autoconfigurationService.getPathDefinitions()) {
+            discovered.add(PolicyEnforcerPathMerger.normalize(definition.path()));
+        }
+        Set<String> declared = autoconfigurationService.getDeclaredPaths();
+
+        List<PathEntry> entries = new ArrayList<>(paths.size());
+        for (PolicyEnforcerConfig.PathConfig path : paths) {
+            String normalized = PolicyEnforcerPathMerger.normalize(path.getPath());
+            List<MethodEntry> methods = path.getMethods().stream()
+                    .map(method -> new MethodEntry(method.getMethod(), method.getScopes()))
+                    .toList();
+            entries.add(new PathEntry(path.getPath(), path.getName(), source(declared.contains(normalized), discovered.contains(normalized)),
+                    path.getEnforcementMode() != null ? path.getEnforcementMode().name() : null,
+                    methods, path.getScopes(), Statistics.of(statistics.get(path.getPath()))));
+        }
+        return new PolicyTable(published != null ? published.version() : 0, entries, Statistics.of(statistics.get(MeteredPolicyEnforcerFilter.UNMATCHED)));
+    }
+
+    @WriteOperation
+    public void refresh() {
+        autoconfigurationService.refresh();
+    }
+
+    @DeleteOperation
+    public void resetStatistics() {
+        statistics.reset();
+    }
+
+    private String source(boolean declared, boolean discovered) {
+        if (declared && discovered) {
+            return "yaml+annotations";
+        }
+        return discovered ? "annotations" : "yaml";
+    }
+
+    /**
+     * @param version   the version of the published configuration, 0 if not published yet
+     * @param paths     the paths, in the order they are checked by the enforcer
+     * @param unmatched the statistics of the requests not matching any path
+     */
+    public record PolicyTable(long version, List<PathEntry> paths, Statistics unmatched) {
+    }
+
+    public record PathEntry(String path, String name, String source, String enforcementMode, List<MethodEntry> methods,
+                            List<String> scopes, Statistics statistics) {
+    }
+
+    public record MethodEntry(String method, List<String> scopes) {
+    }
+
+    public record Statistics(long hits, long granted, long denied, double averageMatchMicros, double averageDecisionMicros) {
+
+        static Statistics of(PathStatistics.Snapshot snapshot) {
+            return new Statistics(snapshot.hits(), snapshot.granted(), snapshot.denied(),
+                    snapshot.averageMatchMicros(), snapshot.averageDecisionMicros());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package it.maconsulting.kcautoconf.annotations;
+
+import it.maconsulting.kcautoconf.model.EnforcementMode;
+
+import java.lang.annotation.*;
+
+/**
+ * Sets the enforcement mode of the paths of a controller, or of a single handler method.<br>
+ * The annotation on the method overrides the one on the class. When the methods mapped on the same path declare
+ * different modes, the stricter one is used; when only some of them declare a mode, the path is left to the
+ * default mode of the enforcer.
+ * <pre>
+ * &#64;GetMapping("/status")
+ * &#64;Enforcement(EnforcementMode.PERMISSIVE)
+ * public Status status() { ... }
+ * </pre>
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ * @see PublicEndpoint
+ */
+@Target({ElementType.TYPE, ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Enforcement {
+
+    EnforcementMode value();
+}
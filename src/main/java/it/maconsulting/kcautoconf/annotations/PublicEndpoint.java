@@ -0,0 +1,21 @@
+package it.maconsulting.kcautoconf.annotations;
+
+import it.maconsulting.kcautoconf.model.EnforcementMode;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks the paths of a controller, or of a single handler method, as public: their enforcement is
+ * {@link EnforcementMode#DISABLED DISABLED}, no resource is exported for them and, when the
+ * {@link it.maconsulting.kcautoconf.enforcement.PublicPathBypassFilter PublicPathBypassFilter} is registered, their
+ * requests do not reach the enforcer at all.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Enforcement(EnforcementMode.DISABLED)
+public @interface PublicEndpoint {
+}
@@ -0,0 +1,37 @@
+package it.maconsulting.kcautoconf.aot;
+
+import it.maconsulting.kcautoconf.model.MethodConfiguration;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import it.maconsulting.kcautoconf.pojo.AuthorizationScopeDTO;
+import it.maconsulting.kcautoconf.pojo.AuthorizationSettingsDTO;
+import it.maconsulting.kcautoconf.pojo.AuthorizedResourceDTO;
+import it.maconsulting.kcautoconf.pojo.PolicyDTO;
+import it.maconsulting.kcautoconf.services.PathConfigurationIndexReader;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Runtime hints of the library: the path index resource, and the types bound by Jackson, that is the path
+ * index, the exported settings and the {@link PolicyEnforcerConfig} (bound from the properties, and copied
+ * when the configuration is published).
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public class KeycloakAutoconfigurationRuntimeHints implements RuntimeHintsRegistrar {
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.resources().registerPattern(PathConfigurationIndexReader.INDEX_LOCATION);
+        hints.resources().registerPattern(PathConfigurationIndexReader.CONTROLLERS_LOCATION);
+        bindingRegistrar.registerReflectionHints(hints.reflection(),
+                PathConfiguration.class, MethodConfiguration.class,
+                AuthorizationSettingsDTO.class, AuthorizedResourceDTO.class, AuthorizationScopeDTO.class, PolicyDTO.class,
+                PolicyEnforcerConfig.class);
+        bindingRegistrar.registerReflectionHints(hints.reflection(), PolicyEnforcerConfig.class.getDeclaredClasses());
+    }
+}
@@ -0,0 +1,119 @@
+package it.maconsulting.kcautoconf.aot;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import it.maconsulting.kcautoconf.services.AutoconfigurationService;
+import it.maconsulting.kcautoconf.services.ControllerPathScanner;
+import it.maconsulting.kcautoconf.services.PathConfigurationIndexReader;
+import it.maconsulting.kcautoconf.services.PathDiscovery;
+import it.maconsulting.kcautoconf.services.SwaggerOperationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Scans the controllers during the AOT processing, and writes the discovered paths to the path index
+ * ({@value PathConfigurationIndexReader#INDEX_LOCATION}) among the generated resources.<br>
+ * At runtime the autoconfiguration loads the index, so that neither the JVM in AOT mode nor a native image
+ * scan the controllers by reflection. Nothing is generated when the autoconfiguration is not enabled, or when the
+ * paths are discovered from the handler mappings ({@code kcautoconf.discovery=handler-mapping}), since they are
+ * registered by the running application only; when an index built by the annotation processor is already in the
+ * classpath, only the controllers it does not cover are indexed.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+public class PathIndexAotProcessor implements BeanFactoryInitializationAotProcessor {
+
+    @Override
+    public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
+        if (beanFactory.getBeanNamesForType(AutoconfigurationService.class, false, false).length == 0) {
+            return null;
+        }
+        if (isHandlerMappingDiscovery(beanFactory)) {
+            log.info("Paths discovered from the handler mappings, AOT index not generated.");
+            return null;
+        }
+        ClassLoader classLoader = beanFactory.getBeanClassLoader() != null ?
+                beanFactory.getBeanClassLoader() : ClassUtils.getDefaultClassLoader();
+
+        Map<String, Class<?>> controllers = new LinkedHashMap<>();
+        for (String beanName : beanFactory.getBeanNamesForAnnotation(RestController.class)) {
+            Class<?> type = beanFactory.getType(beanName, false);
+            if (type != null) {
+                controllers.put(beanName, ClassUtils.getUserClass(type));
+            }
+        }
+        Set<String> controllerNames = controllers.values().stream().map(Class::getName).collect(Collectors.toSet());
+        new PathConfigurationIndexReader().read(classLoader, controllerNames)
+                .ifPresent(indexed -> controllers.values().removeIf(type -> indexed.controllers().contains(type.getName())));
+        if (controllers.isEmpty()) {
+            log.debug("Controllers already indexed, AOT index not generated.");
+            return null;
+        }
+        List<PathConfiguration> paths = new ControllerPathScanner(getSwaggerOperationServices(beanFactory))
+                .scanControllers(controllers, 1);
+        log.info("Path index generated with {} paths from {} controllers.", paths.size(), controllers.size());
+
+        byte[] index = toJson(paths);
+        byte[] controllersList = controllers.values().stream().map(type -> type.getName() + "\n")
+                .distinct().collect(Collectors.joining()).getBytes(StandardCharsets.UTF_8);
+        return (generationContext, beanFactoryInitializationCode) -> {
+            generationContext.getGeneratedFiles()
+                    .addResourceFile(PathConfigurationIndexReader.INDEX_LOCATION, new ByteArrayResource(index));
+            generationContext.getGeneratedFiles()
+                    .addResourceFile(PathConfigurationIndexReader.CONTROLLERS_LOCATION, new ByteArrayResource(controllersList));
+            generationContext.getRuntimeHints().resources().registerPattern(PathConfigurationIndexReader.INDEX_LOCATION);
+            generationContext.getRuntimeHints().resources().registerPattern(PathConfigurationIndexReader.CONTROLLERS_LOCATION);
+        };
+    }
+
+    private boolean isHandlerMappingDiscovery(ConfigurableListableBeanFactory beanFactory) {
+        if (!beanFactory.containsBean(ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME)) {
+            return false;
+        }
+        Environment environment = beanFactory.getBean(ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME, Environment.class);
+        return PathDiscovery.HANDLER_MAPPING_DISCOVERY.equals(environment.getProperty("kcautoconf.discovery"));
+    }
+
+    /**
+     * Instantiates the swagger services registered in the bean factory, in the same order they are injected
+     * in the {@link AutoconfigurationService}. They are stateless, so there is no need to go through the bean
+     * factory.
+     */
+    private List<SwaggerOperationService> getSwaggerOperationServices(ConfigurableListableBeanFactory beanFactory) {
+        List<SwaggerOperationService> swaggerOperationServices = new ArrayList<>();
+        for (String beanName : beanFactory.getBeanNamesForType(SwaggerOperationService.class, false, false)) {
+            Class<?> type = beanFactory.getType(beanName, false);
+            if (type != null) {
+                swaggerOperationServices.add((SwaggerOperationService) BeanUtils.instantiateClass(ClassUtils.getUserClass(type)));
+            }
+        }
+        return swaggerOperationServices;
+    }
+
+    private byte[] toJson(List<PathConfiguration> paths) {
+        try {
+            return new ObjectMapper().writeValueAsBytes(paths);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to write the path index", e);
+        }
+    }
+}
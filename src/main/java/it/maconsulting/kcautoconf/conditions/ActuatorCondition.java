@@ -0,0 +1,29 @@
+package it.maconsulting.kcautoconf.conditions;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public class ActuatorCondition implements Condition {
+
+    /**
+     * Checks if Spring Boot Actuator is present in the classpath.
+     * @param conditionContext the condition context
+     * @param annotatedTypeMetadata the annotated type metadata
+     * @return true if the library is present, false otherwise
+     */
+    @Override
+    public boolean matches(ConditionContext conditionContext, AnnotatedTypeMetadata annotatedTypeMetadata) {
+        try {
+            Class.forName("org.springframework.boot.actuate.endpoint.annotation.Endpoint", false, this.getClass().getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+}
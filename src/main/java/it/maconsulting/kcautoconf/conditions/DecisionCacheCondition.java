@@ -0,0 +1,24 @@
+package it.maconsulting.kcautoconf.conditions;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public class DecisionCacheCondition implements Condition {
+
+    /**
+     * Checks if the authorization decision cache is enabled with {@code kcautoconf.cache.enabled}.
+     * @param conditionContext the condition context
+     * @param annotatedTypeMetadata the annotated type metadata
+     * @return true if the cache is enabled, false otherwise
+     */
+    @Override
+    public boolean matches(ConditionContext conditionContext, AnnotatedTypeMetadata annotatedTypeMetadata) {
+        return conditionContext.getEnvironment().getProperty("kcautoconf.cache.enabled", Boolean.class, false);
+    }
+
+}
@@ -0,0 +1,24 @@
+package it.maconsulting.kcautoconf.conditions;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public class TenantsCondition implements Condition {
+
+    /**
+     * Checks if the multi-tenant enforcement is enabled with {@code kcautoconf.tenants.enabled}.
+     * @param conditionContext the condition context
+     * @param annotatedTypeMetadata the annotated type metadata
+     * @return true if the multi-tenant enforcement is enabled, false otherwise
+     */
+    @Override
+    public boolean matches(ConditionContext conditionContext, AnnotatedTypeMetadata annotatedTypeMetadata) {
+        return conditionContext.getEnvironment().getProperty("kcautoconf.tenants.enabled", Boolean.class, false);
+    }
+
+}
@@ -0,0 +1,23 @@
+package it.maconsulting.kcautoconf.config;
+
+import it.maconsulting.kcautoconf.conditions.DecisionCacheCondition;
+import it.maconsulting.kcautoconf.enforcement.DecisionCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@Conditional(DecisionCacheCondition.class)
+public class DecisionCacheConfig {
+
+    @Bean
+    public DecisionCache decisionCache(@Value("${kcautoconf.cache.max-size:10000}") int maxSize,
+                                       @Value("${kcautoconf.cache.ttl:60s}") Duration ttl,
+                                       @Value("${kcautoconf.cache.negative-ttl:5s}") Duration negativeTtl) {
+        return new DecisionCache(maxSize, ttl, negativeTtl);
+    }
+
+}
@@ -0,0 +1,27 @@
+package it.maconsulting.kcautoconf.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import it.maconsulting.kcautoconf.conditions.MicrometerCondition;
+import it.maconsulting.kcautoconf.metrics.AutoconfigurationMetrics;
+import it.maconsulting.kcautoconf.metrics.MicrometerAutoconfigurationMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Conditional(MicrometerCondition.class)
+public class MicrometerMetricsConfig {
+
+    /**
+     * Registers the Micrometer metrics when a {@link MeterRegistry} bean is available.
+     * @param meterRegistry the meter registry, if any
+     * @return the Micrometer metrics, or the no-op ones if there is no registry
+     */
+    @Bean
+    public AutoconfigurationMetrics autoconfigurationMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        return registry != null ? new MicrometerAutoconfigurationMetrics(registry) : AutoconfigurationMetrics.NOOP;
+    }
+
+}
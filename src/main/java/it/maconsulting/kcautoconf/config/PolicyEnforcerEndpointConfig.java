@@ -0,0 +1,28 @@
+package it.maconsulting.kcautoconf.config;
+
+import it.maconsulting.kcautoconf.actuator.PolicyEnforcerEndpoint;
+import it.maconsulting.kcautoconf.conditions.ActuatorCondition;
+import it.maconsulting.kcautoconf.metrics.PathStatistics;
+import it.maconsulting.kcautoconf.services.AutoconfigurationService;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Conditional(ActuatorCondition.class)
+public class PolicyEnforcerEndpointConfig {
+
+    @Bean
+    public PathStatistics pathStatistics() {
+        return new PathStatistics();
+    }
+
+    @Bean
+    public PolicyEnforcerEndpoint policyEnforcerEndpoint(PolicyEnforcerConfig policyEnforcerConfig,
+                                                         AutoconfigurationService autoconfigurationService,
+                                                         PathStatistics pathStatistics) {
+        return new PolicyEnforcerEndpoint(policyEnforcerConfig, autoconfigurationService, pathStatistics);
+    }
+
+}
@@ -0,0 +1,56 @@
+package it.maconsulting.kcautoconf.config;
+
+import it.maconsulting.kcautoconf.conditions.TenantsCondition;
+import it.maconsulting.kcautoconf.enforcement.TenantConfigurationResolver;
+import it.maconsulting.kcautoconf.enforcement.TenantResolver;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@Conditional(TenantsCondition.class)
+public class TenantConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "kcautoconf.tenants")
+    public TenantProperties tenantProperties() {
+        return new TenantProperties();
+    }
+
+    @Bean
+    public TenantConfigurationResolver tenantConfigurationResolver(PolicyEnforcerConfig policyEnforcerConfig,
+                                                                   TenantProperties tenantProperties) {
+        TenantResolver tenantResolver = switch (tenantProperties.getStrategy()) {
+            case "host" -> TenantResolver.host();
+            case "header" -> TenantResolver.header(tenantProperties.getHeader());
+            case "issuer" -> TenantResolver.issuer(getTenantsByIssuer(policyEnforcerConfig, tenantProperties));
+            default -> throw new IllegalArgumentException("Unknown tenant strategy: " + tenantProperties.getStrategy()
+                    + ", expected host, header or issuer");
+        };
+        return new TenantConfigurationResolver(policyEnforcerConfig, tenantProperties.getRealms()::get, tenantResolver,
+                tenantProperties.getMaxTenants());
+    }
+
+    /**
+     * The issuer of each tenant is the server url and the realm of its settings, falling back to the shared ones.
+     * The issuers declared in {@code tenants.issuers} win, ie. when Keycloak issues the tokens with a frontend url.
+     */
+    private Map<String, String> getTenantsByIssuer(PolicyEnforcerConfig policyEnforcerConfig, TenantProperties tenantProperties) {
+        Map<String, String> tenantsByIssuer = new HashMap<>();
+        tenantProperties.getRealms().forEach((tenant, settings) -> {
+            String authServerUrl = settings.getAuthServerUrl() != null ? settings.getAuthServerUrl() : policyEnforcerConfig.getAuthServerUrl();
+            String realm = settings.getRealm() != null ? settings.getRealm() : policyEnforcerConfig.getRealm();
+            if (authServerUrl != null && realm != null) {
+                tenantsByIssuer.put(authServerUrl.replaceAll("/+$", "") + "/realms/" + realm, tenant);
+            }
+        });
+        tenantsByIssuer.putAll(tenantProperties.getIssuers());
+        return tenantsByIssuer;
+    }
+
+}
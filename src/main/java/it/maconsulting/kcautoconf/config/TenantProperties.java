@@ -0,0 +1,23 @@
+package it.maconsulting.kcautoconf.config;
+
+import lombok.Data;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@code kcautoconf.tenants} properties.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Data
+public class TenantProperties {
+    private boolean enabled;
+    private String strategy = "issuer";
+    private String header = "X-Tenant";
+    private int maxTenants = 64;
+    private Map<String, PolicyEnforcerConfig> realms = new LinkedHashMap<>();
+    private Map<String, String> issuers = new LinkedHashMap<>();
+}
@@ -1,17 +1,51 @@
 package it.maconsulting.kcautoconf.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.maconsulting.kcautoconf.events.PathConfigurationsPublishedEvent;
 import it.maconsulting.kcautoconf.pojo.AuthorizationSettingsDTO;
 import it.maconsulting.kcautoconf.services.KeycloakConfigurationGeneratorService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
 
 /**
+ * Exports the generated Keycloak settings.<br>
+ * The settings are generated and serialized once, and kept until the application context is refreshed or new paths
+ * are published (ie. by {@code AutoconfigurationService#refresh()}). They are served with a strong ETag, so that
+ * clients polling the endpoint get a {@code 304 Not Modified} when nothing changed. With
+ * {@code kcautoconf.export-gzip} the response is gzip encoded for the clients accepting it.
+ * <p>
+ * With {@code kcautoconf.export-streaming} the settings are not kept: they are generated on every request and written
+ * straight to the response, so that exporting a large number of paths does not require the whole settings in memory.
+ * Streamed responses have no ETag.
+ *
  * @author Michele Arciprete
  * @since 0.3.0
  */
+@Slf4j
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("${kcautoconf.export-path:/mac/configuration/export}")
@@ -19,11 +53,145 @@ public class ConfigurationExportController {
 
     private final KeycloakConfigurationGeneratorService keycloakConfigurationGeneratorService;
 
+    private final ObjectProvider<ObjectMapper> objectMapper;
+
+    private final AtomicReference<ExportedConfiguration> exportedConfiguration = new AtomicReference<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${kcautoconf.export-gzip:false}")
+    private boolean gzip;
+
+    @Value("${kcautoconf.export-streaming:false}")
+    private boolean streaming;
+
     @GetMapping
-    public ResponseEntity<AuthorizationSettingsDTO> configure() {
-        return
-                ResponseEntity.ok(
-                keycloakConfigurationGeneratorService.generateConfigurationAsJson()
-                );
+    public ResponseEntity<byte[]> configure(NativeWebRequest request) {
+        boolean gzipped = gzip && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        HttpServletResponse servletResponse = request.getNativeResponse(HttpServletResponse.class);
+        if (streaming && servletResponse != null) {
+            stream(servletResponse, gzipped);
+            return null;
+        }
+
+        ExportedConfiguration exported = getExportedConfiguration();
+        String eTag = gzipped ? exported.gzipETag() : exported.eTag();
+
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzipped) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(exported.gzipped());
+        }
+        return response.body(exported.json());
+    }
+
+    private void stream(HttpServletResponse response, boolean gzipped) {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzipped) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        try {
+            OutputStream out = gzipped ? new GZIPOutputStream(response.getOutputStream()) : response.getOutputStream();
+            try (JsonGenerator generator = objectMapper.getIfAvailable(ObjectMapper::new).getFactory().createGenerator(out)) {
+                keycloakConfigurationGeneratorService.writeConfigurationAsJson(generator);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @EventListener({ContextRefreshedEvent.class, PathConfigurationsPublishedEvent.class})
+    public void invalidate() {
+        generation.incrementAndGet();
+        exportedConfiguration.set(null);
+    }
+
+    /**
+     * The exported settings carry the generation they were generated for, and are served only while it is the
+     * current one: settings being generated while the configuration is invalidated are never served afterwards.
+     */
+    private ExportedConfiguration getExportedConfiguration() {
+        ExportedConfiguration exported = exportedConfiguration.get();
+        if (exported == null || exported.generation() != generation.get()) {
+            synchronized (exportedConfiguration) {
+                long current = generation.get();
+                exported = exportedConfiguration.get();
+                if (exported == null || exported.generation() != current) {
+                    exported = export(keycloakConfigurationGeneratorService.generateConfigurationAsJson(), current);
+                    exportedConfiguration.set(exported);
+                }
+            }
+        }
+        return exported;
+    }
+
+    private ExportedConfiguration export(AuthorizationSettingsDTO settings, long generation) {
+        try {
+            byte[] json = objectMapper.getIfAvailable(ObjectMapper::new).writeValueAsBytes(settings);
+            String hash = DigestUtils.md5DigestAsHex(json);
+            log.debug("Keycloak settings exported, {} bytes, hash {}", json.length, hash);
+            return new ExportedConfiguration(json, gzip ? compress(json) : null, "\"" + hash + "\"", "\"" + hash + "-gzip\"", generation);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize the Keycloak settings", e);
+        }
+    }
+
+    private byte[] compress(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Whether the header accepts gzip, with a non zero quality value: {@code gzip;q=0} refuses it. {@code gzip} or
+     * {@code x-gzip} take precedence over {@code *}.
+     */
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+            boolean accepted = quality(parameters) > 0;
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                return accepted;
+            }
+            if (name.equals("*")) {
+                any = accepted;
+            }
+        }
+        return Boolean.TRUE.equals(any);
+    }
+
+    /**
+     * @return the {@code q} parameter of the coding, {@code 1} if absent, {@code 0} if malformed
+     */
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private record ExportedConfiguration(byte[] json, byte[] gzipped, String eTag, String gzipETag, long generation) {
     }
 }
@@ -0,0 +1,68 @@
+package it.maconsulting.kcautoconf.enforcement;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Reads the bearer tokens of the requests, to key and bound the cached decisions.
+ */
+@Slf4j
+final class BearerTokens {
+
+    private static final String BEARER = "Bearer ";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private BearerTokens() {
+    }
+
+    /**
+     * @return the bearer token of the request, or {@code null} if there is none
+     */
+    static String get(HttpServletRequest request) {
+        String authorization = request.getHeader("Authorization");
+        if (authorization != null && authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return authorization.substring(BEARER.length()).trim();
+        }
+        return null;
+    }
+
+    static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Reads the {@code exp} claim of the token. The token is not verified here: the value is only used to
+     * shorten the time to live of the decision, the verification is left to the enforcer.
+     *
+     * @return the expiration in epoch millis, or {@code null} if unknown
+     */
+    static Long getExpiration(String token) {
+        int start = token.indexOf('.');
+        int end = token.indexOf('.', start + 1);
+        if (start == -1 || end == -1) {
+            return null;
+        }
+        try {
+            JsonNode claims = OBJECT_MAPPER.readTree(Base64.getUrlDecoder().decode(token.substring(start + 1, end)));
+            JsonNode exp = claims.get("exp");
+            return exp != null && exp.canConvertToLong() ? exp.asLong() * 1000 : null;
+        } catch (IOException | IllegalArgumentException e) {
+            log.debug("Unable to read the token expiration: {}", e.getMessage());
+            return null;
+        }
+    }
+}
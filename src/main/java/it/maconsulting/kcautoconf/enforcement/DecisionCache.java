@@ -0,0 +1,150 @@
+package it.maconsulting.kcautoconf.enforcement;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.AuthorizationContext;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of the authorization decisions taken by the policy enforcer.<br>
+ * Granted and denied decisions have their own time to live, and no entry outlives the token it was taken for.
+ * When the cache is full, the entries closest to their expiration are evicted first.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+public class DecisionCache {
+
+    @Getter
+    private final int maxSize;
+
+    @Getter
+    private final Duration ttl;
+
+    @Getter
+    private final Duration negativeTtl;
+
+    private final Clock clock;
+
+    private final Map<Key, Decision> decisions;
+
+    private final Object evictionLock = new Object();
+
+    public DecisionCache(int maxSize, Duration ttl, Duration negativeTtl) {
+        this(maxSize, ttl, negativeTtl, Clock.systemUTC());
+    }
+
+    public DecisionCache(int maxSize, Duration ttl, Duration negativeTtl, Clock clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The decision cache size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.clock = clock;
+        this.decisions = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+    }
+
+    /**
+     * @param key the decision key
+     * @return the cached decision, or {@code null} if absent or expired
+     */
+    public Decision get(Key key) {
+        Decision decision = decisions.get(key);
+        if (decision != null && decision.expiresAt <= clock.millis()) {
+            decisions.remove(key, decision);
+            return null;
+        }
+        return decision;
+    }
+
+    /**
+     * Caches a granted decision.
+     *
+     * @param key            the decision key
+     * @param tokenExpiresAt the token expiration, in epoch millis, or {@code null} if unknown
+     * @param context        the authorization context produced by the enforcer, if any
+     */
+    public void putGranted(Key key, Long tokenExpiresAt, AuthorizationContext context) {
+        put(key, new Decision(true, 0, context, expiresAt(ttl, tokenExpiresAt)));
+    }
+
+    /**
+     * Caches a denied decision.
+     *
+     * @param key            the decision key
+     * @param tokenExpiresAt the token expiration, in epoch millis, or {@code null} if unknown
+     * @param status         the http status sent by the enforcer
+     */
+    public void putDenied(Key key, Long tokenExpiresAt, int status) {
+        put(key, new Decision(false, status, null, expiresAt(negativeTtl, tokenExpiresAt)));
+    }
+
+    public int size() {
+        return decisions.size();
+    }
+
+    public void clear() {
+        decisions.clear();
+    }
+
+    private long expiresAt(Duration timeToLive, Long tokenExpiresAt) {
+        long expiresAt = clock.millis() + timeToLive.toMillis();
+        return tokenExpiresAt != null ? Math.min(expiresAt, tokenExpiresAt) : expiresAt;
+    }
+
+    private void put(Key key, Decision decision) {
+        if (decision.expiresAt <= clock.millis()) {
+            return;
+        }
+        decisions.put(key, decision);
+        if (decisions.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes the expired entries and, if still needed, the ones closest to their expiration, leaving
+     * some room so that eviction does not run on every insertion.
+     */
+    private void evict() {
+        synchronized (evictionLock) {
+            if (decisions.size() <= maxSize) {
+                return;
+            }
+            long now = clock.millis();
+            decisions.values().removeIf(decision -> decision.expiresAt <= now);
+            int target = maxSize - maxSize / 10;
+            if (decisions.size() > target) {
+                List<Map.Entry<Key, Decision>> entries = new ArrayList<>(decisions.entrySet());
+                entries.sort(Comparator.comparingLong(entry -> entry.getValue().expiresAt));
+                for (int i = 0; i < entries.size() - target; i++) {
+                    decisions.remove(entries.get(i).getKey(), entries.get(i).getValue());
+                }
+            }
+            log.trace("Decision cache evicted down to {} entries", decisions.size());
+        }
+    }
+
+    /**
+     * @param token  the digest of the bearer token
+     * @param path   the matched path pattern, or the request path when it does not match any pattern
+     * @param method the http method
+     */
+    public record Key(String token, String path, String method) {
+    }
+
+    /**
+     * A cached decision. For denied decisions, {@code status} is the http status sent by the enforcer.
+     */
+    public record Decision(boolean granted, int status, AuthorizationContext context, long expiresAt) {
+    }
+}
@@ -0,0 +1,115 @@
+package it.maconsulting.kcautoconf.enforcement;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.AuthorizationContext;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+
+/**
+ * Filter wrapping the policy enforcer filter, that caches its decisions in a {@link DecisionCache}.<br>
+ * Decisions are keyed by the bearer token, the matched path and the http method: the token is hashed as a
+ * whole, so a cached decision is only reused for the very same token (same subject, same {@code jti}, same
+ * signature). Requests without a bearer token are always passed to the enforcer.
+ * <p>
+ * A request is considered granted when the enforcer lets it go down the filter chain; a request is considered
+ * denied when the enforcer answers with {@code 401} or {@code 403}, and it is answered again with the same status.
+ * Denials carrying a {@code WWW-Authenticate} challenge (ie. a UMA permission ticket, issued for each request) are
+ * not cached, since the challenge cannot be replayed. Any other outcome (ie. a redirect) is not cached.
+ * <pre>
+ * PathMatchingConfigurationResolver resolver = new PathMatchingConfigurationResolver(policyEnforcerConfig);
+ * registrationBean.setFilter(new DecisionCachingFilter(new ServletPolicyEnforcerFilter(resolver), decisionCache, resolver));
+ * </pre>
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+public class DecisionCachingFilter implements Filter {
+
+    private final Filter policyEnforcerFilter;
+
+    private final DecisionCache decisionCache;
+
+    private final PathMatchingConfigurationResolver pathResolver;
+
+    /**
+     * @param policyEnforcerFilter the enforcer filter, whose decisions are cached
+     * @param decisionCache        the cache
+     * @param pathResolver         the resolver used to key the decisions by path pattern, or {@code null} to key
+     *                             them by request path
+     */
+    public DecisionCachingFilter(Filter policyEnforcerFilter, DecisionCache decisionCache,
+                                 PathMatchingConfigurationResolver pathResolver) {
+        this.policyEnforcerFilter = policyEnforcerFilter;
+        this.decisionCache = decisionCache;
+        this.pathResolver = pathResolver;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        policyEnforcerFilter.init(filterConfig);
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+
+        String token = BearerTokens.get(request);
+        if (token == null) {
+            policyEnforcerFilter.doFilter(request, response, chain);
+            return;
+        }
+
+        DecisionCache.Key key = new DecisionCache.Key(BearerTokens.digest(token), resolvePath(request), request.getMethod());
+        DecisionCache.Decision decision = decisionCache.get(key);
+        if (decision != null) {
+            log.trace("Cached decision for {} {}: granted={}", key.method(), key.path(), decision.granted());
+            if (decision.granted()) {
+                if (decision.context() != null) {
+                    request.setAttribute(AuthorizationContext.class.getName(), decision.context());
+                }
+                chain.doFilter(request, response);
+            } else {
+                response.sendError(decision.status());
+            }
+            return;
+        }
+
+        Long tokenExpiresAt = BearerTokens.getExpiration(token);
+        boolean[] granted = {false};
+        policyEnforcerFilter.doFilter(request, response, (grantedRequest, grantedResponse) -> {
+            granted[0] = true;
+            decisionCache.putGranted(key, tokenExpiresAt,
+                    (AuthorizationContext) grantedRequest.getAttribute(AuthorizationContext.class.getName()));
+            chain.doFilter(grantedRequest, grantedResponse);
+        });
+        if (!granted[0] && (response.getStatus() == HttpServletResponse.SC_UNAUTHORIZED ||
+                response.getStatus() == HttpServletResponse.SC_FORBIDDEN)
+                && !response.containsHeader(HttpHeaders.WWW_AUTHENTICATE)) {
+            decisionCache.putDenied(key, tokenExpiresAt, response.getStatus());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        policyEnforcerFilter.destroy();
+    }
+
+    private String resolvePath(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (pathResolver != null) {
+            PolicyEnforcerConfig.PathConfig pathConfig = pathResolver.resolvePathConfig(path);
+            if (pathConfig != null) {
+                return pathConfig.getPath();
+            }
+        }
+        return path;
+    }
+}
@@ -0,0 +1,415 @@
+package it.maconsulting.kcautoconf.enforcement;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.maconsulting.kcautoconf.services.PolicyEnforcerPathMerger;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import org.springframework.web.util.pattern.PatternParseException;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Alternative to the policy enforcer filter, enforcing the permissions of the handler chosen by Spring MVC instead
+ * of matching the request uri again.<br>
+ * The resource and the scopes required by every handler method are resolved once, on the first request (and again
+ * after a new configuration is published, when the configuration is supplied), from the patterns of the handler
+ * mapping and the paths of the {@link PolicyEnforcerConfig}, into an identity map keyed by
+ * the {@link Method} of the handler (Spring MVC creates a new {@link HandlerMethod} for every request, sharing the
+ * same {@code Method}). A request is then enforced with a map lookup, and the decision is asked to Keycloak with an
+ * UMA ticket grant, or read from the {@link DecisionCache} when given.
+ * <p>
+ * When other configured paths overlap the pattern of a handler (ie. {@code /api/admin} for a {@code /api/{name}}
+ * handler), the configured path of its requests is resolved on every request, with a trie of the overlapping paths
+ * only, so that the more specific path is enforced as the enforcer does.
+ * <p>
+ * The scopes are resolved as the enforcer does: the ones of the http method when configured, otherwise the http
+ * method itself with {@code http-method-as-scope}, otherwise the ones of the path. Handlers whose patterns are not
+ * configured follow the enforcement mode of the configuration: they are denied when it is {@code ENFORCING}.
+ * {@code PERMISSIVE} paths are granted when Keycloak does not know their resource or scopes. When Keycloak cannot
+ * be reached, or answers with an error, the request is answered with {@code 503} and the outcome is not cached.
+ * Only the requests dispatched by the container are enforced, not the error and forward dispatches. No
+ * {@code AuthorizationContext} is exposed to the handlers.
+ * <pre>
+ * &#64;Override
+ * public void addInterceptors(InterceptorRegistry registry) {
+ *     registry.addInterceptor(new HandlerMethodEnforcementInterceptor(policyEnforcerConfig, handlerMapping,
+ *             HttpClient.newHttpClient(), decisionCache));
+ * }
+ * </pre>
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+public class HandlerMethodEnforcementInterceptor implements HandlerInterceptor {
+
+    private static final String UMA_TICKET_GRANT = "urn:ietf:params:oauth:grant-type:uma-ticket";
+
+    private final Supplier<PolicyEnforcerConfig> policyEnforcerConfig;
+
+    private final RequestMappingHandlerMapping handlerMapping;
+
+    private final HttpClient httpClient;
+
+    private final DecisionCache decisionCache;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile HandlerPermissions handlerPermissions;
+
+    /**
+     * @param policyEnforcerConfig the configuration holding the paths and the Keycloak coordinates
+     * @param handlerMapping       the mapping of the enforced handlers
+     * @param httpClient           the client used to ask the decisions to Keycloak
+     * @param decisionCache        the cache of the decisions, or {@code null} to ask Keycloak on every request
+     */
+    public HandlerMethodEnforcementInterceptor(PolicyEnforcerConfig policyEnforcerConfig,
+                                              RequestMappingHandlerMapping handlerMapping,
+                                              HttpClient httpClient, DecisionCache decisionCache) {
+        this(() -> policyEnforcerConfig, handlerMapping, httpClient, decisionCache);
+    }
+
+    /**
+     * @param policyEnforcerConfig supplies the current configuration
+     * @param handlerMapping       the mapping of the enforced handlers
+     * @param httpClient           the client used to ask the decisions to Keycloak
+     * @param decisionCache        the cache of the decisions, or {@code null} to ask Keycloak on every request
+     */
+    public HandlerMethodEnforcementInterceptor(Supplier<PolicyEnforcerConfig> policyEnforcerConfig,
+                                              RequestMappingHandlerMapping handlerMapping,
+                                              HttpClient httpClient, DecisionCache decisionCache) {
+        this.policyEnforcerConfig = policyEnforcerConfig;
+        this.handlerMapping = handlerMapping;
+        this.httpClient = httpClient;
+        this.decisionCache = decisionCache;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod handlerMethod) || request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        PolicyEnforcerConfig config = policyEnforcerConfig.get();
+        PatternPermission patternPermission = getHandlerPermissions(config).get(handlerMethod.getMethod(),
+                request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+        Permission permission = patternPermission != null ?
+                patternPermission.resolve(request.getRequestURI().substring(request.getContextPath().length())) : null;
+        if (permission == null) {
+            if (config.getEnforcementMode() == PolicyEnforcerConfig.EnforcementMode.ENFORCING) {
+                log.debug("No path configured for handler {}, request denied", handlerMethod);
+                response.sendError(HttpServletResponse.SC_FORBIDDEN);
+                return false;
+            }
+            return true;
+        }
+        if (permission.enforcementMode == PolicyEnforcerConfig.EnforcementMode.DISABLED) {
+            return true;
+        }
+
+        String token = BearerTokens.get(request);
+        if (token == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return false;
+        }
+        String method = request.getMethod();
+        DecisionCache.Key key = decisionCache != null ? new DecisionCache.Key(BearerTokens.digest(token), permission.path, method) : null;
+        DecisionCache.Decision cached = key != null ? decisionCache.get(key) : null;
+        int status = cached != null ? (cached.granted() ? HttpServletResponse.SC_OK : cached.status()) :
+                decide(config, token, permission, method);
+        if (cached == null && key != null) {
+            if (status == HttpServletResponse.SC_OK) {
+                decisionCache.putGranted(key, BearerTokens.getExpiration(token), null);
+            } else if (status == HttpServletResponse.SC_UNAUTHORIZED || status == HttpServletResponse.SC_FORBIDDEN) {
+                decisionCache.putDenied(key, BearerTokens.getExpiration(token), status);
+            }
+        }
+        if (status == HttpServletResponse.SC_OK) {
+            return true;
+        }
+        log.trace("{} {} denied with status {}", method, permission.path, status);
+        response.sendError(status);
+        return false;
+    }
+
+    /**
+     * Asks Keycloak the permissions granted to the token on the resource of the handler.
+     *
+     * @return {@code 200} when the request is granted, {@code 401} or {@code 403} when it is denied, {@code 503} when
+     * the decision cannot be obtained
+     */
+    private int decide(PolicyEnforcerConfig policyEnforcerConfig, String token, Permission permission, String method) {
+        PolicyEnforcerConfig.MethodConfig methodConfig = permission.methods.get(method);
+        List<String> scopes = methodConfig != null ? methodConfig.getScopes() :
+                Boolean.TRUE.equals(policyEnforcerConfig.getHttpMethodAsScope()) ? List.of(method) : permission.scopes;
+        PolicyEnforcerConfig.ScopeEnforcementMode scopesMode = methodConfig != null && methodConfig.getScopesEnforcementMode() != null ?
+                methodConfig.getScopesEnforcementMode() : PolicyEnforcerConfig.ScopeEnforcementMode.ALL;
+        if (scopesMode == PolicyEnforcerConfig.ScopeEnforcementMode.DISABLED) {
+            scopes = List.of();
+        }
+
+        StringBuilder form = new StringBuilder("grant_type=").append(encode(UMA_TICKET_GRANT))
+                .append("&audience=").append(encode(policyEnforcerConfig.getResource()))
+                .append("&response_mode=permissions")
+                .append("&permission=").append(encode((permission.id != null ? permission.id : permission.path)
+                        + (scopes.isEmpty() ? "" : "#" + String.join(",", scopes))));
+        if (permission.id == null) {
+            form.append("&permission_resource_format=uri&permission_resource_matching_uri=false");
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(getTokenEndpoint(policyEnforcerConfig)))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form.toString()))
+                .build();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            int status = response.statusCode();
+            if (status == 200) {
+                return isGranted(objectMapper.readTree(response.body()), scopes, scopesMode) ?
+                        HttpServletResponse.SC_OK : HttpServletResponse.SC_FORBIDDEN;
+            }
+            if (status == 400 && permission.enforcementMode == PolicyEnforcerConfig.EnforcementMode.PERMISSIVE) {
+                return HttpServletResponse.SC_OK;
+            }
+            if (status == 400 || status == 403) {
+                return HttpServletResponse.SC_FORBIDDEN;
+            }
+            if (status == 401) {
+                return HttpServletResponse.SC_UNAUTHORIZED;
+            }
+            log.warn("Keycloak answered {} to the decision for {} {}", status, method, permission.path);
+            return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+        } catch (IOException e) {
+            log.warn("Unable to obtain the decision for {} {}: {}", method, permission.path, e.getMessage());
+            return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+        }
+    }
+
+    private boolean isGranted(JsonNode permissions, List<String> scopes, PolicyEnforcerConfig.ScopeEnforcementMode scopesMode) {
+        if (!permissions.isArray() || permissions.isEmpty()) {
+            return false;
+        }
+        if (scopes.isEmpty()) {
+            return true;
+        }
+        Set<String> granted = new HashSet<>();
+        permissions.forEach(permission -> permission.path("scopes").forEach(scope -> granted.add(scope.asText())));
+        return scopesMode == PolicyEnforcerConfig.ScopeEnforcementMode.ANY ?
+                scopes.stream().anyMatch(granted::contains) : granted.containsAll(scopes);
+    }
+
+    private String getTokenEndpoint(PolicyEnforcerConfig policyEnforcerConfig) {
+        return policyEnforcerConfig.getAuthServerUrl().replaceAll("/+$", "") + "/realms/"
+                + encode(policyEnforcerConfig.getRealm()) + "/protocol/openid-connect/token";
+    }
+
+    private HandlerPermissions getHandlerPermissions(PolicyEnforcerConfig config) {
+        HandlerPermissions permissions = handlerPermissions;
+        if (permissions == null || permissions.source != config) {
+            synchronized (this) {
+                permissions = handlerPermissions;
+                if (permissions == null || permissions.source != config) {
+                    permissions = buildHandlerPermissions(config);
+                    handlerPermissions = permissions;
+                }
+            }
+        }
+        return permissions;
+    }
+
+    /**
+     * Resolves the configured path of every pattern of every handler method: by pattern first, ignoring the names
+     * of the path variables, then with the same trie used for the requests (ie. for wildcard paths). The configured
+     * paths overlapping the pattern, ie. matched by the pattern as they are written, are kept to resolve its requests
+     * one by one.
+     */
+    private HandlerPermissions buildHandlerPermissions(PolicyEnforcerConfig policyEnforcerConfig) {
+        List<PolicyEnforcerConfig.PathConfig> pathConfigs;
+        synchronized (policyEnforcerConfig) {
+            pathConfigs = new ArrayList<>(policyEnforcerConfig.getPaths());
+        }
+        Map<String, PolicyEnforcerConfig.PathConfig> byPattern = new HashMap<>();
+        Map<PolicyEnforcerConfig.PathConfig, Permission> permissions = new IdentityHashMap<>();
+        PathTrie.Builder<PolicyEnforcerConfig.PathConfig> trieBuilder = PathTrie.builder();
+        for (PolicyEnforcerConfig.PathConfig pathConfig : pathConfigs) {
+            if (pathConfig.getPath() == null) {
+                continue;
+            }
+            byPattern.putIfAbsent(PolicyEnforcerPathMerger.normalize(pathConfig.getPath()), pathConfig);
+            trieBuilder.add(pathConfig.getPath(), pathConfig);
+            permissions.put(pathConfig, new Permission(pathConfig));
+        }
+        PathTrie<PolicyEnforcerConfig.PathConfig> trie = trieBuilder.build();
+
+        Map<Method, Map<String, PatternPermission>> byMethod = new IdentityHashMap<>();
+        int unmatched = 0;
+        int overlapped = 0;
+        for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : handlerMapping.getHandlerMethods().entrySet()) {
+            Map<String, PatternPermission> patterns = byMethod.computeIfAbsent(entry.getValue().getMethod(), key -> new LinkedHashMap<>());
+            for (String pattern : entry.getKey().getPatternValues()) {
+                PolicyEnforcerConfig.PathConfig pathConfig = byPattern.get(PolicyEnforcerPathMerger.normalize(pattern));
+                if (pathConfig == null) {
+                    pathConfig = trie.match(pattern);
+                }
+                Permission permission = pathConfig != null ? permissions.get(pathConfig) : null;
+                OverlappingPaths overlapping = findOverlappingPaths(pattern, pathConfig, pathConfigs, permissions);
+                patterns.put(pattern, new PatternPermission(permission, overlapping));
+                if (overlapping != null) {
+                    overlapped++;
+                    log.debug("Configured paths overlapping pattern {} of handler {}, resolved on every request", pattern, entry.getValue());
+                } else if (pathConfig == null) {
+                    unmatched++;
+                    log.debug("No path configured for pattern {} of handler {}", pattern, entry.getValue());
+                }
+            }
+        }
+        log.info("Enforcement table built for {} handler methods, {} patterns without a configured path, {} patterns " +
+                "resolved on every request.", byMethod.size(), unmatched, overlapped);
+        return new HandlerPermissions(policyEnforcerConfig, byMethod);
+    }
+
+    /**
+     * @return the configured paths that some request of the pattern may match, with the one of the pattern, or
+     * {@code null} if no path other than the one of the pattern may match
+     */
+    private OverlappingPaths findOverlappingPaths(String pattern, PolicyEnforcerConfig.PathConfig patternPath,
+                                                  List<PolicyEnforcerConfig.PathConfig> pathConfigs,
+                                                  Map<PolicyEnforcerConfig.PathConfig, Permission> permissions) {
+        PathPattern handlerPattern;
+        try {
+            handlerPattern = PathPatternParser.defaultInstance.parse(pattern);
+        } catch (PatternParseException e) {
+            return null;
+        }
+        List<PolicyEnforcerConfig.PathConfig> overlapping = pathConfigs.stream()
+                .filter(pathConfig -> pathConfig != patternPath && pathConfig.getPath() != null)
+                .filter(pathConfig -> handlerPattern.matches(PathContainer.parsePath(pathConfig.getPath())))
+                .toList();
+        if (overlapping.isEmpty()) {
+            return null;
+        }
+
+        PathTrie.Builder<Permission> trieBuilder = PathTrie.builder();
+        List<PatternMatcher> unsupported = new ArrayList<>();
+        if (patternPath != null) {
+            trieBuilder.add(patternPath.getPath(), permissions.get(patternPath));
+        }
+        for (PolicyEnforcerConfig.PathConfig pathConfig : overlapping) {
+            if (!trieBuilder.add(pathConfig.getPath(), permissions.get(pathConfig))) {
+                try {
+                    unsupported.add(new PatternMatcher(PathPatternParser.defaultInstance.parse(pathConfig.getPath()),
+                            permissions.get(pathConfig)));
+                } catch (PatternParseException e) {
+                    log.warn("Path {} overlapping pattern {} cannot be parsed, ignored", pathConfig.getPath(), pattern);
+                }
+            }
+        }
+        return new OverlappingPaths(trieBuilder.build(), List.copyOf(unsupported));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(String.valueOf(value), StandardCharsets.UTF_8);
+    }
+
+    private record HandlerPermissions(PolicyEnforcerConfig source, Map<Method, Map<String, PatternPermission>> byMethod) {
+
+        /**
+         * @param pattern the best matching pattern, only read when the method is mapped on several patterns
+         * @return the permission of the pattern, or {@code null} if the method is not mapped
+         */
+        private PatternPermission get(Method method, Object pattern) {
+            Map<String, PatternPermission> patterns = byMethod.get(method);
+            if (patterns == null) {
+                return null;
+            }
+            if (patterns.size() == 1) {
+                return patterns.values().iterator().next();
+            }
+            return pattern != null ? patterns.get(pattern.toString()) : null;
+        }
+    }
+
+    /**
+     * The permission of a handler pattern, and the configured paths overlapping it, if any.
+     */
+    private record PatternPermission(Permission permission, OverlappingPaths overlapping) {
+
+        /**
+         * @param path the request path, relative to the context path
+         * @return the permission of the request, or {@code null} if its path is not configured
+         */
+        private Permission resolve(String path) {
+            if (overlapping == null) {
+                return permission;
+            }
+            Permission resolved = overlapping.match(path);
+            return resolved != null ? resolved : permission;
+        }
+    }
+
+    /**
+     * The configured paths that may match the requests of a handler pattern. The paths the trie does not support
+     * are matched as Spring path patterns, before the trie.
+     */
+    private record OverlappingPaths(PathTrie<Permission> trie, List<PatternMatcher> unsupported) {
+
+        private Permission match(String path) {
+            if (!unsupported.isEmpty()) {
+                PathContainer pathContainer = PathContainer.parsePath(path);
+                for (PatternMatcher matcher : unsupported) {
+                    if (matcher.pattern().matches(pathContainer)) {
+                        return matcher.permission();
+                    }
+                }
+            }
+            return trie.match(path);
+        }
+    }
+
+    private record PatternMatcher(PathPattern pattern, Permission permission) {
+    }
+
+    /**
+     * The resource and the scopes required by a path, with the method configurations indexed by http method.
+     */
+    private static final class Permission {
+        private final String path;
+        private final String id;
+        private final PolicyEnforcerConfig.EnforcementMode enforcementMode;
+        private final List<String> scopes;
+        private final Map<String, PolicyEnforcerConfig.MethodConfig> methods = new HashMap<>();
+
+        private Permission(PolicyEnforcerConfig.PathConfig pathConfig) {
+            this.path = pathConfig.getPath();
+            this.id = pathConfig.getId();
+            this.enforcementMode = pathConfig.getEnforcementMode();
+            this.scopes = pathConfig.getScopes() != null ? pathConfig.getScopes() : List.of();
+            pathConfig.getMethods().stream()
+                    .filter(method -> method.getMethod() != null)
+                    .forEach(method -> methods.putIfAbsent(method.getMethod().toUpperCase(Locale.ROOT), method));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package it.maconsulting.kcautoconf.enforcement;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.adapters.authorization.spi.HttpRequest;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Derives the tenant from the bearer token issuer. The whole issuer is matched against the issuers of the configured
+ * tenants, so a token issued by another host for a realm with the same name has no tenant.<br>
+ * The tenant of each token is cached by the {@code Authorization} header itself, so a cached token is resolved with
+ * a map lookup, without decoding or hashing it again. At most {@code maxTokens} tokens are cached: when full, the
+ * cache is cleared.
+ * <p>
+ * The token is not verified here: the tokens must be verified upstream, before the enforcer.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+final class IssuerTenantResolver implements TenantResolver {
+
+    private static final String BEARER = "Bearer ";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final int maxTokens;
+
+    private final Map<String, String> tenantsByIssuer;
+
+    private final Map<String, String> tenants;
+
+    IssuerTenantResolver(Map<String, String> tenantsByIssuer, int maxTokens) {
+        if (maxTokens <= 0) {
+            throw new IllegalArgumentException("The maximum number of tokens must be positive");
+        }
+        this.tenantsByIssuer = Map.copyOf(tenantsByIssuer);
+        this.maxTokens = maxTokens;
+        this.tenants = new ConcurrentHashMap<>(Math.min(maxTokens, 1024));
+    }
+
+    @Override
+    public String resolveTenant(HttpRequest request) {
+        String authorization = request.getHeader("Authorization");
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return null;
+        }
+        String tenant = tenants.get(authorization);
+        if (tenant != null) {
+            return tenant;
+        }
+        String issuer = readIssuer(authorization.substring(BEARER.length()).trim());
+        tenant = issuer != null ? tenantsByIssuer.get(issuer) : null;
+        if (tenant != null) {
+            if (tenants.size() >= maxTokens) {
+                log.debug("{} token tenants cached, cache cleared", maxTokens);
+                tenants.clear();
+            }
+            tenants.put(authorization, tenant);
+        } else if (issuer != null) {
+            log.debug("No tenant for issuer {}", issuer);
+        }
+        return tenant;
+    }
+
+    private String readIssuer(String token) {
+        int start = token.indexOf('.');
+        int end = token.indexOf('.', start + 1);
+        if (start == -1 || end == -1) {
+            return null;
+        }
+        try {
+            JsonNode issuer = objectMapper.readTree(Base64.getUrlDecoder().decode(token.substring(start + 1, end))).get("iss");
+            return issuer != null && issuer.isTextual() ? issuer.asText() : null;
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
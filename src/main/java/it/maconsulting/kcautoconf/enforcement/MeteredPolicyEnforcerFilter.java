@@ -0,0 +1,130 @@
+package it.maconsulting.kcautoconf.enforcement;
+
+import it.maconsulting.kcautoconf.metrics.AutoconfigurationMetrics;
+import it.maconsulting.kcautoconf.metrics.PathStatistics;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Filter wrapping the policy enforcer filter, that records the enforcement latency and outcome in the
+ * {@link AutoconfigurationMetrics}.<br>
+ * Only the time spent by the enforcer is recorded: the clock stops when the request is let go down the filter
+ * chain. Requests are tagged by the matched path pattern, so that the number of meters is bounded by the
+ * configured paths; requests not matching any pattern are tagged as {@value #UNMATCHED}. The pattern is looked up
+ * by the filter itself, with the same trie of the {@link PathMatchingConfigurationResolver}, so the enforcer may use
+ * any resolver.<br>
+ * With a {@link PathStatistics}, the hits of each path are counted too, with the time spent looking up the path and
+ * the time spent by the enforcer.
+ * <p>
+ * The lookup table is built on the first request, when the configuration has been completed by the
+ * autoconfiguration, and again after a new configuration is published, when the configuration is supplied.
+ * <pre>
+ * registrationBean.setFilter(new MeteredPolicyEnforcerFilter(new ServletPolicyEnforcerFilter(resolver), metrics, policyEnforcerConfig));
+ * </pre>
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public class MeteredPolicyEnforcerFilter implements Filter {
+
+    public static final String UNMATCHED = "UNMATCHED";
+
+    private final Filter policyEnforcerFilter;
+
+    private final AutoconfigurationMetrics metrics;
+
+    private final Supplier<PolicyEnforcerConfig> policyEnforcerConfig;
+
+    private final PathStatistics statistics;
+
+    private volatile PathLookup pathLookup;
+
+    /**
+     * @param policyEnforcerFilter the enforcer filter to measure
+     * @param metrics              where the enforcement is recorded
+     * @param policyEnforcerConfig the configuration holding the path patterns the requests are tagged with
+     */
+    public MeteredPolicyEnforcerFilter(Filter policyEnforcerFilter, AutoconfigurationMetrics metrics,
+                                       PolicyEnforcerConfig policyEnforcerConfig) {
+        this(policyEnforcerFilter, metrics, () -> policyEnforcerConfig, null);
+    }
+
+    /**
+     * @param policyEnforcerFilter the enforcer filter to measure
+     * @param metrics              where the enforcement is recorded
+     * @param policyEnforcerConfig supplies the current configuration, holding the path patterns the requests are
+     *                             tagged with
+     * @param statistics           where the hits of each path are counted, or {@code null}
+     */
+    public MeteredPolicyEnforcerFilter(Filter policyEnforcerFilter, AutoconfigurationMetrics metrics,
+                                       Supplier<PolicyEnforcerConfig> policyEnforcerConfig, PathStatistics statistics) {
+        this.policyEnforcerFilter = policyEnforcerFilter;
+        this.metrics = metrics;
+        this.policyEnforcerConfig = policyEnforcerConfig;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        policyEnforcerFilter.init(filterConfig);
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        long matchStart = System.nanoTime();
+        String path = resolvePath(request);
+        long start = System.nanoTime();
+        long[] grantedAt = {0};
+        try {
+            policyEnforcerFilter.doFilter(request, servletResponse, (grantedRequest, grantedResponse) -> {
+                grantedAt[0] = System.nanoTime();
+                chain.doFilter(grantedRequest, grantedResponse);
+            });
+        } finally {
+            boolean granted = grantedAt[0] != 0;
+            long duration = (granted ? grantedAt[0] : System.nanoTime()) - start;
+            metrics.recordEnforcement(path, request.getMethod(), granted, duration);
+            if (statistics != null) {
+                statistics.record(path, granted, start - matchStart, duration);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        policyEnforcerFilter.destroy();
+    }
+
+    private String resolvePath(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        PolicyEnforcerConfig.PathConfig pathConfig = getPathLookup().resolver().resolvePathConfig(path);
+        return pathConfig != null ? pathConfig.getPath() : UNMATCHED;
+    }
+
+    private PathLookup getPathLookup() {
+        PolicyEnforcerConfig config = policyEnforcerConfig.get();
+        PathLookup lookup = pathLookup;
+        if (lookup == null || lookup.source() != config) {
+            synchronized (this) {
+                lookup = pathLookup;
+                if (lookup == null || lookup.source() != config) {
+                    lookup = new PathLookup(config, new PathMatchingConfigurationResolver(config));
+                    pathLookup = lookup;
+                }
+            }
+        }
+        return lookup;
+    }
+
+    /**
+     * The resolver matching the paths of a configuration, with the configuration it was built from.
+     */
+    private record PathLookup(PolicyEnforcerConfig source, PathMatchingConfigurationResolver resolver) {
+    }
+}
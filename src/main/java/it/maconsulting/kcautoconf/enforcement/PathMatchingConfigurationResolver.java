@@ -0,0 +1,130 @@
+package it.maconsulting.kcautoconf.enforcement;
+
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.adapters.authorization.spi.ConfigurationResolver;
+import org.keycloak.adapters.authorization.spi.HttpRequest;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * {@link ConfigurationResolver} that matches the request path against a {@link PathTrie} built from the
+ * paths of the {@link PolicyEnforcerConfig}, in O(path depth) instead of checking every pattern in turn, for the
+ * filters wrapping the enforcer: the {@link DecisionCachingFilter} keys its decisions by the matched pattern, and
+ * the {@link MeteredPolicyEnforcerFilter} tags its meters with it.<br>
+ * The enforcer is always handed the same configuration, so that a single enforcer, with a single Keycloak client,
+ * serves all the paths (see {@link RefreshablePolicyEnforcerFilter}); it matches the request path itself, once per
+ * request uri thanks to its path cache ({@code path-cache} of the configuration).<br>
+ * Patterns the trie does not support (ie. {@code /files/*.html} or {@code /{name}.{ext}}) could be shadowed by a
+ * broader pattern of the trie (ie. a {@code /*} catch-all), so paths that could match one of them are not resolved
+ * by the trie.
+ * <p>
+ * The trie is built on the first request, when the configuration has been completed by the autoconfiguration.
+ * <pre>
+ * registrationBean.setFilter(new ServletPolicyEnforcerFilter(new PathMatchingConfigurationResolver(policyEnforcerConfig)));
+ * </pre>
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+public class PathMatchingConfigurationResolver implements ConfigurationResolver {
+
+    private static final Pattern WILDCARD = Pattern.compile("\\{[^/}]*}|\\*");
+
+    private final PolicyEnforcerConfig policyEnforcerConfig;
+
+    private volatile PathTable pathTable;
+
+    public PathMatchingConfigurationResolver(PolicyEnforcerConfig policyEnforcerConfig) {
+        this.policyEnforcerConfig = policyEnforcerConfig;
+    }
+
+    @Override
+    public PolicyEnforcerConfig resolve(HttpRequest request) {
+        return policyEnforcerConfig;
+    }
+
+    /**
+     * Resolves the path configuration matching the given path.
+     *
+     * @param path the request path, relative to the context path
+     * @return the matching path configuration, or {@code null} if the path does not match any pattern of the trie,
+     * or could match a pattern the trie does not support
+     */
+    public PolicyEnforcerConfig.PathConfig resolvePathConfig(String path) {
+        return getPathTable().match(path);
+    }
+
+    private PathTable getPathTable() {
+        PathTable table = pathTable;
+        if (table == null) {
+            synchronized (this) {
+                table = pathTable;
+                if (table == null) {
+                    table = buildPathTable();
+                    pathTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    private PathTable buildPathTable() {
+        PathTrie.Builder<PolicyEnforcerConfig.PathConfig> builder = PathTrie.builder();
+        List<String> unsupported = new ArrayList<>();
+        for (PolicyEnforcerConfig.PathConfig pathConfig : policyEnforcerConfig.getPaths()) {
+            if (pathConfig.getPath() != null && !builder.add(pathConfig.getPath(), pathConfig)) {
+                unsupported.add(pathConfig.getPath());
+            }
+        }
+        PathTrie<PolicyEnforcerConfig.PathConfig> trie = builder.build();
+        log.info("Path trie built with {} paths.", trie.size());
+        if (unsupported.isEmpty()) {
+            return new PathTable(trie, null);
+        }
+        log.info("Paths not resolved by the trie: {}", unsupported);
+        return new PathTable(trie, Pattern.compile(unsupported.stream()
+                .map(PathMatchingConfigurationResolver::toRegex)
+                .collect(Collectors.joining("|"))));
+    }
+
+    /**
+     * Converts a pattern to a regular expression matching at least the paths the enforcer matches with it:
+     * templates match a segment, and wildcards match anything.
+     */
+    private static String toRegex(String pattern) {
+        String path = pattern.startsWith("/") ? pattern : "/" + pattern;
+        StringBuilder regex = new StringBuilder("(?:");
+        Matcher matcher = WILDCARD.matcher(path);
+        int last = 0;
+        while (matcher.find()) {
+            if (matcher.start() > last) {
+                regex.append(Pattern.quote(path.substring(last, matcher.start())));
+            }
+            regex.append(matcher.group().equals("*") ? ".*" : "[^/]+");
+            last = matcher.end();
+        }
+        if (last < path.length()) {
+            regex.append(Pattern.quote(path.substring(last)));
+        }
+        return regex.append("/?)").toString();
+    }
+
+    /**
+     * The trie, with the patterns it does not support, if any.
+     */
+    private record PathTable(PathTrie<PolicyEnforcerConfig.PathConfig> trie, Pattern unsupported) {
+
+        private PolicyEnforcerConfig.PathConfig match(String path) {
+            if (unsupported != null && unsupported.matcher(path).matches()) {
+                return null;
+            }
+            return trie.match(path);
+        }
+    }
+}
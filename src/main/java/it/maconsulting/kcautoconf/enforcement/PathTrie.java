@@ -0,0 +1,209 @@
+package it.maconsulting.kcautoconf.enforcement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable segment trie that resolves a request path against the path patterns of the policy enforcer
+ * configuration in O(path depth), instead of checking every pattern in turn.<br>
+ * Supported patterns are:
+ * <ul>
+ *     <li>literal segments: {@code /cars/search}</li>
+ *     <li>template segments, matching exactly one non empty segment: {@code /cars/{id}}</li>
+ *     <li>a trailing {@code /*}, matching the path itself and everything below it: {@code /cars/*}</li>
+ *     <li>a trailing segment prefix, matching every path that starts with it: {@code /configuration/export*}</li>
+ * </ul>
+ * When more than one pattern matches, literal segments win over templates, and the longest wildcard wins
+ * over the shorter ones. Patterns that are not supported (ie. {@code /files/*.html}) are not added:
+ * {@link Builder#add(String, Object)} returns {@code false} and the caller is expected to fall back to the
+ * enforcer's own matching.
+ *
+ * @param <T> the type of the values bound to the patterns
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public final class PathTrie<T> {
+
+    private static final Pattern TEMPLATE_SEGMENT = Pattern.compile("\\{[^/{}*]+}");
+
+    private final Node<T> root;
+    private final int size;
+
+    private PathTrie(Node<T> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * @return the number of patterns held by the trie
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Resolves the value bound to the most specific pattern matching the path.
+     *
+     * @param path the request path, relative to the context path
+     * @return the matching value, or {@code null} when no pattern matches
+     */
+    public T match(String path) {
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        }
+        int length = path.length();
+        if (length > 1 && path.charAt(length - 1) == '/') {
+            length--;
+        }
+        int start = path.charAt(0) == '/' ? 1 : 0;
+        return match(root, path, start, length);
+    }
+
+    private T match(Node<T> node, String path, int start, int length) {
+        if (start >= length) {
+            return node.value != null ? node.value : node.anyDescendant;
+        }
+        int end = path.indexOf('/', start);
+        if (end == -1 || end > length) {
+            end = length;
+        }
+        int next = end + 1;
+
+        Node<T> literal = node.literals.get(path.substring(start, end));
+        if (literal != null) {
+            T value = match(literal, path, next, length);
+            if (value != null) {
+                return value;
+            }
+        }
+        if (node.template != null && end > start) {
+            T value = match(node.template, path, next, length);
+            if (value != null) {
+                return value;
+            }
+        }
+        for (Prefix<T> prefix : node.prefixes) {
+            if (path.startsWith(prefix.prefix, start)) {
+                return prefix.value;
+            }
+        }
+        return node.anyDescendant;
+    }
+
+    /**
+     * Collects the patterns and builds the immutable trie. The first value bound to a pattern wins,
+     * as it happens with the linear lookup of the enforcer.
+     *
+     * @param <T> the type of the values bound to the patterns
+     */
+    public static final class Builder<T> {
+
+        private final MutableNode<T> root = new MutableNode<>();
+        private int size;
+
+        private Builder() {
+        }
+
+        /**
+         * @param pattern the path pattern
+         * @param value   the value bound to the pattern
+         * @return {@code true} if the pattern was added, {@code false} if it is not supported by the trie
+         */
+        public boolean add(String pattern, T value) {
+            if (pattern == null) {
+                return false;
+            }
+            String normalized = pattern.startsWith("/") ? pattern.substring(1) : pattern;
+            if (normalized.endsWith("/")) {
+                normalized = normalized.substring(0, normalized.length() - 1);
+            }
+            String[] segments = normalized.isEmpty() ? new String[0] : normalized.split("/", -1);
+
+            MutableNode<T> node = root;
+            for (int i = 0; i < segments.length; i++) {
+                String segment = segments[i];
+                boolean last = i == segments.length - 1;
+                if (last && segment.equals("*")) {
+                    if (node.anyDescendant == null) {
+                        node.anyDescendant = value;
+                    }
+                    size++;
+                    return true;
+                }
+                if (last && segment.indexOf('*') == segment.length() - 1 && segment.indexOf('{') == -1) {
+                    node.prefixes.add(new Prefix<>(segment.substring(0, segment.length() - 1), value));
+                    size++;
+                    return true;
+                }
+                if (TEMPLATE_SEGMENT.matcher(segment).matches()) {
+                    if (node.template == null) {
+                        node.template = new MutableNode<>();
+                    }
+                    node = node.template;
+                } else if (segment.indexOf('{') == -1 && segment.indexOf('*') == -1) {
+                    node = node.literals.computeIfAbsent(segment, k -> new MutableNode<>());
+                } else {
+                    return false;
+                }
+            }
+            if (node.value == null) {
+                node.value = value;
+            }
+            size++;
+            return true;
+        }
+
+        public PathTrie<T> build() {
+            return new PathTrie<>(root.freeze(), size);
+        }
+    }
+
+    private static final class Node<T> {
+        private final Map<String, Node<T>> literals;
+        private final Node<T> template;
+        private final List<Prefix<T>> prefixes;
+        private final T value;
+        private final T anyDescendant;
+
+        private Node(Map<String, Node<T>> literals, Node<T> template, List<Prefix<T>> prefixes, T value, T anyDescendant) {
+            this.literals = literals;
+            this.template = template;
+            this.prefixes = prefixes;
+            this.value = value;
+            this.anyDescendant = anyDescendant;
+        }
+    }
+
+    private static final class MutableNode<T> {
+        private final Map<String, MutableNode<T>> literals = new HashMap<>();
+        private MutableNode<T> template;
+        private final List<Prefix<T>> prefixes = new ArrayList<>();
+        private T value;
+        private T anyDescendant;
+
+        private Node<T> freeze() {
+            Map<String, Node<T>> frozenLiterals = new HashMap<>(literals.size() * 4 / 3 + 1);
+            literals.forEach((segment, child) -> frozenLiterals.put(segment, child.freeze()));
+            // the longest prefix is the most specific one
+            List<Prefix<T>> sortedPrefixes = new ArrayList<>(prefixes);
+            sortedPrefixes.sort((p1, p2) -> Integer.compare(p2.prefix.length(), p1.prefix.length()));
+            return new Node<>(
+                    frozenLiterals.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(frozenLiterals),
+                    template != null ? template.freeze() : null,
+                    List.copyOf(sortedPrefixes),
+                    value,
+                    anyDescendant);
+        }
+    }
+
+    private record Prefix<T>(String prefix, T value) {
+    }
+}
@@ -0,0 +1,255 @@
+package it.maconsulting.kcautoconf.enforcement;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.UriUtils;
+import org.springframework.web.util.pattern.PathPatternParser;
+import org.springframework.web.util.pattern.PatternParseException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Filter wrapping the policy enforcer filter, that lets the requests of the public paths (the ones whose
+ * enforcement is {@code DISABLED}, ie. annotated with {@code @PublicEndpoint}) go down the filter chain without
+ * reaching the enforcer, so that no token is read and no path is matched by the enforcer for them.<br>
+ * The public paths are looked up in a hash set of exact paths and in a list of prefixes, built from the
+ * {@code /*} and {@code *} terminated patterns. A prefix is only used when no enforced path can match a request under
+ * it, otherwise a more specific, enforced, path could be bypassed: the enforced paths are parsed as Spring path
+ * patterns, so {@code /{section}/admin} keeps {@code /public/*} from being bypassed, as well as {@code /public/admin}
+ * does. Public paths with templates (ie. {@code /users/{id}}) are not bypassed: the enforcer skips them as usual.
+ * <p>
+ * The public paths are matched against the decoded request path. Requests whose path could be routed elsewhere
+ * once normalized by the container, ie. holding {@code ..} or {@code .} segments, path parameters ({@code ;}),
+ * backslashes, repeated slashes, or encoded dots, slashes, backslashes and percent signs, are always left to the
+ * enforcer: {@code /public/../admin} must not be bypassed as a public path.
+ * <p>
+ * The lookup tables are built on the first request, when the configuration has been completed by the
+ * autoconfiguration, and again after a new configuration is published, when the configuration is supplied.
+ * <pre>
+ * registrationBean.setFilter(new PublicPathBypassFilter(new ServletPolicyEnforcerFilter(resolver), policyEnforcerConfig));
+ * </pre>
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+public class PublicPathBypassFilter implements Filter {
+
+    private static final String[] ENCODED_SEPARATORS = {"%2e", "%2f", "%5c", "%25", "%3b"};
+
+    private final Filter policyEnforcerFilter;
+
+    private final Supplier<PolicyEnforcerConfig> policyEnforcerConfig;
+
+    private volatile PublicPaths publicPaths;
+
+    /**
+     * @param policyEnforcerFilter the enforcer filter, receiving the requests of the other paths
+     * @param policyEnforcerConfig the configuration holding the public paths
+     */
+    public PublicPathBypassFilter(Filter policyEnforcerFilter, PolicyEnforcerConfig policyEnforcerConfig) {
+        this(policyEnforcerFilter, () -> policyEnforcerConfig);
+    }
+
+    /**
+     * @param policyEnforcerFilter the enforcer filter, receiving the requests of the other paths
+     * @param policyEnforcerConfig supplies the current configuration
+     */
+    public PublicPathBypassFilter(Filter policyEnforcerFilter, Supplier<PolicyEnforcerConfig> policyEnforcerConfig) {
+        this.policyEnforcerFilter = policyEnforcerFilter;
+        this.policyEnforcerConfig = policyEnforcerConfig;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        policyEnforcerFilter.init(filterConfig);
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (isPublic(path)) {
+            log.trace("Public path {}, enforcer bypassed", path);
+            chain.doFilter(request, response);
+            return;
+        }
+        policyEnforcerFilter.doFilter(request, response, chain);
+    }
+
+    @Override
+    public void destroy() {
+        policyEnforcerFilter.destroy();
+    }
+
+    /**
+     * @param path the raw, not decoded, request path, relative to the context path
+     * @return whether the requests of the path bypass the enforcer
+     */
+    public boolean isPublic(String path) {
+        String decodedPath = decode(path);
+        return decodedPath != null && getPublicPaths().matches(decodedPath);
+    }
+
+    /**
+     * @return the decoded path, or {@code null} if the path is not in its normalized form
+     */
+    private static String decode(String path) {
+        if (path.isEmpty() || path.charAt(0) != '/' || path.indexOf(';') != -1 || path.indexOf('\\') != -1
+                || path.contains("//")) {
+            return null;
+        }
+        String lowerCasePath = path.toLowerCase(Locale.ROOT);
+        for (String encoded : ENCODED_SEPARATORS) {
+            if (lowerCasePath.contains(encoded)) {
+                return null;
+            }
+        }
+        String decodedPath;
+        try {
+            decodedPath = path.indexOf('%') != -1 ? UriUtils.decode(path, StandardCharsets.UTF_8) : path;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (decodedPath.indexOf('\0') != -1) {
+            return null;
+        }
+        for (String segment : decodedPath.split("/", -1)) {
+            if (segment.equals(".") || segment.equals("..")) {
+                return null;
+            }
+        }
+        return decodedPath;
+    }
+
+    private PublicPaths getPublicPaths() {
+        PolicyEnforcerConfig config = policyEnforcerConfig.get();
+        PublicPaths paths = publicPaths;
+        if (paths == null || paths.source != config) {
+            synchronized (this) {
+                paths = publicPaths;
+                if (paths == null || paths.source != config) {
+                    paths = buildPublicPaths(config);
+                    publicPaths = paths;
+                }
+            }
+        }
+        return paths;
+    }
+
+    private PublicPaths buildPublicPaths(PolicyEnforcerConfig policyEnforcerConfig) {
+        List<PolicyEnforcerConfig.PathConfig> pathConfigs;
+        synchronized (policyEnforcerConfig) {
+            pathConfigs = new ArrayList<>(policyEnforcerConfig.getPaths());
+        }
+        Set<String> exactPaths = new HashSet<>();
+        List<String> prefixes = new ArrayList<>();
+        List<String> enforcedPaths = new ArrayList<>();
+        for (PolicyEnforcerConfig.PathConfig pathConfig : pathConfigs) {
+            String path = pathConfig.getPath();
+            if (path == null) {
+                continue;
+            }
+            if (pathConfig.getEnforcementMode() != PolicyEnforcerConfig.EnforcementMode.DISABLED) {
+                enforcedPaths.add(path);
+            } else if (path.endsWith("/*") && isLiteral(path.substring(0, path.length() - 2))) {
+                // as for the enforcer, /public/* matches /public too
+                exactPaths.add(path.substring(0, path.length() - 2));
+                prefixes.add(path.substring(0, path.length() - 1));
+            } else if (path.endsWith("*") && isLiteral(path.substring(0, path.length() - 1))) {
+                prefixes.add(path.substring(0, path.length() - 1));
+            } else if (isLiteral(path)) {
+                exactPaths.add(path);
+            }
+        }
+
+        List<String> shadowed = prefixes.stream()
+                .filter(prefix -> enforcedPaths.stream().anyMatch(path -> mayMatchUnder(path, prefix)))
+                .toList();
+        prefixes.removeAll(shadowed);
+        if (!shadowed.isEmpty()) {
+            log.info("Public prefixes holding enforced paths, left to the policy enforcer: {}", shadowed);
+        }
+        prefixes.sort(Comparator.comparingInt(String::length).reversed());
+        log.info("Enforcer bypassed for {} public paths and {} public prefixes.", exactPaths.size(), prefixes.size());
+        return new PublicPaths(policyEnforcerConfig, Set.copyOf(exactPaths), prefixes.toArray(String[]::new));
+    }
+
+    /**
+     * Whether the enforced pattern may match a request path starting with the prefix, checked segment by segment:
+     * the literal segments must be equal, the other ones must match the segment of the prefix, and the patterns
+     * spanning multiple segments ({@code **} and {@code {*name}}) match everything after them. A pattern that
+     * cannot be parsed is assumed to match.
+     *
+     * @param enforcedPath the enforced pattern
+     * @param prefix       the public prefix, ie. {@code /public/} or {@code /assets}
+     */
+    private static boolean mayMatchUnder(String enforcedPath, String prefix) {
+        try {
+            PathPatternParser.defaultInstance.parse(enforcedPath);
+        } catch (PatternParseException e) {
+            return true;
+        }
+        String[] segments = enforcedPath.split("/", -1);
+        String[] prefixSegments = prefix.split("/", -1);
+        int last = prefixSegments.length - 1;
+        for (int i = 0; i <= last; i++) {
+            if (i >= segments.length) {
+                return false;
+            }
+            String segment = segments[i];
+            if (segment.equals("**") || segment.startsWith("{*")) {
+                return true;
+            }
+            if (i == last) {
+                // the last segment of the prefix is the start of a request segment
+                return !isLiteralSegment(segment) || segment.startsWith(prefixSegments[i]);
+            }
+            if (!segmentMatches(segment, prefixSegments[i])) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean segmentMatches(String segment, String literal) {
+        if (isLiteralSegment(segment)) {
+            return segment.equals(literal);
+        }
+        try {
+            return PathPatternParser.defaultInstance.parse("/" + segment).matches(PathContainer.parsePath("/" + literal));
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private static boolean isLiteralSegment(String segment) {
+        return segment.indexOf('{') == -1 && segment.indexOf('*') == -1 && segment.indexOf('?') == -1;
+    }
+
+    private static boolean isLiteral(String path) {
+        return !path.isEmpty() && path.indexOf('{') == -1 && path.indexOf('*') == -1;
+    }
+
+    private record PublicPaths(PolicyEnforcerConfig source, Set<String> exactPaths, String[] prefixes) {
+
+        private boolean matches(String path) {
+            if (exactPaths.contains(path)) {
+                return true;
+            }
+            for (String prefix : prefixes) {
+                if (path.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package it.maconsulting.kcautoconf.enforcement;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Filter wrapping the policy enforcer filter, that holds the requests until the paths are published by the
+ * deferred autoconfiguration.<br>
+ * Requests arriving before the publication wait up to {@code maxWait}; if the paths are still not published,
+ * or if the autoconfiguration failed, they are answered with {@code 503 Service Unavailable} and a
+ * {@code Retry-After} header. A zero {@code maxWait} rejects them straight away.
+ * <pre>
+ * registrationBean.setFilter(new PublicationGateFilter(new ServletPolicyEnforcerFilter(resolver),
+ *         autoconfigurationService.getPublication(), Duration.ofSeconds(2), Duration.ofSeconds(1)));
+ * </pre>
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+public class PublicationGateFilter implements Filter {
+
+    private final Filter policyEnforcerFilter;
+
+    private final CompletableFuture<?> publication;
+
+    private final Duration maxWait;
+
+    private final Duration retryAfter;
+
+    /**
+     * @param policyEnforcerFilter the enforcer filter
+     * @param publication          the publication of the paths, ie. {@code AutoconfigurationService#getPublication()}
+     * @param maxWait              how long a request waits for the publication
+     * @param retryAfter           the {@code Retry-After} sent along with the {@code 503}
+     */
+    public PublicationGateFilter(Filter policyEnforcerFilter, CompletableFuture<?> publication,
+                                 Duration maxWait, Duration retryAfter) {
+        this.policyEnforcerFilter = policyEnforcerFilter;
+        this.publication = publication;
+        this.maxWait = maxWait;
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        policyEnforcerFilter.init(filterConfig);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (publication.isDone() && !publication.isCompletedExceptionally() || awaitPublication()) {
+            policyEnforcerFilter.doFilter(request, response, chain);
+            return;
+        }
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        httpResponse.setHeader("Retry-After", String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+    @Override
+    public void destroy() {
+        policyEnforcerFilter.destroy();
+    }
+
+    private boolean awaitPublication() {
+        if (maxWait.isZero() || maxWait.isNegative()) {
+            return publication.isDone() && !publication.isCompletedExceptionally();
+        }
+        try {
+            publication.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            log.debug("Paths not published yet, request rejected: {}", e.toString());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package it.maconsulting.kcautoconf.enforcement;
+
+import jakarta.servlet.*;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Filter enforcing the requests with the last published configuration, ie. the one of
+ * {@code AutoconfigurationService#getEnforcerConfiguration()}.<br>
+ * {@code ServletPolicyEnforcerFilter} keeps an enforcer, with its own Keycloak client, for every configuration
+ * instance it resolves, and never releases them. So a new enforcer filter is created, by the given factory, for
+ * each published configuration, and the previous one is released, with all its enforcers: it is destroyed as soon as
+ * the requests it is enforcing are completed. At any time, the enforcers of at most one configuration are kept, plus
+ * the ones of the previous configurations still serving in-flight requests.
+ * <pre>
+ * registrationBean.setFilter(new RefreshablePolicyEnforcerFilter(autoconfigurationService::getEnforcerConfiguration,
+ *         config -&gt; new ServletPolicyEnforcerFilter(new PathMatchingConfigurationResolver(config))));
+ * </pre>
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+public class RefreshablePolicyEnforcerFilter implements Filter {
+
+    private final Supplier<PolicyEnforcerConfig> policyEnforcerConfig;
+
+    private final Function<PolicyEnforcerConfig, Filter> enforcerFilterFactory;
+
+    private volatile FilterConfig filterConfig;
+
+    private volatile EnforcerFilter enforcerFilter;
+
+    /**
+     * @param policyEnforcerConfig  supplies the current configuration
+     * @param enforcerFilterFactory creates the enforcer filter of a configuration
+     */
+    public RefreshablePolicyEnforcerFilter(Supplier<PolicyEnforcerConfig> policyEnforcerConfig,
+                                           Function<PolicyEnforcerConfig, Filter> enforcerFilterFactory) {
+        this.policyEnforcerConfig = policyEnforcerConfig;
+        this.enforcerFilterFactory = enforcerFilterFactory;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        this.filterConfig = filterConfig;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        EnforcerFilter current = acquire();
+        try {
+            current.filter.doFilter(request, response, chain);
+        } finally {
+            current.release();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        EnforcerFilter current;
+        synchronized (this) {
+            current = enforcerFilter;
+            enforcerFilter = null;
+        }
+        if (current != null) {
+            current.release();
+        }
+    }
+
+    private EnforcerFilter acquire() throws ServletException {
+        while (true) {
+            EnforcerFilter current = getEnforcerFilter(policyEnforcerConfig.get());
+            if (current.tryAcquire()) {
+                return current;
+            }
+        }
+    }
+
+    private EnforcerFilter getEnforcerFilter(PolicyEnforcerConfig config) throws ServletException {
+        EnforcerFilter current = enforcerFilter;
+        if (current != null && current.source == config) {
+            return current;
+        }
+        EnforcerFilter previous;
+        synchronized (this) {
+            current = enforcerFilter;
+            if (current != null && current.source == config) {
+                return current;
+            }
+            Filter filter = enforcerFilterFactory.apply(config);
+            if (filterConfig != null) {
+                filter.init(filterConfig);
+            }
+            previous = current;
+            current = new EnforcerFilter(config, filter);
+            enforcerFilter = current;
+        }
+        if (previous != null) {
+            log.info("Enforcer configuration replaced, previous enforcers released.");
+            previous.release();
+        }
+        return current;
+    }
+
+    /**
+     * An enforcer filter, with the configuration it was created for. It counts its users: the requests it is
+     * enforcing, plus one while it is the current filter, and it is destroyed when the last user releases it.
+     */
+    private static final class EnforcerFilter {
+        private final PolicyEnforcerConfig source;
+        private final Filter filter;
+        private final AtomicInteger users = new AtomicInteger(1);
+
+        private EnforcerFilter(PolicyEnforcerConfig source, Filter filter) {
+            this.source = source;
+            this.filter = filter;
+        }
+
+        private boolean tryAcquire() {
+            int current;
+            do {
+                current = users.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!users.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private void release() {
+            if (users.decrementAndGet() == 0) {
+                filter.destroy();
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package it.maconsulting.kcautoconf.enforcement;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.adapters.authorization.spi.ConfigurationResolver;
+import org.keycloak.adapters.authorization.spi.HttpRequest;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ConfigurationResolver} serving several Keycloak realms from the same application.<br>
+ * The tenant of the request is derived by a {@link TenantResolver} (ie. from the host, a header or the token
+ * issuer). The configuration of each tenant is built once, on its first request, from the shared configuration
+ * holding the discovered paths and the connection settings of the tenant (realm, server url, client and
+ * credentials), then it is cached. Requests of a cached tenant are resolved with a map lookup.
+ * <p>
+ * Requests without a tenant, or with a tenant that has no settings, are resolved with the shared configuration.
+ * Each tenant configuration gets its own enforcer (see {@link RefreshablePolicyEnforcerFilter}), so tenant
+ * configurations are never evicted: at most {@code maxTenants} are cached, and further tenants are resolved
+ * with the shared configuration.
+ * <pre>
+ * registrationBean.setFilter(new ServletPolicyEnforcerFilter(new TenantConfigurationResolver(policyEnforcerConfig,
+ *         tenants::get, TenantResolver.issuer(tenantsByIssuer), 64)));
+ * </pre>
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+public class TenantConfigurationResolver implements ConfigurationResolver {
+
+    private final PolicyEnforcerConfig policyEnforcerConfig;
+
+    private final TenantSettingsProvider tenantSettings;
+
+    private final TenantResolver tenantResolver;
+
+    private final int maxTenants;
+
+    private final Map<String, PolicyEnforcerConfig> tenantConfigs;
+
+    private final AtomicInteger cachedTenants = new AtomicInteger();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @param policyEnforcerConfig the shared configuration, holding the discovered paths
+     * @param tenantSettings       the connection settings of each tenant
+     * @param tenantResolver       derives the tenant of the requests
+     * @param maxTenants           the maximum number of cached tenant configurations
+     */
+    public TenantConfigurationResolver(PolicyEnforcerConfig policyEnforcerConfig, TenantSettingsProvider tenantSettings,
+                                       TenantResolver tenantResolver, int maxTenants) {
+        if (maxTenants <= 0) {
+            throw new IllegalArgumentException("The maximum number of tenants must be positive");
+        }
+        this.policyEnforcerConfig = policyEnforcerConfig;
+        this.tenantSettings = tenantSettings;
+        this.tenantResolver = tenantResolver;
+        this.maxTenants = maxTenants;
+        this.tenantConfigs = new ConcurrentHashMap<>(Math.min(maxTenants, 64));
+    }
+
+    @Override
+    public PolicyEnforcerConfig resolve(HttpRequest request) {
+        String tenant = tenantResolver.resolveTenant(request);
+        if (tenant == null) {
+            return policyEnforcerConfig;
+        }
+        PolicyEnforcerConfig config = tenantConfigs.get(tenant);
+        return config != null ? config : resolveUncached(tenant);
+    }
+
+    /**
+     * Creates a resolver with the same tenants settings, for another shared configuration, ie. for a refreshed
+     * configuration handed to a {@link RefreshablePolicyEnforcerFilter}. The tenant configurations are not shared
+     * with this resolver.
+     *
+     * @param policyEnforcerConfig the shared configuration, holding the discovered paths
+     * @return the new resolver
+     */
+    public TenantConfigurationResolver withConfiguration(PolicyEnforcerConfig policyEnforcerConfig) {
+        return new TenantConfigurationResolver(policyEnforcerConfig, tenantSettings, tenantResolver, maxTenants);
+    }
+
+    /**
+     * @return the number of cached tenant configurations
+     */
+    public int size() {
+        return tenantConfigs.size();
+    }
+
+    private PolicyEnforcerConfig resolveUncached(String tenant) {
+        PolicyEnforcerConfig settings = tenantSettings.getSettings(tenant);
+        if (settings == null) {
+            log.debug("No settings for tenant {}, resolved with the shared configuration", tenant);
+            return policyEnforcerConfig;
+        }
+        PolicyEnforcerConfig config = tenantConfigs.computeIfAbsent(tenant, key -> {
+            // configurations are never evicted, so a slot taken here is never given back
+            if (cachedTenants.incrementAndGet() > maxTenants) {
+                cachedTenants.decrementAndGet();
+                return null;
+            }
+            try {
+                return buildTenantConfig(key, settings);
+            } catch (RuntimeException e) {
+                cachedTenants.decrementAndGet();
+                throw e;
+            }
+        });
+        if (config == null) {
+            log.warn("{} tenant configurations already cached, tenant {} resolved with the shared configuration", maxTenants, tenant);
+            return policyEnforcerConfig;
+        }
+        return config;
+    }
+
+    private PolicyEnforcerConfig buildTenantConfig(String tenant, PolicyEnforcerConfig settings) {
+        PolicyEnforcerConfig config;
+        synchronized (policyEnforcerConfig) {
+            config = objectMapper.convertValue(policyEnforcerConfig, PolicyEnforcerConfig.class);
+        }
+        if (settings.getRealm() != null) {
+            config.setRealm(settings.getRealm());
+        }
+        if (settings.getAuthServerUrl() != null) {
+            config.setAuthServerUrl(settings.getAuthServerUrl());
+        }
+        if (settings.getResource() != null) {
+            config.setResource(settings.getResource());
+        }
+        if (settings.getCredentials() != null && !settings.getCredentials().isEmpty()) {
+            config.setCredentials(settings.getCredentials());
+        }
+        // the resource ids belong to the shared realm
+        config.getPaths().forEach(path -> path.setId(null));
+        log.info("Enforcer configuration of tenant {} built, realm {}", tenant, config.getRealm());
+        return config;
+    }
+
+    /**
+     * Provides the connection settings of the tenants. Only the realm, the server url, the client and its
+     * credentials are read from the returned configuration.
+     */
+    @FunctionalInterface
+    public interface TenantSettingsProvider {
+
+        /**
+         * @param tenant the tenant
+         * @return the connection settings of the tenant, or {@code null} if the tenant is unknown
+         */
+        PolicyEnforcerConfig getSettings(String tenant);
+    }
+}
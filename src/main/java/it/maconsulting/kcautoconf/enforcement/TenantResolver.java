@@ -0,0 +1,56 @@
+package it.maconsulting.kcautoconf.enforcement;
+
+import org.keycloak.adapters.authorization.spi.HttpRequest;
+
+import java.util.Map;
+
+/**
+ * Derives the tenant of a request, used by the {@link TenantConfigurationResolver} to pick the tenant enforcer
+ * configuration.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@FunctionalInterface
+public interface TenantResolver {
+
+    /**
+     * @param request the request
+     * @return the tenant of the request, or {@code null} if it cannot be derived
+     */
+    String resolveTenant(HttpRequest request);
+
+    /**
+     * @return a resolver using the host name of the request, without the port
+     */
+    static TenantResolver host() {
+        return request -> {
+            String host = request.getHeader("Host");
+            if (host == null) {
+                return null;
+            }
+            int port = host.lastIndexOf(':');
+            return port > host.lastIndexOf(']') ? host.substring(0, port) : host;
+        };
+    }
+
+    /**
+     * @param name the header holding the tenant
+     * @return a resolver using the value of the header
+     */
+    static TenantResolver header(String name) {
+        return request -> request.getHeader(name);
+    }
+
+    /**
+     * The token is not verified here, so the tokens must be verified upstream, before the enforcer: an unverified
+     * issuer lets the client pick the tenant whose configuration enforces its request. The tenant of each token is
+     * cached, for at most 1024 tokens.
+     *
+     * @param tenantsByIssuer the tenant of each issuer, ie. {@code acme} for {@code https://sso.example.com/realms/acme}
+     * @return a resolver matching the whole bearer token issuer against the given issuers
+     */
+    static TenantResolver issuer(Map<String, String> tenantsByIssuer) {
+        return new IssuerTenantResolver(tenantsByIssuer, 1024);
+    }
+}
@@ -0,0 +1,32 @@
+package it.maconsulting.kcautoconf.events;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when the discovered paths have been added to the {@code PolicyEnforcerConfig}, and the enforcer
+ * can serve the requests. It is never published before the application context is refreshed, so that the
+ * {@code @EventListener} methods receive it.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Getter
+public class PathConfigurationsPublishedEvent extends ApplicationEvent {
+
+    /**
+     * The number of published paths
+     */
+    private final int pathCount;
+
+    /**
+     * How long the autoconfiguration took, in milliseconds
+     */
+    private final long durationMillis;
+
+    public PathConfigurationsPublishedEvent(Object source, int pathCount, long durationMillis) {
+        super(source);
+        this.pathCount = pathCount;
+        this.durationMillis = durationMillis;
+    }
+}
@@ -0,0 +1,38 @@
+package it.maconsulting.kcautoconf.metrics;
+
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+
+import java.util.List;
+
+/**
+ * Collects the metrics of the autoconfiguration and of the enforcement.<br>
+ * The default implementation does nothing: the Micrometer one is registered when a {@code MeterRegistry}
+ * is available.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public interface AutoconfigurationMetrics {
+
+    AutoconfigurationMetrics NOOP = new AutoconfigurationMetrics() {
+    };
+
+    /**
+     * Records the discovery of the path configurations.
+     * @param source where the paths come from, {@code index} or {@code controllers}
+     * @param durationNanos how long the discovery took
+     * @param paths the discovered paths
+     */
+    default void recordScan(String source, long durationNanos, List<PathConfiguration> paths) {
+    }
+
+    /**
+     * Records an enforcement decision.
+     * @param path the matched path pattern, never the raw request path
+     * @param method the http method
+     * @param granted whether the request was granted
+     * @param durationNanos how long the enforcement took
+     */
+    default void recordEnforcement(String path, String method, boolean granted, long durationNanos) {
+    }
+}
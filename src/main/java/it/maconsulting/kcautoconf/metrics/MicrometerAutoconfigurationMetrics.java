@@ -0,0 +1,103 @@
+package it.maconsulting.kcautoconf.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.maconsulting.kcautoconf.model.MethodConfiguration;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer implementation of the {@link AutoconfigurationMetrics}:
+ * <ul>
+ *     <li>{@code kcautoconf.scan}: timer of the paths discovery, tagged by source ({@code index} or {@code controllers})</li>
+ *     <li>{@code kcautoconf.paths}, {@code kcautoconf.methods}, {@code kcautoconf.scopes}: gauges of the
+ *     discovered paths, http methods and distinct scopes</li>
+ *     <li>{@code kcautoconf.paths.duplicates}: gauge of the http methods mapped more than once on the same path</li>
+ *     <li>{@code kcautoconf.enforcement}: timer of the enforcement, tagged by path pattern, http method and outcome</li>
+ * </ul>
+ * The gauges report the last discovery, so that discovering the paths again (ie. on every export or refresh) does not
+ * add up.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public class MicrometerAutoconfigurationMetrics implements AutoconfigurationMetrics {
+
+    private final MeterRegistry registry;
+
+    private final AtomicInteger paths = new AtomicInteger();
+
+    private final AtomicInteger methods = new AtomicInteger();
+
+    private final AtomicInteger scopes = new AtomicInteger();
+
+    private final AtomicInteger duplicates = new AtomicInteger();
+
+    private final Map<EnforcementKey, Timer> enforcementTimers = new ConcurrentHashMap<>();
+
+    public MicrometerAutoconfigurationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("kcautoconf.paths", paths, AtomicInteger::get)
+                .description("Discovered paths")
+                .register(registry);
+        Gauge.builder("kcautoconf.methods", methods, AtomicInteger::get)
+                .description("Discovered http methods, over all the paths")
+                .register(registry);
+        Gauge.builder("kcautoconf.scopes", scopes, AtomicInteger::get)
+                .description("Distinct authorization scopes")
+                .register(registry);
+        Gauge.builder("kcautoconf.paths.duplicates", duplicates, AtomicInteger::get)
+                .description("Http methods mapped more than once on the same path")
+                .register(registry);
+    }
+
+    @Override
+    public void recordScan(String source, long durationNanos, List<PathConfiguration> discovered) {
+        Timer.builder("kcautoconf.scan")
+                .description("Discovery of the paths to enforce")
+                .tag("source", source)
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+
+        int methodCount = 0;
+        int duplicateCount = 0;
+        Set<String> distinctScopes = new HashSet<>();
+        for (PathConfiguration path : discovered) {
+            Set<String> verbs = new HashSet<>();
+            for (MethodConfiguration method : path.getMethods()) {
+                methodCount++;
+                if (!verbs.add(method.getMethod())) {
+                    duplicateCount++;
+                }
+                distinctScopes.addAll(method.getScopes());
+            }
+        }
+        paths.set(discovered.size());
+        methods.set(methodCount);
+        scopes.set(distinctScopes.size());
+        duplicates.set(duplicateCount);
+    }
+
+    @Override
+    public void recordEnforcement(String path, String method, boolean granted, long durationNanos) {
+        enforcementTimers.computeIfAbsent(new EnforcementKey(path, method, granted), key ->
+                        Timer.builder("kcautoconf.enforcement")
+                                .description("Policy enforcement, excluding the request processing")
+                                .tag("path", key.path())
+                                .tag("method", key.method())
+                                .tag("outcome", key.granted() ? "granted" : "denied")
+                                .register(registry))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private record EnforcementKey(String path, String method, boolean granted) {
+    }
+}
@@ -0,0 +1,82 @@
+package it.maconsulting.kcautoconf.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live statistics of the enforced requests, by matched path pattern.<br>
+ * The counters are {@link LongAdder}s, so that recording from many request threads does not contend on a single
+ * memory location. The number of entries is bounded by the configured paths, since requests are recorded by path
+ * pattern and never by raw request path.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public class PathStatistics {
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Records an enforced request.
+     *
+     * @param path          the matched path pattern
+     * @param granted       whether the request was granted
+     * @param matchNanos    how long the path matching took
+     * @param decisionNanos how long the enforcement took, apart from the path matching
+     */
+    public void record(String path, boolean granted, long matchNanos, long decisionNanos) {
+        Counters pathCounters = counters.get(path);
+        if (pathCounters == null) {
+            pathCounters = counters.computeIfAbsent(path, key -> new Counters());
+        }
+        (granted ? pathCounters.granted : pathCounters.denied).increment();
+        pathCounters.matchNanos.add(matchNanos);
+        pathCounters.decisionNanos.add(decisionNanos);
+    }
+
+    /**
+     * @param path the path pattern
+     * @return the statistics of the path, all zeroes if it has never been requested
+     */
+    public Snapshot get(String path) {
+        Counters pathCounters = counters.get(path);
+        return pathCounters != null ? pathCounters.snapshot() : new Snapshot(0, 0, 0, 0);
+    }
+
+    public void reset() {
+        counters.clear();
+    }
+
+    /**
+     * @param granted       the granted requests
+     * @param denied        the denied requests
+     * @param matchNanos    the total time spent matching the path
+     * @param decisionNanos the total time spent by the enforcer
+     */
+    public record Snapshot(long granted, long denied, long matchNanos, long decisionNanos) {
+
+        public long hits() {
+            return granted + denied;
+        }
+
+        public double averageMatchMicros() {
+            return hits() == 0 ? 0 : matchNanos / 1000.0 / hits();
+        }
+
+        public double averageDecisionMicros() {
+            return hits() == 0 ? 0 : decisionNanos / 1000.0 / hits();
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder granted = new LongAdder();
+        private final LongAdder denied = new LongAdder();
+        private final LongAdder matchNanos = new LongAdder();
+        private final LongAdder decisionNanos = new LongAdder();
+
+        private Snapshot snapshot() {
+            return new Snapshot(granted.sum(), denied.sum(), matchNanos.sum(), decisionNanos.sum());
+        }
+    }
+}
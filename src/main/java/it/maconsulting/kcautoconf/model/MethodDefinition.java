@@ -0,0 +1,23 @@
+package it.maconsulting.kcautoconf.model;
+
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The http methods of a path requiring the same scopes. The scopes are shared by all the methods of the group.
+ *
+ * @param methods the http methods, backed by an {@link EnumSet}
+ * @param scopes  the required scopes
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public record MethodDefinition(Set<RequestMethod> methods, List<String> scopes) {
+
+    public MethodDefinition(EnumSet<RequestMethod> methods, List<String> scopes) {
+        this(Collections.unmodifiableSet(methods), scopes == null || scopes.isEmpty() ? List.of() : List.copyOf(scopes));
+    }
+}
@@ -0,0 +1,16 @@
+package it.maconsulting.kcautoconf.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * The Swagger operation metadata of a controller method, resolved once and shared by all the paths and
+ * http methods the controller method is mapped to.
+ */
+@Value
+public class OperationDescriptor {
+    List<String> scopes;
+    String name;
+    String displayName;
+}
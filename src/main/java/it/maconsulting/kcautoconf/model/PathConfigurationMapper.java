@@ -1,6 +1,7 @@
 package it.maconsulting.kcautoconf.model;
 
 import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.web.bind.annotation.RequestMethod;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -49,4 +50,40 @@ public class PathConfigurationMapper {
                 .map( it -> toPathConfig(it, mapNames))
                 .toList();
     }
+
+    /**
+     * Converts the path definitions in a single pass. The scopes of the methods in the same group are shared by
+     * their {@link PolicyEnforcerConfig.MethodConfig}, and the collections are created with their final size.
+     */
+    public PolicyEnforcerConfig.PathConfig toPathConfig(PathDefinition definition, boolean mapNames) {
+        PolicyEnforcerConfig.PathConfig pathConfig = new PolicyEnforcerConfig.PathConfig();
+        pathConfig.setPath(definition.path());
+        if (mapNames) {
+            pathConfig.setName(definition.name());
+        }
+        pathConfig.setId(definition.id());
+        if (definition.enforcementMode() != null) {
+            pathConfig.setEnforcementMode(PolicyEnforcerConfig.EnforcementMode.valueOf(definition.enforcementMode().name()));
+        }
+
+        List<PolicyEnforcerConfig.MethodConfig> methodConfigs = new ArrayList<>(definition.methodCount());
+        for (MethodDefinition method : definition.methods()) {
+            for (RequestMethod httpMethod : method.methods()) {
+                PolicyEnforcerConfig.MethodConfig methodConfig = new PolicyEnforcerConfig.MethodConfig();
+                methodConfig.setMethod(httpMethod.name());
+                methodConfig.setScopes(method.scopes());
+                methodConfigs.add(methodConfig);
+            }
+        }
+        pathConfig.setMethods(methodConfigs);
+        return pathConfig;
+    }
+
+    public List<PolicyEnforcerConfig.PathConfig> toEnforcerPaths(List<PathDefinition> definitions, boolean mapNames) {
+        List<PolicyEnforcerConfig.PathConfig> pathConfigs = new ArrayList<>(definitions.size());
+        for (PathDefinition definition : definitions) {
+            pathConfigs.add(toPathConfig(definition, mapNames));
+        }
+        return pathConfigs;
+    }
 }
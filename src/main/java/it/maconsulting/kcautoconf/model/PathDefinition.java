@@ -0,0 +1,63 @@
+package it.maconsulting.kcautoconf.model;
+
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable and compact representation of a discovered path, kept for the life of the application.<br>
+ * The http methods are grouped by their scopes, so that the methods requiring the same scopes share a single
+ * {@link MethodDefinition}.
+ *
+ * @param path            the path pattern
+ * @param name            the resource name
+ * @param displayName     the resource display name
+ * @param enforcementMode the enforcement mode, or {@code null} to use the default one
+ * @param id              the Keycloak resource id, if known
+ * @param methods         the http methods, grouped by scopes
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public record PathDefinition(String path, String name, String displayName, EnforcementMode enforcementMode, String id,
+                             List<MethodDefinition> methods) {
+
+    public PathDefinition {
+        methods = List.copyOf(methods);
+    }
+
+    /**
+     * @return the number of http methods of the path, over all the groups
+     */
+    public int methodCount() {
+        int count = 0;
+        for (MethodDefinition method : methods) {
+            count += method.methods().size();
+        }
+        return count;
+    }
+
+    public static PathDefinition of(PathConfiguration configuration) {
+        Map<List<String>, EnumSet<RequestMethod>> groups = new LinkedHashMap<>(4);
+        for (MethodConfiguration method : configuration.getMethods()) {
+            List<String> scopes = method.getScopes() != null ? method.getScopes() : List.of();
+            groups.computeIfAbsent(scopes, k -> EnumSet.noneOf(RequestMethod.class))
+                    .add(RequestMethod.valueOf(method.getMethod()));
+        }
+        List<MethodDefinition> methods = new ArrayList<>(groups.size());
+        groups.forEach((scopes, verbs) -> methods.add(new MethodDefinition(verbs, scopes)));
+        return new PathDefinition(configuration.getPath(), configuration.getName(), configuration.getDisplayName(),
+                configuration.getEnforcementMode(), configuration.getId(), methods);
+    }
+
+    public static List<PathDefinition> of(List<PathConfiguration> configurations) {
+        List<PathDefinition> definitions = new ArrayList<>(configurations.size());
+        for (PathConfiguration configuration : configurations) {
+            definitions.add(of(configuration));
+        }
+        return definitions;
+    }
+}
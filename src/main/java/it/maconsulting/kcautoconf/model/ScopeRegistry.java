@@ -0,0 +1,63 @@
+package it.maconsulting.kcautoconf.model;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Canonical instances of the authorization scopes: equal scope names, and equal lists of scopes, are replaced by
+ * a single shared instance. The discovered configuration is kept for the life of the application, and the same
+ * few scopes are usually repeated on most of the paths.<br>
+ * The registry is not thread safe, and it is meant to be used while building a configuration, then discarded.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public class ScopeRegistry {
+
+    private final Map<String, String> scopes = new HashMap<>();
+
+    private final Map<List<String>, List<String>> scopeLists = new HashMap<>();
+
+    /**
+     * @param scope the scope name
+     * @return the canonical instance of the scope name
+     */
+    public String intern(String scope) {
+        return scopes.computeIfAbsent(scope, Function.identity());
+    }
+
+    /**
+     * @param scopeList a list of scope names
+     * @return the canonical, immutable, instance of the list
+     */
+    public List<String> intern(List<String> scopeList) {
+        if (scopeList == null || scopeList.isEmpty()) {
+            return List.of();
+        }
+        List<String> canonical = List.of(scopeList.stream().map(this::intern).toArray(String[]::new));
+        return scopeLists.computeIfAbsent(canonical, Function.identity());
+    }
+
+    /**
+     * Replaces the scopes of every method of the given paths with their canonical instances.
+     *
+     * @param paths the path configurations
+     */
+    public void internScopes(Collection<PathConfiguration> paths) {
+        for (PathConfiguration path : paths) {
+            for (MethodConfiguration method : path.getMethods()) {
+                method.setScopes(intern(method.getScopes()));
+            }
+        }
+    }
+
+    /**
+     * @return the number of distinct scope names
+     */
+    public int size() {
+        return scopes.size();
+    }
+}
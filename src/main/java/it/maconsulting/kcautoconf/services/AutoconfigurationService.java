@@ -1,31 +1,42 @@
 package it.maconsulting.kcautoconf.services;
 
-import it.maconsulting.kcautoconf.model.MethodConfiguration;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.maconsulting.kcautoconf.events.PathConfigurationsPublishedEvent;
+import it.maconsulting.kcautoconf.metrics.AutoconfigurationMetrics;
 import it.maconsulting.kcautoconf.model.PathConfiguration;
 import it.maconsulting.kcautoconf.model.PathConfigurationMapper;
+import it.maconsulting.kcautoconf.model.PathDefinition;
+import it.maconsulting.kcautoconf.model.ScopeRegistry;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
-import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
-import org.springframework.core.annotation.AnnotatedElementUtils;
-import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RequestMethod;
-import org.springframework.web.bind.annotation.RestController;
 
-import java.lang.reflect.Method;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
-import java.util.function.Predicate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class AutoconfigurationService {
+public class AutoconfigurationService implements SmartInitializingSingleton, DisposableBean {
 
     @Getter
     private final ApplicationContext context;
@@ -49,122 +60,334 @@ public class AutoconfigurationService {
     @Value("${kcautoconf.export-path-access-scope:configuration:export}")
     private String exportPathAccessScope;
 
-    public void updateKeycloakConfiguration() {
-        log.info("Automatic resources and scopes configuration process started.");
-        List<PolicyEnforcerConfig.PathConfig> pathConfigurations = pathConfigurationMapper.toPathConfigs(getPathConfigurationsDom(), mapNames);
-        policyEnforcerConfig.getPaths().addAll(pathConfigurations);
-    }
+    @Value("${kcautoconf.path-index.enabled:true}")
+    private boolean pathIndexEnabled;
 
-    public List<PathConfiguration> getPathConfigurationsDom() {
-        log.info("Automatic resources and scopes configuration process started.");
-        Map<String, PathConfiguration> pathConfigMap = new HashMap<>();
+    @Value("${kcautoconf.discovery:annotations}")
+    private String discovery;
 
-        Map<String, Object> controllers = context.getBeansWithAnnotation(RestController.class);
-        for (Map.Entry<String, Object> entry : controllers.entrySet()) {
-            processController(entry.getKey(), entry.getValue(), pathConfigMap);
-        }
+    @Value("${kcautoconf.scan.parallelism:1}")
+    private int scanParallelism;
 
-        return new ArrayList<>(pathConfigMap.values());
-    }
+    @Value("${kcautoconf.snapshot.enabled:false}")
+    private boolean snapshotEnabled;
 
-    private void processController(String beanName, Object bean, Map<String, PathConfiguration> pathConfigMap) {
-        Class<?> targetClass = AopUtils.getTargetClass(bean);
-        RequestMapping classMapping = AnnotationUtils.getAnnotation(targetClass, RequestMapping.class);
-        List<String> classPaths = getClassLevelAnnotatedPaths(classMapping);
+    @Value("${kcautoconf.snapshot.path:${user.home}/.kcautoconf/${spring.application.name:application}/path-snapshot.json}")
+    private String snapshotPath;
 
-        log.debug("Parsing controller {}", beanName);
+    @Value("${kcautoconf.merge.precedence:yaml}")
+    private String mergePrecedence;
 
-        for (Method method : targetClass.getDeclaredMethods()) {
-            RequestMapping methodMapping = AnnotationUtils.getAnnotation(method, RequestMapping.class);
-            if (methodMapping == null) continue;
+    @Value("${kcautoconf.warmup.enabled:false}")
+    private boolean warmupEnabled;
 
-            processMethod(method, classPaths, methodMapping, pathConfigMap);
-        }
+    @Value("${kcautoconf.warmup.concurrency:8}")
+    private int warmupConcurrency;
+
+    @Value("${kcautoconf.warmup.max-attempts:3}")
+    private int warmupMaxAttempts;
+
+    @Value("${kcautoconf.warmup.backoff:200ms}")
+    private Duration warmupBackoff;
+
+    @Value("${kcautoconf.refresh.on-context-refresh:false}")
+    private boolean refreshOnContextRefresh;
+
+    @Value("${kcautoconf.deferred:false}")
+    private boolean deferred;
+
+    private AutoconfigurationMetrics metrics = AutoconfigurationMetrics.NOOP;
+
+    @Autowired(required = false)
+    public void setMetrics(AutoconfigurationMetrics metrics) {
+        this.metrics = metrics;
     }
 
-    private void processMethod(Method method, List<String> classPaths, RequestMapping methodMapping, Map<String, PathConfiguration> pathConfigMap) {
-        log.trace("Found method: {}", method);
+    private final CompletableFuture<Void> publication = new CompletableFuture<>();
+
+    private volatile List<PathDefinition> pathDefinitions = List.of();
+
+    private volatile Set<String> declaredPaths = Set.of();
 
-        List<String> methodPaths = extractExtraPathsFromClassMethod(method);
-        RequestMethod[] httpMethods = methodMapping.method();
+    private final AtomicReference<PublishedConfiguration> publishedConfiguration = new AtomicReference<>();
 
-        for (String basePath : classPaths) {
-            for (String methodPath : methodPaths) {
-                String fullPath = buildHttpPath(basePath, methodPath);
-                for (RequestMethod httpMethod : httpMethods) {
-                    log.debug("Configuring {} request for path: {}", httpMethod, fullPath);
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
-                    PathConfiguration pathConfig = pathConfigMap.computeIfAbsent(fullPath, k -> {
-                        PathConfiguration pc = new PathConfiguration();
-                        pc.setPath(fullPath);
-                        return pc;
-                    });
+    private final Object refreshLock = new Object();
 
-                    MethodConfiguration methodConfig = buildMethodConfiguration(method, httpMethod);
-                    pathConfig.getMethods().add(methodConfig);
+    private final AtomicBoolean contextRefreshed = new AtomicBoolean();
 
-                    populatePathMetadata(pathConfig, method);
+    /**
+     * The event of a publication made before the context was refreshed, when its listeners may not be registered yet
+     */
+    private PathConfigurationsPublishedEvent pendingEvent;
+
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kcautoconf-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The paths declared in the enforcer configuration, before the discovered ones were merged
+     */
+    private volatile List<PolicyEnforcerConfig.PathConfig> declaredPathConfigs;
+
+    private volatile PolicyEnforcerConfig.PathConfig configurationPagePath;
+
+    public void updateKeycloakConfiguration() {
+        log.info("Automatic resources and scopes configuration process started.");
+        long start = System.currentTimeMillis();
+        try {
+            List<PathConfiguration> discoveredPaths = getPathConfigurationsDom();
+            new PathSpecificitySorter().findOverlaps(discoveredPaths);
+            List<PathDefinition> definitions = PathDefinition.of(discoveredPaths);
+            pathDefinitions = definitions;
+            List<PolicyEnforcerConfig.PathConfig> pathConfigurations = toEnforcerPaths(definitions);
+            synchronized (refreshLock) {
+                List<PolicyEnforcerConfig.PathConfig> paths;
+                synchronized (policyEnforcerConfig) {
+                    paths = copyPaths(policyEnforcerConfig.getPaths());
                 }
+                declaredPathConfigs = copyPaths(paths);
+                declaredPaths = paths.stream()
+                        .map(path -> PolicyEnforcerPathMerger.normalize(path.getPath()))
+                        .collect(Collectors.toUnmodifiableSet());
+                mergePaths(paths, pathConfigurations, definitions);
+                addConfigurationPage(paths);
+                // the merged paths replace the list of the bean, which is never changed in place
+                synchronized (policyEnforcerConfig) {
+                    policyEnforcerConfig.setPaths(paths);
+                    publish(objectMapper.convertValue(policyEnforcerConfig, PolicyEnforcerConfig.class));
+                }
+            }
+            // the event is published, or kept until the context is refreshed, before the publication completes
+            try {
+                publishEvent(new PathConfigurationsPublishedEvent(this, pathConfigurations.size(), System.currentTimeMillis() - start));
+            } finally {
+                publication.complete(null);
             }
+        } catch (RuntimeException e) {
+            publication.completeExceptionally(e);
+            throw e;
         }
     }
 
-    private MethodConfiguration buildMethodConfiguration(Method method, RequestMethod httpMethod) {
-        MethodConfiguration methodConfig = new MethodConfiguration();
-        methodConfig.setMethod(httpMethod.name());
+    /**
+     * Runs the autoconfiguration on a background thread, so that the application context goes on with its refresh
+     * in the meanwhile. The completion is signalled by {@link #getPublication()} and by a
+     * {@link PathConfigurationsPublishedEvent}, published once the context is refreshed.
+     */
+    public void updateKeycloakConfigurationInBackground() {
+        Thread thread = new Thread(() -> {
+            try {
+                updateKeycloakConfiguration();
+            } catch (RuntimeException e) {
+                log.error("Automatic resources and scopes configuration failed.", e);
+            }
+        }, "kcautoconf-autoconfiguration");
+        thread.setDaemon(true);
+        thread.start();
+    }
 
-        swaggerOperationServices.stream().findFirst().ifPresent(swagger -> {
-            List<String> scopes = swagger.getScopes(method).stream()
-                    .filter(Predicate.not(String::isBlank))
-                    .toList();
+    /**
+     * Discovers the paths again and publishes a new enforcer configuration, made of the declared paths and the
+     * discovered ones. The configuration is built on a background thread and swapped in atomically: the requests
+     * keep being enforced with the previous one in the meanwhile. Concurrent refreshes run one after the other.
+     * <p>
+     * The {@link PolicyEnforcerConfig} bean is not changed: the new paths are seen by the enforcers built on
+     * {@link #getEnforcerConfiguration()}, ie. by a {@code RefreshablePolicyEnforcerFilter}.
+     *
+     * @return a future completed with the new configuration
+     */
+    public CompletableFuture<PublishedConfiguration> refresh() {
+        return CompletableFuture.supplyAsync(this::rebuildConfiguration, refreshExecutor);
+    }
 
-            if (!scopes.isEmpty()) {
-                scopes.forEach(scope -> log.debug("Found authorization scope: {}", scope));
-                methodConfig.setScopes(scopes);
-            }
-        });
-        return methodConfig;
+    /**
+     * With {@code kcautoconf.deferred}, starts the autoconfiguration once all the singletons are created, so that the
+     * controllers and the handler mappings are looked up in a complete bean factory, while the context finishes its
+     * refresh (ie. starts the web server).
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (deferred) {
+            updateKeycloakConfigurationInBackground();
+        }
     }
 
-    private void populatePathMetadata(PathConfiguration pathConfig, Method method) {
-        swaggerOperationServices.stream().findFirst().ifPresent(swagger -> {
-            pathConfig.setName(swagger.getName(method));
-            pathConfig.setDisplayName(swagger.getDisplayName(method));
-        });
+    /**
+     * Publishes the {@link PathConfigurationsPublishedEvent} of a publication made before the context was refreshed.
+     * Then refreshes the configuration when the application context is refreshed again, if
+     * {@code kcautoconf.refresh.on-context-refresh} is enabled. The first refresh of the context, and the refresh
+     * of its children, are ignored.
+     */
+    @EventListener
+    public void onContextRefreshed(ContextRefreshedEvent event) {
+        if (event.getApplicationContext() != context) {
+            return;
+        }
+        boolean firstRefresh;
+        PathConfigurationsPublishedEvent pending;
+        synchronized (contextRefreshed) {
+            firstRefresh = !contextRefreshed.getAndSet(true);
+            pending = pendingEvent;
+            pendingEvent = null;
+        }
+        if (pending != null) {
+            context.publishEvent(pending);
+        }
+        if (firstRefresh) {
+            return;
+        }
+        if (refreshOnContextRefresh) {
+            log.info("Application context refreshed, refreshing the enforcer configuration.");
+            refresh();
+        }
     }
 
-    private List<String> getClassLevelAnnotatedPaths(RequestMapping requestMappingAnnotation) {
-        List<String> paths = new ArrayList<>();
-        paths.add("");
-        if (requestMappingAnnotation != null &&
-                requestMappingAnnotation.path().length > 0) {
-            paths = Arrays.asList(requestMappingAnnotation.path());
+    /**
+     * Publishes the event right away once the context is refreshed; before, it is kept until the context is
+     * refreshed, since the {@code @EventListener} methods are registered at the end of the refresh.
+     */
+    private void publishEvent(PathConfigurationsPublishedEvent event) {
+        synchronized (contextRefreshed) {
+            if (!contextRefreshed.get()) {
+                pendingEvent = event;
+                return;
+            }
         }
-        return paths;
+        context.publishEvent(event);
+    }
+
+    /**
+     * Stops the refresh thread; a refresh in progress is interrupted.
+     */
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * @return the last published configuration, or {@code null} until the paths are published
+     */
+    public PublishedConfiguration getPublishedConfiguration() {
+        return publishedConfiguration.get();
+    }
+
+    /**
+     * The configuration to be handed to the enforcer through a {@code RefreshablePolicyEnforcerFilter}, so that
+     * refreshed paths are picked up and the enforcers of the previous configurations are released.
+     *
+     * @return the last published configuration or, until the paths are published, the {@link PolicyEnforcerConfig}
+     * bean
+     */
+    public PolicyEnforcerConfig getEnforcerConfiguration() {
+        PublishedConfiguration published = publishedConfiguration.get();
+        return published != null ? published.policyEnforcerConfig() : policyEnforcerConfig;
+    }
+
+    /**
+     * @return a future completed when the discovered paths have been added to the {@link PolicyEnforcerConfig}
+     */
+    public CompletableFuture<Void> getPublication() {
+        return publication;
+    }
+
+    /**
+     * @return the paths discovered by the autoconfiguration, empty until they are published
+     */
+    public List<PathDefinition> getPathDefinitions() {
+        return pathDefinitions;
+    }
+
+    /**
+     * @return the normalized patterns of the paths declared in the enforcer configuration before the discovered
+     * paths were merged, empty until they are published
+     * @see PolicyEnforcerPathMerger#normalize(String)
+     */
+    public Set<String> getDeclaredPaths() {
+        return declaredPaths;
     }
 
-    private String buildHttpPath(String... paths) {
-        StringBuilder sb = new StringBuilder();
-        for (String path : paths) {
-            if (!path.isEmpty()) {
-                sb.append(addLeadingSlash(path));
+    private PublishedConfiguration rebuildConfiguration() {
+        synchronized (refreshLock) {
+            long start = System.currentTimeMillis();
+            List<PathDefinition> definitions = PathDefinition.of(getPathConfigurationsDom());
+            List<PolicyEnforcerConfig.PathConfig> pathConfigurations = toEnforcerPaths(definitions);
+
+            PolicyEnforcerConfig config;
+            synchronized (policyEnforcerConfig) {
+                config = objectMapper.convertValue(policyEnforcerConfig, PolicyEnforcerConfig.class);
             }
+            List<PolicyEnforcerConfig.PathConfig> paths = declaredPathConfigs != null ? copyPaths(declaredPathConfigs) : config.getPaths();
+            mergePaths(paths, pathConfigurations, definitions);
+            addConfigurationPage(paths);
+            config.setPaths(paths);
+
+            pathDefinitions = definitions;
+            PublishedConfiguration published = publish(config);
+            log.info("Enforcer configuration {} published with {} paths.", published.version(), paths.size());
+            publishEvent(new PathConfigurationsPublishedEvent(this, pathConfigurations.size(), System.currentTimeMillis() - start));
+            return published;
         }
-        String path = addLeadingSlash(sb.toString());
-        return (path.length() > 1 && path.endsWith("/")) ? path.substring(0, path.lastIndexOf("/")) : path;
     }
 
-    private List<String> extractExtraPathsFromClassMethod(Method method) {
-        List<String> extraPaths = List.of("");
-        RequestMapping merged = AnnotatedElementUtils.getMergedAnnotation(method, RequestMapping.class);
-        if (merged != null && merged.path().length > 0) {
-            extraPaths = Arrays.asList(merged.path());
+    private void addConfigurationPage(List<PolicyEnforcerConfig.PathConfig> paths) {
+        PolicyEnforcerConfig.PathConfig pagePath = configurationPagePath;
+        if (pagePath != null && paths.stream().noneMatch(path -> pagePath.getPath().equals(path.getPath()))) {
+            paths.add(pagePath);
         }
-        return extraPaths;
     }
 
-    private String addLeadingSlash(String path) {
-        return !path.startsWith("/") ? "/" + path : path;
+    private PublishedConfiguration publish(PolicyEnforcerConfig config) {
+        return publishedConfiguration.updateAndGet(previous ->
+                new PublishedConfiguration(previous != null ? previous.version() + 1 : 1, config, Instant.now()));
+    }
+
+    private List<PolicyEnforcerConfig.PathConfig> toEnforcerPaths(List<PathDefinition> definitions) {
+        List<PolicyEnforcerConfig.PathConfig> pathConfigurations = pathConfigurationMapper.toEnforcerPaths(definitions, mapNames);
+        if (warmupEnabled) {
+            new ResourceIdResolver(HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build(),
+                    warmupConcurrency, warmupMaxAttempts, warmupBackoff).resolve(policyEnforcerConfig, pathConfigurations);
+        }
+        return pathConfigurations;
+    }
+
+    private void mergePaths(List<PolicyEnforcerConfig.PathConfig> paths, List<PolicyEnforcerConfig.PathConfig> pathConfigurations,
+                            List<PathDefinition> definitions) {
+        Set<String> explicitEnforcementModes = definitions.stream()
+                .filter(definition -> definition.enforcementMode() != null)
+                .map(PathDefinition::path)
+                .collect(Collectors.toSet());
+        new PolicyEnforcerPathMerger(PolicyEnforcerPathMerger.Precedence.of(mergePrecedence))
+                .merge(paths, pathConfigurations, path -> explicitEnforcementModes.contains(path.getPath()));
+    }
+
+    private List<PolicyEnforcerConfig.PathConfig> copyPaths(List<PolicyEnforcerConfig.PathConfig> paths) {
+        List<PolicyEnforcerConfig.PathConfig> copies = new ArrayList<>(paths.size());
+        for (PolicyEnforcerConfig.PathConfig path : paths) {
+            copies.add(objectMapper.convertValue(path, PolicyEnforcerConfig.PathConfig.class));
+        }
+        return copies;
+    }
+
+    /**
+     * @return the discovered paths, from the most to the least specific one; their overlaps are reported once, by
+     * {@link #updateKeycloakConfiguration()}
+     * @see PathSpecificitySorter
+     */
+    public List<PathConfiguration> getPathConfigurationsDom() {
+        List<PathConfiguration> pathConfigurations = new ArrayList<>(discoverPathConfigurations());
+        new PathSpecificitySorter().sort(pathConfigurations);
+        new ScopeRegistry().internScopes(pathConfigurations);
+        return pathConfigurations;
+    }
+
+    private List<PathConfiguration> discoverPathConfigurations() {
+        PathDiscovery.Options options = new PathDiscovery.Options(pathIndexEnabled, discovery, scanParallelism,
+                snapshotEnabled ? Path.of(snapshotPath) : null);
+        return new PathDiscovery(context, swaggerOperationServices, metrics, options).discover();
     }
 
     public void enableConfigurationPage() {
@@ -177,7 +400,20 @@ public class AutoconfigurationService {
         } else {
             configurationPath.setEnforcementMode(PolicyEnforcerConfig.EnforcementMode.DISABLED);
         }
-        policyEnforcerConfig.getPaths().add(configurationPath);
+        synchronized (refreshLock) {
+            configurationPagePath = configurationPath;
+            synchronized (policyEnforcerConfig) {
+                List<PolicyEnforcerConfig.PathConfig> paths = new ArrayList<>(policyEnforcerConfig.getPaths());
+                addConfigurationPage(paths);
+                policyEnforcerConfig.setPaths(paths);
+            }
+            PublishedConfiguration published = publishedConfiguration.get();
+            if (published != null) {
+                PolicyEnforcerConfig config = objectMapper.convertValue(published.policyEnforcerConfig(), PolicyEnforcerConfig.class);
+                addConfigurationPage(config.getPaths());
+                publish(config);
+            }
+        }
         log.info("Configuration page enabled and available @ {}", exportPath);
 
     }
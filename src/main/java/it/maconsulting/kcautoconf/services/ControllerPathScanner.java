@@ -0,0 +1,292 @@
+package it.maconsulting.kcautoconf.services;
+
+import it.maconsulting.kcautoconf.annotations.Enforcement;
+import it.maconsulting.kcautoconf.model.EnforcementMode;
+import it.maconsulting.kcautoconf.model.MethodConfiguration;
+import it.maconsulting.kcautoconf.model.OperationDescriptor;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Discovers the path configurations from the mapping annotations of the controller classes, or from the handler
+ * methods registered by Spring MVC.<br>
+ * The scan works on classes only, so it can run without the controller instances, ie. during the AOT processing.
+ * <p>
+ * The enforcement mode of the paths is read from the {@link Enforcement} annotations (ie. {@code @PublicEndpoint})
+ * of the handler methods and of their classes.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ControllerPathScanner {
+
+    private final List<SwaggerOperationService> swaggerOperationServices;
+
+    /**
+     * Reads the handler methods already registered by Spring MVC, so that the patterns and the http methods
+     * are the ones actually served, including inherited, interface-declared and verb-less mappings.
+     * Only the handlers of {@code @RestController} beans are considered, as with the controllers scan.
+     */
+    public List<PathConfiguration> scanHandlerMappings(Collection<RequestMappingHandlerMapping> handlerMappings) {
+        Map<String, PathConfiguration> pathConfigMap = new LinkedHashMap<>();
+        for (RequestMappingHandlerMapping handlerMapping : handlerMappings) {
+            for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : handlerMapping.getHandlerMethods().entrySet()) {
+                HandlerMethod handlerMethod = entry.getValue();
+                if (!AnnotatedElementUtils.hasAnnotation(handlerMethod.getBeanType(), RestController.class)) {
+                    continue;
+                }
+                log.trace("Found handler method: {}", handlerMethod);
+
+                RequestMappingInfo mappingInfo = entry.getKey();
+                Set<RequestMethod> httpMethods = mappingInfo.getMethodsCondition().getMethods();
+                OperationDescriptor operation = describeOperation(handlerMethod.getMethod());
+                EnforcementMode enforcementMode = resolveEnforcementMode(handlerMethod.getMethod(), handlerMethod.getBeanType());
+                for (String pattern : mappingInfo.getPatternValues()) {
+                    addPathConfiguration(buildHttpPath(pattern),
+                            httpMethods.isEmpty() ? RequestMethod.values() : httpMethods.toArray(RequestMethod[]::new),
+                            operation, enforcementMode, pathConfigMap);
+                }
+            }
+        }
+        return new ArrayList<>(pathConfigMap.values());
+    }
+
+    /**
+     * Scans the given controller classes.
+     *
+     * @param controllers the controller classes, by bean name
+     * @param parallelism how many threads scan the controllers
+     * @return the discovered path configurations
+     */
+    public List<PathConfiguration> scanControllers(Map<String, Class<?>> controllers, int parallelism) {
+        Map<String, PathConfiguration> pathConfigMap = new HashMap<>();
+
+        if (parallelism > 1 && controllers.size() > 1) {
+            scanControllersInParallel(controllers, parallelism, pathConfigMap);
+        } else {
+            for (Map.Entry<String, Class<?>> entry : controllers.entrySet()) {
+                processController(entry.getKey(), entry.getValue(), pathConfigMap);
+            }
+        }
+
+        return new ArrayList<>(pathConfigMap.values());
+    }
+
+    /**
+     * Processes every controller into its own partial result, then merges the partial results in the controllers
+     * order, so that the outcome is the same of the sequential scan.
+     */
+    private void scanControllersInParallel(Map<String, Class<?>> controllers, int parallelism,
+                                           Map<String, PathConfiguration> pathConfigMap) {
+        log.debug("Scanning {} controllers with parallelism {}", controllers.size(), parallelism);
+        List<Map.Entry<String, Class<?>>> entries = new ArrayList<>(controllers.entrySet());
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Map<String, PathConfiguration>> partials = pool.submit(() -> entries.parallelStream()
+                    .map(entry -> {
+                        Map<String, PathConfiguration> partial = new LinkedHashMap<>();
+                        processController(entry.getKey(), entry.getValue(), partial);
+                        return partial;
+                    })
+                    .toList()).join();
+            partials.forEach(partial -> partial.values().forEach(pathConfig -> merge(pathConfig, pathConfigMap)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Merges the path configurations discovered from two sets of controllers, ie. the indexed and the scanned ones,
+     * by path, with the same rules of the scan.
+     *
+     * @param paths  the path configurations, changed in place
+     * @param others the path configurations to add
+     * @return the merged path configurations
+     */
+    public List<PathConfiguration> merge(List<PathConfiguration> paths, List<PathConfiguration> others) {
+        Map<String, PathConfiguration> pathConfigMap = new LinkedHashMap<>();
+        paths.forEach(pathConfig -> merge(pathConfig, pathConfigMap));
+        others.forEach(pathConfig -> merge(pathConfig, pathConfigMap));
+        return new ArrayList<>(pathConfigMap.values());
+    }
+
+    private void merge(PathConfiguration partial, Map<String, PathConfiguration> pathConfigMap) {
+        PathConfiguration pathConfig = pathConfigMap.putIfAbsent(partial.getPath(), partial);
+        if (pathConfig != null) {
+            pathConfig.setEnforcementMode(combine(pathConfig.getPath(), pathConfig.getEnforcementMode(), partial.getEnforcementMode()));
+            pathConfig.getMethods().addAll(partial.getMethods());
+            if (partial.getName() != null) {
+                pathConfig.setName(partial.getName());
+            }
+            if (partial.getDisplayName() != null) {
+                pathConfig.setDisplayName(partial.getDisplayName());
+            }
+        }
+    }
+
+    /**
+     * The mappings are looked up on the superclasses and interfaces too, as Spring MVC does, so that a controller
+     * implementing an annotated API interface is discovered with the paths it is actually mapped on.
+     */
+    private void processController(String beanName, Class<?> targetClass, Map<String, PathConfiguration> pathConfigMap) {
+        RequestMapping classMapping = AnnotatedElementUtils.findMergedAnnotation(targetClass, RequestMapping.class);
+        List<String> classPaths = getClassLevelAnnotatedPaths(classMapping);
+
+        log.debug("Parsing controller {}", beanName);
+
+        for (Method method : targetClass.getDeclaredMethods()) {
+            RequestMapping methodMapping = AnnotatedElementUtils.findMergedAnnotation(method, RequestMapping.class);
+            if (methodMapping == null) continue;
+
+            processMethod(method, targetClass, classPaths, methodMapping, pathConfigMap);
+        }
+    }
+
+    private void processMethod(Method method, Class<?> targetClass, List<String> classPaths, RequestMapping methodMapping,
+                               Map<String, PathConfiguration> pathConfigMap) {
+        log.trace("Found method: {}", method);
+
+        List<String> methodPaths = extractExtraPathsFromClassMethod(method);
+        RequestMethod[] httpMethods = methodMapping.method();
+        OperationDescriptor operation = describeOperation(method);
+        EnforcementMode enforcementMode = resolveEnforcementMode(method, targetClass);
+
+        for (String basePath : classPaths) {
+            for (String methodPath : methodPaths) {
+                addPathConfiguration(buildHttpPath(basePath, methodPath), httpMethods, operation, enforcementMode, pathConfigMap);
+            }
+        }
+    }
+
+    private void addPathConfiguration(String fullPath, RequestMethod[] httpMethods, OperationDescriptor operation,
+                                      EnforcementMode enforcementMode, Map<String, PathConfiguration> pathConfigMap) {
+        for (RequestMethod httpMethod : httpMethods) {
+            log.debug("Configuring {} request for path: {}", httpMethod, fullPath);
+
+            PathConfiguration pathConfig = pathConfigMap.computeIfAbsent(fullPath, k -> {
+                PathConfiguration pc = new PathConfiguration();
+                pc.setPath(fullPath);
+                return pc;
+            });
+
+            pathConfig.setEnforcementMode(pathConfig.getMethods().isEmpty() ? enforcementMode :
+                    combine(fullPath, pathConfig.getEnforcementMode(), enforcementMode));
+            MethodConfiguration methodConfig = buildMethodConfiguration(operation, httpMethod);
+            pathConfig.getMethods().add(methodConfig);
+
+            populatePathMetadata(pathConfig, operation);
+        }
+    }
+
+    /**
+     * Resolves the swagger metadata of the method once, so that it is shared by all its paths and http methods.
+     */
+    private OperationDescriptor describeOperation(Method method) {
+        OperationDescriptor operation = swaggerOperationServices.stream().findFirst()
+                .map(swagger -> swagger.describe(method))
+                .orElse(null);
+        if (operation != null) {
+            operation.getScopes().forEach(scope -> log.debug("Found authorization scope: {}", scope));
+        }
+        return operation;
+    }
+
+    /**
+     * The {@link Enforcement} of the method wins over the one of its class; both may be meta-annotations.
+     */
+    private EnforcementMode resolveEnforcementMode(Method method, Class<?> beanType) {
+        Enforcement enforcement = AnnotatedElementUtils.findMergedAnnotation(method, Enforcement.class);
+        if (enforcement == null) {
+            enforcement = AnnotatedElementUtils.findMergedAnnotation(beanType, Enforcement.class);
+        }
+        return enforcement != null ? enforcement.value() : null;
+    }
+
+    /**
+     * Combines the enforcement modes of two handler methods mapped on the same path. A path is only left out of
+     * the enforcement when all its methods agree, so a method without a mode resets the path to the default mode
+     * of the enforcer, and between two explicit modes the stricter one wins.
+     */
+    private EnforcementMode combine(String path, EnforcementMode current, EnforcementMode other) {
+        if (current == other) {
+            return current;
+        }
+        EnforcementMode combined = current == null || other == null ? null :
+                strictness(current) >= strictness(other) ? current : other;
+        log.warn("Conflicting enforcement modes {} and {} on path {}, using {}", current, other, path,
+                combined != null ? combined : "the default one");
+        return combined;
+    }
+
+    private int strictness(EnforcementMode mode) {
+        return switch (mode) {
+            case DISABLED -> 0;
+            case PERMISSIVE -> 1;
+            case ENFORCING -> 2;
+        };
+    }
+
+    private MethodConfiguration buildMethodConfiguration(OperationDescriptor operation, RequestMethod httpMethod) {
+        MethodConfiguration methodConfig = new MethodConfiguration();
+        methodConfig.setMethod(httpMethod.name());
+        if (operation != null && !operation.getScopes().isEmpty()) {
+            methodConfig.setScopes(operation.getScopes());
+        }
+        return methodConfig;
+    }
+
+    private void populatePathMetadata(PathConfiguration pathConfig, OperationDescriptor operation) {
+        if (operation != null) {
+            pathConfig.setName(operation.getName());
+            pathConfig.setDisplayName(operation.getDisplayName());
+        }
+    }
+
+    private List<String> getClassLevelAnnotatedPaths(RequestMapping requestMappingAnnotation) {
+        List<String> paths = new ArrayList<>();
+        paths.add("");
+        if (requestMappingAnnotation != null &&
+                requestMappingAnnotation.path().length > 0) {
+            paths = Arrays.asList(requestMappingAnnotation.path());
+        }
+        return paths;
+    }
+
+    private String buildHttpPath(String... paths) {
+        StringBuilder sb = new StringBuilder();
+        for (String path : paths) {
+            if (!path.isEmpty()) {
+                sb.append(addLeadingSlash(path));
+            }
+        }
+        String path = addLeadingSlash(sb.toString());
+        return (path.length() > 1 && path.endsWith("/")) ? path.substring(0, path.lastIndexOf("/")) : path;
+    }
+
+    private List<String> extractExtraPathsFromClassMethod(Method method) {
+        List<String> extraPaths = List.of("");
+        RequestMapping merged = AnnotatedElementUtils.findMergedAnnotation(method, RequestMapping.class);
+        if (merged != null && merged.path().length > 0) {
+            extraPaths = Arrays.asList(merged.path());
+        }
+        return extraPaths;
+    }
+
+    private String addLeadingSlash(String path) {
+        return !path.startsWith("/") ? "/" + path : path;
+    }
+}
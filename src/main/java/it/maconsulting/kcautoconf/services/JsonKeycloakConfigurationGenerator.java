@@ -1,7 +1,8 @@
 package it.maconsulting.kcautoconf.services;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import it.maconsulting.kcautoconf.model.EnforcementMode;
-import it.maconsulting.kcautoconf.model.PathConfiguration;
+import it.maconsulting.kcautoconf.model.PathDefinition;
 import it.maconsulting.kcautoconf.pojo.AuthorizationScopeDTO;
 import it.maconsulting.kcautoconf.pojo.AuthorizationSettingsDTO;
 import it.maconsulting.kcautoconf.pojo.AuthorizedResourceDTO;
@@ -9,8 +10,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -28,24 +33,24 @@ public class JsonKeycloakConfigurationGenerator implements KeycloakConfiguration
         settings.setDecisionStrategy("AFFIRMATIVE");
         settings.setPolicyEnforcementMode("ENFORCING");
 
-        List<PathConfiguration> paths = autoconfigurationService.getPathConfigurationsDom();
+        List<PathDefinition> paths = autoconfigurationService.getPathDefinitions();
         List<AuthorizedResourceDTO> resourceDTOS = new ArrayList<>();
+        // one scope DTO per scope name, shared by all the resources
+        Map<String, AuthorizationScopeDTO> scopeDTOS = new LinkedHashMap<>();
         paths.forEach(pathConfig -> {
-            log.trace("Processing path: {}", pathConfig.getPath());
-            if(!EnforcementMode.DISABLED.equals(pathConfig.getEnforcementMode()) &&
-                    //skip existing pathconfigs
-                    (pathConfig.getId() == null)) {
+            log.trace("Processing path: {}", pathConfig.path());
+            if (isExported(pathConfig)) {
                 AuthorizedResourceDTO resourceDTO = new AuthorizedResourceDTO();
-                resourceDTO.setName(pathConfig.getName());
-                resourceDTO.setDisplayName(pathConfig.getDisplayName());
-                resourceDTO.getUris().add(pathConfig.getPath());
-                Set<String> scopes = pathConfig.getMethods().stream().flatMap(methodConfig -> methodConfig.getScopes().stream()).collect(Collectors.toSet());
-                scopes.forEach(scope -> {
+                resourceDTO.setName(pathConfig.name());
+                resourceDTO.setDisplayName(pathConfig.displayName());
+                resourceDTO.getUris().add(pathConfig.path());
+                getScopes(pathConfig).forEach(scope -> {
                     if(!scope.isEmpty()) {
-                        AuthorizationScopeDTO scopeDTO = new AuthorizationScopeDTO();
-                        scopeDTO.setName(scope);
-                        settings.getScopes().add(scopeDTO);
-                        resourceDTO.getScopes().add(scopeDTO);
+                        resourceDTO.getScopes().add(scopeDTOS.computeIfAbsent(scope, name -> {
+                            AuthorizationScopeDTO scopeDTO = new AuthorizationScopeDTO();
+                            scopeDTO.setName(name);
+                            return scopeDTO;
+                        }));
                     }
                 });
                 resourceDTOS.add(resourceDTO);
@@ -53,6 +58,72 @@ public class JsonKeycloakConfigurationGenerator implements KeycloakConfiguration
         });
 
         settings.setResources(resourceDTOS);
+        settings.setScopes(new ArrayList<>(scopeDTOS.values()));
         return settings;
     }
+
+    /**
+     * Streams the same settings of {@link #generateConfigurationAsJson()}, walking the published paths without
+     * building the resources in memory: only the distinct scope names are kept, to write the settings scopes at the end.
+     */
+    @Override
+    public void writeConfigurationAsJson(JsonGenerator generator) throws IOException {
+        Set<String> settingsScopes = new LinkedHashSet<>();
+
+        generator.writeStartObject();
+        generator.writeBooleanField("allowRemoteResourceManagement", false);
+        generator.writeStringField("policyEnforcementMode", "ENFORCING");
+        generator.writeStringField("decisionStrategy", "AFFIRMATIVE");
+        generator.writeArrayFieldStart("policies");
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("resources");
+        for (PathDefinition pathConfig : autoconfigurationService.getPathDefinitions()) {
+            log.trace("Processing path: {}", pathConfig.path());
+            if (!isExported(pathConfig)) {
+                continue;
+            }
+            generator.writeStartObject();
+            generator.writeStringField("name", pathConfig.name());
+            generator.writeStringField("displayName", pathConfig.displayName());
+            generator.writeBooleanField("ownerManagedAccess", false);
+            generator.writeArrayFieldStart("scopes");
+            for (String scope : getScopes(pathConfig)) {
+                if (!scope.isEmpty()) {
+                    writeScope(generator, scope);
+                    settingsScopes.add(scope);
+                }
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("uris");
+            generator.writeString(pathConfig.path());
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("scopes");
+        for (String scope : settingsScopes) {
+            writeScope(generator, scope);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    private void writeScope(JsonGenerator generator, String scope) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("name", scope);
+        generator.writeEndObject();
+    }
+
+    private boolean isExported(PathDefinition pathConfig) {
+        return !EnforcementMode.DISABLED.equals(pathConfig.enforcementMode()) &&
+                //skip existing pathconfigs
+                (pathConfig.id() == null);
+    }
+
+    private Set<String> getScopes(PathDefinition pathConfig) {
+        return pathConfig.methods().stream().flatMap(methodConfig -> methodConfig.scopes().stream()).collect(Collectors.toSet());
+    }
 }
@@ -1,8 +1,21 @@
 package it.maconsulting.kcautoconf.services;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import it.maconsulting.kcautoconf.pojo.AuthorizationSettingsDTO;
 
+import java.io.IOException;
+
 public interface KeycloakConfigurationGeneratorService {
 
     AuthorizationSettingsDTO generateConfigurationAsJson();
+
+    /**
+     * Writes the settings to the generator. Implementations may stream them without building the
+     * {@link AuthorizationSettingsDTO} first; the output must be the same of its serialization.
+     * @param generator the json generator
+     * @throws IOException if the settings cannot be written
+     */
+    default void writeConfigurationAsJson(JsonGenerator generator) throws IOException {
+        generator.writeObject(generateConfigurationAsJson());
+    }
 }
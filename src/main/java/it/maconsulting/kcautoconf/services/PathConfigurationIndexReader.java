@@ -0,0 +1,114 @@
+package it.maconsulting.kcautoconf.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.*;
+
+/**
+ * Reads the path index generated at compile time by the {@code spring-boot-keycloak-policy-enforcer-processor}
+ * annotation processor.<br>
+ * Every index comes with the list of the controller classes it was built from ({@value #CONTROLLERS_LOCATION}), and
+ * it is used only when all of them are controllers of the application: an index of another artifact (ie. of a
+ * dependency jar) is ignored, and the controllers not covered by any index (ie. after an incremental build) are left
+ * to the scan. When more than one index is used (ie. controllers split in several modules), the indexes are merged
+ * by path.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+public class PathConfigurationIndexReader {
+
+    public static final String INDEX_LOCATION = "META-INF/kcautoconf/path-index.json";
+
+    public static final String CONTROLLERS_LOCATION = "META-INF/kcautoconf/path-index.controllers";
+
+    private static final TypeReference<List<PathConfiguration>> INDEX_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Loads the path configurations from the indexes available to the given class loader, built from the given
+     * controllers only.
+     *
+     * @param classLoader the class loader used to look up the index resources
+     * @param controllers the names of the controller classes of the application
+     * @return the indexed path configurations, with the controllers they cover, or an empty optional if no index
+     * applies to the controllers
+     */
+    public Optional<IndexedPaths> read(ClassLoader classLoader, Set<String> controllers) {
+        Map<String, PathConfiguration> pathConfigMap = new LinkedHashMap<>();
+        Set<String> covered = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> indexes = classLoader.getResources(INDEX_LOCATION);
+            while (indexes.hasMoreElements()) {
+                URL index = indexes.nextElement();
+                Optional<Set<String>> indexedControllers = readControllers(index);
+                if (indexedControllers.isEmpty()) {
+                    log.warn("Path index {} does not list its controllers, ignored: rebuild it with this version of the processor.", index);
+                    continue;
+                }
+                if (!controllers.containsAll(indexedControllers.get())) {
+                    log.debug("Path index {} built from other controllers, ignored.", index);
+                    continue;
+                }
+                log.debug("Reading path index {}", index);
+                try (InputStream is = index.openStream()) {
+                    objectMapper.readValue(is, INDEX_TYPE).forEach(path -> merge(pathConfigMap, path));
+                }
+                covered.addAll(indexedControllers.get());
+            }
+        } catch (IOException e) {
+            log.warn("Unable to read the path index, controllers will be scanned: {}", e.getMessage());
+            return Optional.empty();
+        }
+        if (covered.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new IndexedPaths(new ArrayList<>(pathConfigMap.values()), Collections.unmodifiableSet(covered)));
+    }
+
+    /**
+     * Reads the controllers listed next to the index, one class name per line.
+     */
+    private Optional<Set<String>> readControllers(URL index) throws IOException {
+        URL controllersList = new URL(index, CONTROLLERS_LOCATION.substring(CONTROLLERS_LOCATION.lastIndexOf('/') + 1));
+        Set<String> controllers = new LinkedHashSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(controllersList.openStream(), StandardCharsets.UTF_8))) {
+            reader.lines().map(String::trim).filter(line -> !line.isEmpty()).forEach(controllers::add);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            return Optional.empty();
+        }
+        return controllers.isEmpty() ? Optional.empty() : Optional.of(controllers);
+    }
+
+    private void merge(Map<String, PathConfiguration> pathConfigMap, PathConfiguration path) {
+        PathConfiguration existing = pathConfigMap.putIfAbsent(path.getPath(), path);
+        if (existing != null) {
+            existing.getMethods().addAll(path.getMethods());
+            existing.setName(path.getName());
+            existing.setDisplayName(path.getDisplayName());
+        }
+    }
+
+    /**
+     * @param paths       the indexed path configurations
+     * @param controllers the names of the controller classes the paths were discovered from
+     */
+    public record IndexedPaths(List<PathConfiguration> paths, Set<String> controllers) {
+    }
+}
@@ -0,0 +1,193 @@
+package it.maconsulting.kcautoconf.services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Keeps the discovered path configurations in a local file, so that the controllers are not scanned again when the
+ * application restarts with the same classes.<br>
+ * The snapshot is keyed by a fingerprint of the controller classes: their names and the bytecode of the classes and
+ * of their superclasses and interfaces, where the mappings may be declared, along with the version of this library
+ * and the bytecode of its scanner. A snapshot with a different fingerprint is ignored, and replaced after the scan.
+ * <p>
+ * The snapshot decides which paths are enforced, so it is written in a directory readable by its owner only, and,
+ * where the file system supports it, a snapshot not owned by the current user, or that other users can replace, is
+ * ignored.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+public class PathConfigurationSnapshot {
+
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Computes the fingerprint of the controller classes.
+     *
+     * @param controllerTypes the controller classes
+     * @param settings        any other setting affecting the discovery, ie. the discovery mode
+     * @return the hex encoded SHA-256 fingerprint
+     */
+    public String fingerprint(Collection<Class<?>> controllerTypes, String... settings) {
+        MessageDigest digest = sha256();
+        update(digest, String.valueOf(PathConfigurationSnapshot.class.getPackage().getImplementationVersion()));
+        updateBytecode(digest, ControllerPathScanner.class);
+        for (String setting : settings) {
+            update(digest, String.valueOf(setting));
+        }
+        SortedMap<String, Class<?>> classes = new TreeMap<>();
+        for (Class<?> controllerType : controllerTypes) {
+            collectHierarchy(ClassUtils.getUserClass(controllerType), classes);
+        }
+        for (Map.Entry<String, Class<?>> entry : classes.entrySet()) {
+            update(digest, entry.getKey());
+            updateBytecode(digest, entry.getValue());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * @param file        the snapshot file
+     * @param fingerprint the fingerprint of the current controllers
+     * @return the path configurations of the snapshot, or an empty optional if the snapshot is missing, unreadable
+     * or taken from different controllers
+     */
+    public Optional<List<PathConfiguration>> read(Path file, String fingerprint) {
+        if (!Files.isReadable(file)) {
+            return Optional.empty();
+        }
+        if (!isTrusted(file)) {
+            log.warn("Path snapshot {} is not owned by the current user, or is writable by other users: ignored.", file);
+            return Optional.empty();
+        }
+        try (InputStream is = Files.newInputStream(file)) {
+            Snapshot snapshot = objectMapper.readValue(is, Snapshot.class);
+            if (!fingerprint.equals(snapshot.fingerprint()) || snapshot.paths() == null) {
+                log.info("Path snapshot {} is stale, controllers will be scanned.", file);
+                return Optional.empty();
+            }
+            return Optional.of(snapshot.paths());
+        } catch (IOException e) {
+            log.warn("Unable to read the path snapshot {}, controllers will be scanned: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes the snapshot. The file is replaced atomically, so that concurrent instances never read a partial one.
+     *
+     * @param file        the snapshot file
+     * @param fingerprint the fingerprint of the current controllers
+     * @param paths       the discovered path configurations
+     */
+    public void write(Path file, String fingerprint, List<PathConfiguration> paths) {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            if (Files.notExists(directory) && supportsPosix(directory)) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+            } else {
+                Files.createDirectories(directory);
+            }
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                objectMapper.writeValue(temp.toFile(), new Snapshot(fingerprint, paths));
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            log.debug("Path snapshot written to {}", file);
+        } catch (IOException e) {
+            log.warn("Unable to write the path snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the snapshot is owned by the current user and can be replaced by its owner only. Without POSIX
+     * permissions only the owner is checked.
+     */
+    private boolean isTrusted(Path file) {
+        try {
+            Path realFile = file.toRealPath();
+            if (!System.getProperty("user.name").equals(Files.getOwner(realFile).getName())) {
+                return false;
+            }
+            if (!supportsPosix(realFile)) {
+                return true;
+            }
+            return !isWritableByOthers(realFile) && !isWritableByOthers(realFile.getParent());
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            log.debug("Unable to check the owner of the path snapshot {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isWritableByOthers(Path path) throws IOException {
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path);
+        return permissions.contains(PosixFilePermission.GROUP_WRITE) || permissions.contains(PosixFilePermission.OTHERS_WRITE);
+    }
+
+    private boolean supportsPosix(Path path) {
+        Path existing = path;
+        while (existing != null && Files.notExists(existing)) {
+            existing = existing.getParent();
+        }
+        return existing != null && existing.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    private void updateBytecode(MessageDigest digest, Class<?> type) {
+        ClassLoader classLoader = type.getClassLoader();
+        String resource = ClassUtils.convertClassNameToResourcePath(type.getName()) + ClassUtils.CLASS_FILE_SUFFIX;
+        try (InputStream is = classLoader != null ? classLoader.getResourceAsStream(resource) : null) {
+            if (is != null) {
+                digest.update(is.readAllBytes());
+            }
+        } catch (IOException e) {
+            log.debug("Unable to read the bytecode of {}: {}", type.getName(), e.getMessage());
+        }
+    }
+
+    private void collectHierarchy(Class<?> type, Map<String, Class<?>> classes) {
+        if (type == null || type == Object.class || classes.putIfAbsent(type.getName(), type) != null) {
+            return;
+        }
+        collectHierarchy(type.getSuperclass(), classes);
+        for (Class<?> anInterface : type.getInterfaces()) {
+            collectHierarchy(anInterface, classes);
+        }
+    }
+
+    private void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Snapshot(String fingerprint, List<PathConfiguration> paths) {
+    }
+}
@@ -0,0 +1,171 @@
+package it.maconsulting.kcautoconf.services;
+
+import it.maconsulting.kcautoconf.metrics.AutoconfigurationMetrics;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Picks the source of the discovered paths, in order: the compile time index, the snapshot of a previous
+ * discovery, then the handler methods registered by Spring MVC or the scan of the controllers.<br>
+ * The index is used when its controllers are controllers of the application, and the controllers it does not cover
+ * are scanned; the snapshot is used when its fingerprint matches the controllers, and it is written again after a
+ * scan.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class PathDiscovery {
+
+    public static final String HANDLER_MAPPING_DISCOVERY = "handler-mapping";
+
+    private static final String HANDLER_MAPPING_CLASS =
+            "org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping";
+
+    private final ApplicationContext context;
+
+    private final List<SwaggerOperationService> swaggerOperationServices;
+
+    private final AutoconfigurationMetrics metrics;
+
+    private final Options options;
+
+    private final PathConfigurationIndexReader pathConfigurationIndexReader = new PathConfigurationIndexReader();
+
+    private final PathConfigurationSnapshot pathConfigurationSnapshot = new PathConfigurationSnapshot();
+
+    /**
+     * @return the discovered paths, in the order of their source
+     */
+    public List<PathConfiguration> discover() {
+        long start = System.nanoTime();
+        if (options.pathIndexEnabled()) {
+            Map<String, Class<?>> controllers = findControllers();
+            Set<String> controllerNames = controllers.values().stream().map(Class::getName).collect(Collectors.toSet());
+            Optional<PathConfigurationIndexReader.IndexedPaths> indexedPaths =
+                    pathConfigurationIndexReader.read(getClassLoader(), controllerNames);
+            if (indexedPaths.isPresent()) {
+                List<PathConfiguration> pathConfigurations = mergeNotIndexedControllers(indexedPaths.get(), controllers);
+                metrics.recordScan("index", System.nanoTime() - start, pathConfigurations);
+                return pathConfigurations;
+            }
+        }
+
+        String fingerprint = null;
+        Path snapshotPath = options.snapshotPath();
+        if (snapshotPath != null) {
+            fingerprint = pathConfigurationSnapshot.fingerprint(new ArrayList<>(findControllers().values()), options.discovery(),
+                    swaggerOperationServices.stream().findFirst().map(swagger -> swagger.getClass().getName()).orElse(null),
+                    isHandlerMappingDiscovery() ? describeHandlerMappings() : null);
+            Optional<List<PathConfiguration>> snapshotPaths = pathConfigurationSnapshot.read(snapshotPath, fingerprint);
+            if (snapshotPaths.isPresent()) {
+                log.info("Loaded {} paths from the snapshot {}, controllers scan skipped.", snapshotPaths.get().size(), snapshotPath);
+                metrics.recordScan("snapshot", System.nanoTime() - start, snapshotPaths.get());
+                return snapshotPaths.get();
+            }
+        }
+
+        List<PathConfiguration> pathConfigurations = null;
+        String source = "controllers";
+        if (isHandlerMappingDiscovery()) {
+            Map<String, RequestMappingHandlerMapping> handlerMappings = context.getBeansOfType(RequestMappingHandlerMapping.class);
+            if (!handlerMappings.isEmpty()) {
+                pathConfigurations = new ControllerPathScanner(swaggerOperationServices).scanHandlerMappings(handlerMappings.values());
+                source = HANDLER_MAPPING_DISCOVERY;
+            } else {
+                log.warn("No RequestMappingHandlerMapping found, falling back to the controllers scan.");
+            }
+        }
+        if (pathConfigurations == null) {
+            pathConfigurations = new ControllerPathScanner(swaggerOperationServices)
+                    .scanControllers(findControllers(), options.scanParallelism());
+        }
+        metrics.recordScan(source, System.nanoTime() - start, pathConfigurations);
+
+        if (fingerprint != null) {
+            pathConfigurationSnapshot.write(snapshotPath, fingerprint, pathConfigurations);
+        }
+        return pathConfigurations;
+    }
+
+    /**
+     * Scans the controllers not covered by the compile time indexes, ie. the ones compiled after an incremental
+     * build or in a module without the annotation processor, and merges their paths with the indexed ones.
+     */
+    private List<PathConfiguration> mergeNotIndexedControllers(PathConfigurationIndexReader.IndexedPaths indexedPaths,
+                                                               Map<String, Class<?>> controllers) {
+        Map<String, Class<?>> notIndexed = new LinkedHashMap<>(controllers);
+        notIndexed.values().removeIf(type -> indexedPaths.controllers().contains(type.getName()));
+        if (notIndexed.isEmpty()) {
+            log.info("Loaded {} paths from the compile time index, controllers scan skipped.", indexedPaths.paths().size());
+            return indexedPaths.paths();
+        }
+        log.info("Loaded {} paths from the compile time index, scanning the {} controllers not indexed.",
+                indexedPaths.paths().size(), notIndexed.size());
+        ControllerPathScanner scanner = new ControllerPathScanner(swaggerOperationServices);
+        return scanner.merge(indexedPaths.paths(), scanner.scanControllers(notIndexed, options.scanParallelism()));
+    }
+
+    /**
+     * Finds the controller classes from the bean definitions, without instantiating the controllers, so that
+     * lazy initialized controllers (ie. with {@code spring.main.lazy-initialization}) stay uninitialized.
+     * Only the controllers whose class cannot be predicted, or that are already exposed through a JDK proxy,
+     * are looked up as beans.
+     */
+    private Map<String, Class<?>> findControllers() {
+        Map<String, Class<?>> controllers = new LinkedHashMap<>();
+        for (String beanName : context.getBeanNamesForAnnotation(RestController.class)) {
+            Class<?> type = context.getType(beanName, false);
+            if (type == null || Proxy.isProxyClass(type)) {
+                log.debug("Type of controller {} not predictable, bean instantiated", beanName);
+                type = AopUtils.getTargetClass(context.getBean(beanName));
+            }
+            controllers.put(beanName, ClassUtils.getUserClass(type));
+        }
+        return controllers;
+    }
+
+    private boolean isHandlerMappingDiscovery() {
+        return HANDLER_MAPPING_DISCOVERY.equals(options.discovery()) && ClassUtils.isPresent(HANDLER_MAPPING_CLASS, getClassLoader());
+    }
+
+    /**
+     * Describes the mappings registered by Spring MVC, so that the snapshot fingerprint changes with the patterns
+     * resolved from the properties ({@code ${...}}) and with the path prefixes of the handler mappings.
+     */
+    private String describeHandlerMappings() {
+        return context.getBeansOfType(RequestMappingHandlerMapping.class).values().stream()
+                .flatMap(handlerMapping -> handlerMapping.getHandlerMethods().keySet().stream())
+                .map(Object::toString)
+                .sorted()
+                .collect(Collectors.joining("\n"));
+    }
+
+    private ClassLoader getClassLoader() {
+        ClassLoader classLoader = context.getClassLoader();
+        return classLoader != null ? classLoader : ClassUtils.getDefaultClassLoader();
+    }
+
+    /**
+     * @param pathIndexEnabled whether the compile time index is loaded ({@code kcautoconf.path-index.enabled})
+     * @param discovery        {@value #HANDLER_MAPPING_DISCOVERY} to read the handler methods registered by Spring
+     *                         MVC, anything else to scan the controllers ({@code kcautoconf.discovery})
+     * @param scanParallelism  how many threads scan the controllers ({@code kcautoconf.scan.parallelism})
+     * @param snapshotPath     the snapshot file, or {@code null} when the snapshot is disabled
+     *                         ({@code kcautoconf.snapshot.path})
+     */
+    public record Options(boolean pathIndexEnabled, String discovery, int scanParallelism, Path snapshotPath) {
+    }
+}
@@ -0,0 +1,256 @@
+package it.maconsulting.kcautoconf.services;
+
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import org.springframework.web.util.pattern.PatternParseException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Orders the discovered paths from the most to the least specific one, so that the first path matching a request
+ * is also the best one: literal paths come before the paths with variables, that come before the ones with
+ * wildcards, as for Spring MVC ({@link PathPattern#SPECIFICITY_COMPARATOR}). Paths with the same specificity are
+ * ordered by pattern, so the order does not depend on how the paths were discovered.<br>
+ * Repeated and trailing slashes are removed from the paths before they are sorted. Patterns that Spring cannot
+ * parse are kept, in their order, after the other ones.
+ * <p>
+ * The sorted paths can be checked for overlaps, reported once at startup:
+ * <ul>
+ *     <li>a path is <em>shadowed</em> when a path before it matches all of its requests, so it is never matched
+ *     first, ie. {@code /cars/*} after {@code /cars/{id}};</li>
+ *     <li>two paths are <em>ambiguous</em> when they have the same specificity and some requests match both, so
+ *     which one is matched first depends on their pattern only, ie. {@code /cars/{id}/tag} and
+ *     {@code /cars/new/{part}}.</li>
+ * </ul>
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+public class PathSpecificitySorter {
+
+    private static final Pattern REPEATED_SLASHES = Pattern.compile("/{2,}");
+
+    private final PathPatternParser parser = PathPatternParser.defaultInstance;
+
+    /**
+     * Sorts the paths in place.
+     *
+     * @param paths the discovered paths
+     */
+    public void sort(List<PathConfiguration> paths) {
+        List<ParsedPath> parsed = new ArrayList<>(paths.size());
+        List<PathConfiguration> unparsable = new ArrayList<>();
+        for (PathConfiguration path : paths) {
+            path.setPath(normalize(path.getPath()));
+            ParsedPath parsedPath = parse(path);
+            if (parsedPath != null) {
+                parsed.add(parsedPath);
+            } else {
+                unparsable.add(path);
+            }
+        }
+        parsed.sort(Comparator.comparing(ParsedPath::pattern, PathPattern.SPECIFICITY_COMPARATOR)
+                .thenComparing(ParsedPath::patternString));
+
+        paths.clear();
+        parsed.forEach(path -> paths.add(path.configuration()));
+        paths.addAll(unparsable);
+    }
+
+    /**
+     * Finds and logs the overlaps between the sorted paths. Each path is only compared with the paths before it
+     * whose literal prefix (the segments before the first variable or wildcard) is a prefix of its own, or extends
+     * it, found through a tree of the literal segments, so the paths under different literal prefixes are never
+     * compared.
+     *
+     * @param paths the paths, as sorted by {@link #sort(List)}
+     * @return the overlaps between the paths
+     */
+    public SortResult findOverlaps(List<PathConfiguration> paths) {
+        List<Overlap> shadowed = new ArrayList<>();
+        List<Overlap> ambiguous = new ArrayList<>();
+        PrefixNode root = new PrefixNode();
+        int index = 0;
+        for (PathConfiguration path : paths) {
+            ParsedPath other = parse(path);
+            if (other == null) {
+                continue;
+            }
+            List<IndexedPath> candidates = root.candidates(other.literalPrefix());
+            candidates.sort(Comparator.comparingInt(IndexedPath::index));
+            for (IndexedPath candidate : candidates) {
+                ParsedPath before = candidate.path();
+                if (covers(before, other)) {
+                    shadowed.add(new Overlap(other.patternString(), before.patternString()));
+                } else if (PathPattern.SPECIFICITY_COMPARATOR.compare(before.pattern(), other.pattern()) == 0
+                        && overlap(before.segments(), other.segments())) {
+                    ambiguous.add(new Overlap(other.patternString(), before.patternString()));
+                }
+            }
+            root.add(other.literalPrefix(), new IndexedPath(index++, other));
+        }
+
+        SortResult result = new SortResult(List.copyOf(shadowed), List.copyOf(ambiguous));
+        if (!result.shadowed().isEmpty() || !result.ambiguous().isEmpty()) {
+            StringBuilder report = new StringBuilder();
+            result.shadowed().forEach(overlap -> report.append(System.lineSeparator()).append("  shadowed: ").append(overlap));
+            result.ambiguous().forEach(overlap -> report.append(System.lineSeparator()).append("  ambiguous: ").append(overlap));
+            log.warn("{} shadowed and {} ambiguous discovered paths:{}", result.shadowed().size(),
+                    result.ambiguous().size(), report);
+        }
+        return result;
+    }
+
+    private ParsedPath parse(PathConfiguration path) {
+        if (path.getPath() == null) {
+            return null;
+        }
+        try {
+            return new ParsedPath(path, parser.parse(path.getPath()));
+        } catch (PatternParseException e) {
+            log.debug("Path {} is not a Spring path pattern, not sorted: {}", path.getPath(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Whether the pattern matches its own text of the other one, ie. whether its variables and wildcards stand
+     * where the other pattern has variables, wildcards or literals.
+     */
+    private boolean covers(ParsedPath path, ParsedPath other) {
+        return path.pattern().matches(PathContainer.parsePath(other.patternString()));
+    }
+
+    /**
+     * Whether some request matches both patterns, checked segment by segment. Patterns spanning multiple segments
+     * ({@code **} and {@code {*name}}) are covered by {@link #covers(ParsedPath, ParsedPath)} only.
+     */
+    private boolean overlap(String[] segments, String[] otherSegments) {
+        if (segments.length != otherSegments.length) {
+            return false;
+        }
+        for (int i = 0; i < segments.length; i++) {
+            if (isMultiSegment(segments[i]) || isMultiSegment(otherSegments[i])) {
+                return false;
+            }
+            if (!segments[i].equals(otherSegments[i]) && !isVariable(segments[i]) && !isVariable(otherSegments[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.indexOf('{') != -1 || segment.indexOf('*') != -1 || segment.indexOf('?') != -1;
+    }
+
+    private static boolean isMultiSegment(String segment) {
+        return segment.equals("**") || segment.startsWith("{*");
+    }
+
+    /**
+     * @param path the path pattern
+     * @return the pattern without repeated and trailing slashes
+     */
+    private static String normalize(String path) {
+        if (path == null) {
+            return null;
+        }
+        String normalized = REPEATED_SLASHES.matcher(path).replaceAll("/");
+        return normalized.length() > 1 && normalized.endsWith("/") ? normalized.substring(0, normalized.length() - 1) : normalized;
+    }
+
+    private record ParsedPath(PathConfiguration configuration, PathPattern pattern, String[] segments) {
+
+        private ParsedPath(PathConfiguration configuration, PathPattern pattern) {
+            this(configuration, pattern, pattern.getPatternString().split("/", -1));
+        }
+
+        private String patternString() {
+            return pattern.getPatternString();
+        }
+
+        /**
+         * @return the segments before the first variable or wildcard
+         */
+        private List<String> literalPrefix() {
+            List<String> prefix = new ArrayList<>();
+            for (String segment : segments) {
+                if (isVariable(segment)) {
+                    break;
+                }
+                prefix.add(segment);
+            }
+            return prefix;
+        }
+    }
+
+    private record IndexedPath(int index, ParsedPath path) {
+    }
+
+    /**
+     * A literal segment of the tree, with the paths whose literal prefix ends with it.
+     */
+    private static final class PrefixNode {
+        private final Map<String, PrefixNode> children = new HashMap<>();
+        private final List<IndexedPath> paths = new ArrayList<>();
+
+        private void add(List<String> prefix, IndexedPath path) {
+            PrefixNode node = this;
+            for (String segment : prefix) {
+                node = node.children.computeIfAbsent(segment, key -> new PrefixNode());
+            }
+            node.paths.add(path);
+        }
+
+        /**
+         * @return the paths along the given prefix, and the ones under it
+         */
+        private List<IndexedPath> candidates(List<String> prefix) {
+            List<IndexedPath> candidates = new ArrayList<>(paths);
+            PrefixNode node = this;
+            for (String segment : prefix) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    return candidates;
+                }
+                candidates.addAll(node.paths);
+            }
+            node.children.values().forEach(child -> child.collect(candidates));
+            return candidates;
+        }
+
+        private void collect(List<IndexedPath> candidates) {
+            candidates.addAll(paths);
+            children.values().forEach(child -> child.collect(candidates));
+        }
+    }
+
+    /**
+     * @param shadowed  the paths never matched first, since a path before them matches all their requests
+     * @param ambiguous the paths with the same specificity of a path before them, matching some of its requests
+     */
+    public record SortResult(List<Overlap> shadowed, List<Overlap> ambiguous) {
+    }
+
+    /**
+     * @param path  the overlapped path
+     * @param other the path before it, matching its requests
+     */
+    public record Overlap(String path, String other) {
+
+        @Override
+        public String toString() {
+            return path + " by " + other;
+        }
+    }
+}
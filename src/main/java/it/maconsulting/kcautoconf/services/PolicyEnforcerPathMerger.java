@@ -0,0 +1,208 @@
+package it.maconsulting.kcautoconf.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Merges the discovered paths into the paths already declared in the {@link PolicyEnforcerConfig} (ie. in the
+ * application.yml), so that each path pattern is configured only once.<br>
+ * The declared paths are indexed by normalized pattern: trailing and repeated slashes are ignored, as are the names
+ * of the path variables, so {@code /cars/{id}/} and {@code /cars/{carId}} are the same path. The methods of the
+ * same path are merged per http verb. When the same verb requires different scopes, the {@link Precedence} decides
+ * which ones are kept, and the conflict is reported.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+public class PolicyEnforcerPathMerger {
+
+    private static final Pattern PATH_VARIABLE = Pattern.compile("\\{[^/]+}");
+
+    private static final Pattern REPEATED_SLASHES = Pattern.compile("/{2,}");
+
+    private final Precedence precedence;
+
+    public PolicyEnforcerPathMerger(Precedence precedence) {
+        this.precedence = precedence;
+    }
+
+    /**
+     * Merges the discovered paths into the declared ones. The declared paths are updated in place, and the
+     * discovered paths that are not declared are appended to the list.
+     *
+     * @param declaredPaths   the paths of the enforcer configuration
+     * @param discoveredPaths the paths found by the autoconfiguration
+     * @return the outcome of the merge
+     */
+    public MergeResult merge(List<PolicyEnforcerConfig.PathConfig> declaredPaths,
+                             List<PolicyEnforcerConfig.PathConfig> discoveredPaths) {
+        return merge(declaredPaths, discoveredPaths, path -> false);
+    }
+
+    /**
+     * Merges the discovered paths into the declared ones. The declared paths are updated in place, and the
+     * discovered paths that are not declared are appended to the list.<br>
+     * A {@link PolicyEnforcerConfig.PathConfig} is always {@code ENFORCING} unless told otherwise, so the enforcement
+     * mode of a discovered path can only replace the declared one when it was set by an annotation
+     * (ie. {@code @PublicEndpoint}).
+     *
+     * @param declaredPaths           the paths of the enforcer configuration
+     * @param discoveredPaths         the paths found by the autoconfiguration
+     * @param explicitEnforcementMode tells whether the enforcement mode of a discovered path was set by an annotation
+     * @return the outcome of the merge
+     */
+    public MergeResult merge(List<PolicyEnforcerConfig.PathConfig> declaredPaths,
+                             List<PolicyEnforcerConfig.PathConfig> discoveredPaths,
+                             Predicate<PolicyEnforcerConfig.PathConfig> explicitEnforcementMode) {
+        Map<String, PolicyEnforcerConfig.PathConfig> index = new HashMap<>((declaredPaths.size() + discoveredPaths.size()) * 4 / 3 + 1);
+        for (PolicyEnforcerConfig.PathConfig declared : declaredPaths) {
+            index.putIfAbsent(normalize(declared.getPath()), declared);
+        }
+
+        int added = 0;
+        int merged = 0;
+        List<Conflict> conflicts = new ArrayList<>();
+        for (PolicyEnforcerConfig.PathConfig discovered : discoveredPaths) {
+            PolicyEnforcerConfig.PathConfig declared = index.putIfAbsent(normalize(discovered.getPath()), discovered);
+            if (declared == null) {
+                declaredPaths.add(discovered);
+                added++;
+            } else {
+                mergePath(declared, discovered, explicitEnforcementMode.test(discovered), conflicts);
+                merged++;
+            }
+        }
+
+        MergeResult result = new MergeResult(added, merged, conflicts);
+        if (!conflicts.isEmpty()) {
+            StringBuilder report = new StringBuilder();
+            for (Conflict conflict : conflicts) {
+                report.append(System.lineSeparator()).append("  ").append(conflict);
+            }
+            log.warn("{} conflicts between the declared and the discovered paths, resolved with precedence {}:{}",
+                    conflicts.size(), precedence, report);
+        }
+        log.debug("Paths merged: {} added, {} merged into the declared ones.", added, merged);
+        return result;
+    }
+
+    private void mergePath(PolicyEnforcerConfig.PathConfig declared, PolicyEnforcerConfig.PathConfig discovered,
+                           boolean explicitEnforcementMode, List<Conflict> conflicts) {
+        boolean discoveredWins = precedence == Precedence.ANNOTATIONS;
+        if (declared.getName() == null || discoveredWins && discovered.getName() != null) {
+            declared.setName(discovered.getName());
+        }
+        if (declared.getId() == null) {
+            declared.setId(discovered.getId());
+        }
+        if (explicitEnforcementMode && (declared.getEnforcementMode() == null || discoveredWins)) {
+            declared.setEnforcementMode(discovered.getEnforcementMode());
+        }
+
+        List<PolicyEnforcerConfig.MethodConfig> methods = new ArrayList<>(declared.getMethods());
+        Map<String, PolicyEnforcerConfig.MethodConfig> methodsByVerb = new HashMap<>();
+        for (PolicyEnforcerConfig.MethodConfig method : methods) {
+            methodsByVerb.putIfAbsent(verb(method), method);
+        }
+        for (PolicyEnforcerConfig.MethodConfig method : discovered.getMethods()) {
+            PolicyEnforcerConfig.MethodConfig declaredMethod = methodsByVerb.putIfAbsent(verb(method), method);
+            if (declaredMethod == null) {
+                methods.add(method);
+            } else if (!new LinkedHashSet<>(declaredMethod.getScopes()).equals(new LinkedHashSet<>(method.getScopes()))) {
+                conflicts.add(new Conflict(declared.getPath(), verb(method),
+                        declaredMethod.getScopes(), method.getScopes(), precedence));
+                if (precedence == Precedence.ANNOTATIONS) {
+                    declaredMethod.setScopes(method.getScopes());
+                } else if (precedence == Precedence.UNION) {
+                    LinkedHashSet<String> scopes = new LinkedHashSet<>(declaredMethod.getScopes());
+                    scopes.addAll(method.getScopes());
+                    declaredMethod.setScopes(new ArrayList<>(scopes));
+                }
+            }
+        }
+        declared.setMethods(methods);
+    }
+
+    private String verb(PolicyEnforcerConfig.MethodConfig method) {
+        return method.getMethod() != null ? method.getMethod().toUpperCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * @param path the path pattern
+     * @return the key identifying the pattern, regardless of trailing and repeated slashes and path variable names
+     */
+    public static String normalize(String path) {
+        if (path == null) {
+            return "";
+        }
+        String normalized = REPEATED_SLASHES.matcher(path.trim()).replaceAll("/");
+        if (normalized.length() > 1 && normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        if (!normalized.startsWith("/")) {
+            normalized = "/" + normalized;
+        }
+        return PATH_VARIABLE.matcher(normalized).replaceAll("{}");
+    }
+
+    /**
+     * Which scopes are kept when the same http verb of a path requires different scopes.
+     */
+    public enum Precedence {
+        /**
+         * The scopes declared in the enforcer configuration are kept.
+         */
+        YAML,
+        /**
+         * The scopes found by the autoconfiguration replace the declared ones.
+         */
+        ANNOTATIONS,
+        /**
+         * Both the declared and the discovered scopes are required.
+         */
+        UNION;
+
+        /**
+         * @param value the precedence name, case insensitive, or {@code null} for {@link #YAML}
+         */
+        public static Precedence of(String value) {
+            if (value == null) {
+                return YAML;
+            }
+            for (Precedence precedence : values()) {
+                if (precedence.name().equalsIgnoreCase(value.trim())) {
+                    return precedence;
+                }
+            }
+            throw new IllegalArgumentException("Unknown merge precedence: " + value + ", expected yaml, annotations or union");
+        }
+    }
+
+    /**
+     * @param added     the number of discovered paths appended to the declared ones
+     * @param merged    the number of discovered paths merged into a declared one
+     * @param conflicts the http verbs declared and discovered with different scopes
+     */
+    public record MergeResult(int added, int merged, List<Conflict> conflicts) {
+    }
+
+    public record Conflict(String path, String method, List<String> declaredScopes, List<String> discoveredScopes,
+                           Precedence resolution) {
+
+        @Override
+        public String toString() {
+            return method + " " + path + ": declared " + declaredScopes + ", discovered " + discoveredScopes
+                    + ", resolved with " + resolution;
+        }
+    }
+}
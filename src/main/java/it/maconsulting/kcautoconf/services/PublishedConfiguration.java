@@ -0,0 +1,20 @@
+package it.maconsulting.kcautoconf.services;
+
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+
+import java.time.Instant;
+
+/**
+ * An enforcer configuration published by the {@link AutoconfigurationService}, holding the declared and the
+ * discovered paths.<br>
+ * Every publication is a new {@link PolicyEnforcerConfig} instance, never changed by the library once published:
+ * a refresh publishes a new one, so the enforcers built on a configuration never see it half updated.
+ *
+ * @param version              the publication number, starting from 1
+ * @param policyEnforcerConfig the configuration
+ * @param publishedAt          when the configuration was published
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+public record PublishedConfiguration(long version, PolicyEnforcerConfig policyEnforcerConfig, Instant publishedAt) {
+}
@@ -0,0 +1,186 @@
+package it.maconsulting.kcautoconf.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves the Keycloak resource ids of the discovered paths through the Protection API, so that the enforcer
+ * does not need to look them up on the first request to each path.<br>
+ * The lookups run concurrently on a bounded pool, and transient failures (connection errors, {@code 429} and
+ * {@code 5xx} responses) are retried with an exponential backoff. Paths that cannot be resolved keep a {@code null}
+ * id, and are lazy loaded by the enforcer as usual.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@Slf4j
+public class ResourceIdResolver {
+
+    private final HttpClient httpClient;
+
+    private final int concurrency;
+
+    private final int maxAttempts;
+
+    private final Duration backoff;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @param httpClient  the client used to call Keycloak
+     * @param concurrency the maximum number of concurrent lookups
+     * @param maxAttempts the maximum number of attempts of each call
+     * @param backoff     the wait before the first retry, doubled on each following one
+     */
+    public ResourceIdResolver(HttpClient httpClient, int concurrency, int maxAttempts, Duration backoff) {
+        this.httpClient = httpClient;
+        this.concurrency = Math.max(1, concurrency);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoff = backoff;
+    }
+
+    /**
+     * Fills the id of the given paths, when not already set.
+     *
+     * @param policyEnforcerConfig the enforcer configuration, holding the Keycloak coordinates and the client credentials
+     * @param paths                the paths to resolve
+     * @return the number of resolved paths
+     */
+    public int resolve(PolicyEnforcerConfig policyEnforcerConfig, List<PolicyEnforcerConfig.PathConfig> paths) {
+        List<PolicyEnforcerConfig.PathConfig> unresolved = paths.stream()
+                .filter(path -> path.getId() == null)
+                .filter(path -> path.getEnforcementMode() != PolicyEnforcerConfig.EnforcementMode.DISABLED)
+                .toList();
+        Object secret = policyEnforcerConfig.getCredentials() != null ? policyEnforcerConfig.getCredentials().get("secret") : null;
+        if (unresolved.isEmpty() || policyEnforcerConfig.getAuthServerUrl() == null || secret == null) {
+            log.info("Resource ids warm-up skipped: no paths to resolve, or no server url or client secret configured.");
+            return 0;
+        }
+
+        String realmUrl = policyEnforcerConfig.getAuthServerUrl().replaceAll("/+$", "") + "/realms/" + encode(policyEnforcerConfig.getRealm());
+        String token;
+        try {
+            token = fetchToken(realmUrl, policyEnforcerConfig.getResource(), secret.toString());
+        } catch (IOException e) {
+            log.warn("Resource ids warm-up skipped, unable to obtain the protection API token: {}", e.getMessage());
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+
+        AtomicInteger resolved = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, unresolved.size()), runnable -> {
+            Thread thread = new Thread(runnable, "kcautoconf-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> lookups = new ArrayList<>(unresolved.size());
+            for (PolicyEnforcerConfig.PathConfig path : unresolved) {
+                lookups.add(executor.submit(() -> {
+                    if (resolveId(realmUrl, token, path)) {
+                        resolved.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> lookup : lookups) {
+                lookup.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Resource ids warm-up interrupted: {}", e.getCause().toString());
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("Resource ids warm-up resolved {} of {} paths.", resolved.get(), unresolved.size());
+        return resolved.get();
+    }
+
+    private boolean resolveId(String realmUrl, String token, PolicyEnforcerConfig.PathConfig path) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(realmUrl + "/authz/protection/resource_set?matchingUri=false&deep=false&max=1&uri="
+                        + encode(path.getPath())))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+        try {
+            JsonNode ids = send(request);
+            if (ids.isArray() && !ids.isEmpty()) {
+                path.setId(ids.get(0).asText());
+                log.debug("Resolved resource {} for path {}", path.getId(), path.getPath());
+                return true;
+            }
+            log.debug("No resource found for path {}", path.getPath());
+        } catch (IOException e) {
+            log.debug("Unable to resolve the resource of path {}: {}", path.getPath(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private String fetchToken(String realmUrl, String clientId, String secret) throws IOException, InterruptedException {
+        String form = "grant_type=client_credentials&client_id=" + encode(clientId) + "&client_secret=" + encode(secret);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(realmUrl + "/protocol/openid-connect/token"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        JsonNode token = send(request).get("access_token");
+        if (token == null) {
+            throw new IOException("no access token in the response");
+        }
+        return token.asText();
+    }
+
+    /**
+     * Sends the request, retrying the transient failures.
+     */
+    private JsonNode send(HttpRequest request) throws IOException, InterruptedException {
+        IOException failure = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (attempt > 1) {
+                Thread.sleep(backoff.toMillis() << (attempt - 2));
+            }
+            try {
+                HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                int status = response.statusCode();
+                if (status >= 200 && status < 300) {
+                    return objectMapper.readTree(response.body());
+                }
+                failure = new IOException(request.method() + " " + request.uri().getPath() + " returned " + status);
+                if (status != 429 && status < 500) {
+                    throw failure;
+                }
+            } catch (IOException e) {
+                if (e == failure) {
+                    throw e;
+                }
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    private String encode(String value) {
+        return URLEncoder.encode(String.valueOf(value), StandardCharsets.UTF_8);
+    }
+}
@@ -1,7 +1,10 @@
 package it.maconsulting.kcautoconf.services;
 
+import it.maconsulting.kcautoconf.model.OperationDescriptor;
+
 import java.lang.reflect.Method;
 import java.util.List;
+import java.util.function.Predicate;
 
 public interface SwaggerOperationService {
 
@@ -25,4 +28,17 @@ public interface SwaggerOperationService {
      * @return the display name of the method
      */
     String getDisplayName(Method method);
+
+    /**
+     * Gets scopes, name and display name of the method, looking up its annotation only once.
+     * Blank scopes are discarded.
+     * @param method the method to describe
+     * @return the operation descriptor
+     */
+    default OperationDescriptor describe(Method method) {
+        return new OperationDescriptor(
+                getScopes(method).stream().filter(Predicate.not(String::isBlank)).toList(),
+                getName(method),
+                getDisplayName(method));
+    }
 }
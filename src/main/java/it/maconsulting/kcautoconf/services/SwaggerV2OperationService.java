@@ -4,14 +4,16 @@ import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.Authorization;
 import io.swagger.annotations.AuthorizationScope;
 import it.maconsulting.kcautoconf.conditions.SwaggerV2Condition;
+import it.maconsulting.kcautoconf.model.OperationDescriptor;
 import org.springframework.context.annotation.Conditional;
-import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.stereotype.Service;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * @author Michele Arciprete
@@ -21,7 +23,29 @@ import java.util.List;
 public class SwaggerV2OperationService implements SwaggerOperationService {
 
     public List<String> getScopes(Method method) {
-        final ApiOperation apiOperationAnnotation = AnnotationUtils.getAnnotation(method, ApiOperation.class);
+        return getScopes(AnnotatedElementUtils.findMergedAnnotation(method, ApiOperation.class));
+    }
+
+    @Override
+    public String getName(Method method) {
+        return getName(method, AnnotatedElementUtils.findMergedAnnotation(method, ApiOperation.class));
+    }
+
+    @Override
+    public String getDisplayName(Method method) {
+        return getDisplayName(method, AnnotatedElementUtils.findMergedAnnotation(method, ApiOperation.class));
+    }
+
+    @Override
+    public OperationDescriptor describe(Method method) {
+        final ApiOperation apiOperationAnnotation = AnnotatedElementUtils.findMergedAnnotation(method, ApiOperation.class);
+        return new OperationDescriptor(
+                getScopes(apiOperationAnnotation).stream().filter(Predicate.not(String::isBlank)).toList(),
+                getName(method, apiOperationAnnotation),
+                getDisplayName(method, apiOperationAnnotation));
+    }
+
+    private List<String> getScopes(ApiOperation apiOperationAnnotation) {
         if (apiOperationAnnotation != null) {
             List<AuthorizationScope[]> scopes = Arrays.stream(apiOperationAnnotation.authorizations()).map(Authorization::scopes).toList();
             return scopes.stream().flatMap(inner -> Arrays.stream(inner).map(AuthorizationScope::scope)).toList();
@@ -30,9 +54,7 @@ public class SwaggerV2OperationService implements SwaggerOperationService {
         }
     }
 
-    @Override
-    public String getName(Method method) {
-        final ApiOperation apiOperationAnnotation = AnnotationUtils.getAnnotation(method, ApiOperation.class);
+    private String getName(Method method, ApiOperation apiOperationAnnotation) {
         String name = method.getName();
         if (apiOperationAnnotation != null &&
                 apiOperationAnnotation.nickname() != null &&
@@ -42,9 +64,7 @@ public class SwaggerV2OperationService implements SwaggerOperationService {
         return name;
     }
 
-    @Override
-    public String getDisplayName(Method method) {
-        final ApiOperation apiOperationAnnotation = AnnotationUtils.getAnnotation(method, ApiOperation.class);
+    private String getDisplayName(Method method, ApiOperation apiOperationAnnotation) {
         String name = method.getName();
         if (apiOperationAnnotation != null &&
                 apiOperationAnnotation.value() != null &&
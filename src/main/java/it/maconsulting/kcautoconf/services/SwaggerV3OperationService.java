@@ -2,21 +2,45 @@ package it.maconsulting.kcautoconf.services;
 
 import io.swagger.v3.oas.annotations.Operation;
 import it.maconsulting.kcautoconf.conditions.SwaggerV3Condition;
+import it.maconsulting.kcautoconf.model.OperationDescriptor;
 import org.springframework.context.annotation.Conditional;
-import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.stereotype.Service;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Predicate;
 
 @Service
 @Conditional(SwaggerV3Condition.class)
 public class SwaggerV3OperationService implements SwaggerOperationService {
 
     public List<String> getScopes(Method method) {
-        final Operation apiOperationAnnotation = AnnotationUtils.getAnnotation(method, Operation.class);
+        return getScopes(AnnotatedElementUtils.findMergedAnnotation(method, Operation.class));
+    }
+
+    @Override
+    public String getName(Method method) {
+        return getName(method, AnnotatedElementUtils.findMergedAnnotation(method, Operation.class));
+    }
+
+    @Override
+    public String getDisplayName(Method method) {
+        return getDisplayName(method, AnnotatedElementUtils.findMergedAnnotation(method, Operation.class));
+    }
+
+    @Override
+    public OperationDescriptor describe(Method method) {
+        final Operation apiOperationAnnotation = AnnotatedElementUtils.findMergedAnnotation(method, Operation.class);
+        return new OperationDescriptor(
+                getScopes(apiOperationAnnotation).stream().filter(Predicate.not(String::isBlank)).toList(),
+                getName(method, apiOperationAnnotation),
+                getDisplayName(method, apiOperationAnnotation));
+    }
+
+    private List<String> getScopes(Operation apiOperationAnnotation) {
         if (apiOperationAnnotation != null) {
             return Arrays.stream(apiOperationAnnotation.security()).flatMap(scope -> Arrays.stream(scope.scopes())).toList();
         } else {
@@ -24,9 +48,7 @@ public class SwaggerV3OperationService implements SwaggerOperationService {
         }
     }
 
-    @Override
-    public String getName(Method method) {
-        final Operation apiOperationAnnotation = AnnotationUtils.getAnnotation(method, Operation.class);
+    private String getName(Method method, Operation apiOperationAnnotation) {
         String name = method.getName();
         if (apiOperationAnnotation != null &&
                 apiOperationAnnotation.operationId() != null &&
@@ -36,9 +58,7 @@ public class SwaggerV3OperationService implements SwaggerOperationService {
         return name;
     }
 
-    @Override
-    public String getDisplayName(Method method) {
-        final Operation apiOperationAnnotation = AnnotationUtils.getAnnotation(method, Operation.class);
+    private String getDisplayName(Method method, Operation apiOperationAnnotation) {
         String name = method.getName();
         if (apiOperationAnnotation != null &&
                 apiOperationAnnotation.description() != null &&
@@ -0,0 +1,170 @@
+package it.maconsulting.kcautoconf;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.maconsulting.kcautoconf.controller.ConfigurationExportController;
+import it.maconsulting.kcautoconf.pojo.AuthorizationSettingsDTO;
+import it.maconsulting.kcautoconf.services.KeycloakConfigurationGeneratorService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ConfigurationExportControllerTest {
+
+    @Mock
+    private KeycloakConfigurationGeneratorService keycloakConfigurationGeneratorService;
+
+    @Mock
+    private ObjectProvider<ObjectMapper> objectMapper;
+
+    private ConfigurationExportController sut;
+
+    @BeforeEach
+    void setup() {
+        AuthorizationSettingsDTO settings = new AuthorizationSettingsDTO();
+        settings.setDecisionStrategy("AFFIRMATIVE");
+        lenient().when(keycloakConfigurationGeneratorService.generateConfigurationAsJson()).thenReturn(settings);
+        when(objectMapper.getIfAvailable(any())).thenReturn(new ObjectMapper());
+        sut = new ConfigurationExportController(keycloakConfigurationGeneratorService, objectMapper);
+    }
+
+    @Test
+    void givenRepeatedRequests_configurationIsGeneratedOnce() {
+        ResponseEntity<byte[]> first = sut.configure(request(get()));
+        ResponseEntity<byte[]> second = sut.configure(request(get()));
+
+        Assertions.assertEquals(200, first.getStatusCode().value());
+        Assertions.assertArrayEquals(first.getBody(), second.getBody());
+        Assertions.assertTrue(new String(first.getBody()).contains("\"decisionStrategy\":\"AFFIRMATIVE\""));
+        verify(keycloakConfigurationGeneratorService, times(1)).generateConfigurationAsJson();
+    }
+
+    @Test
+    void givenMatchingETag_notModifiedIsReturned() {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        sut.configure(new ServletWebRequest(get(), first));
+        String eTag = first.getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotNull(eTag);
+
+        MockHttpServletRequest conditional = get();
+        conditional.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Assertions.assertNull(sut.configure(new ServletWebRequest(conditional, response)));
+        Assertions.assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    void givenContextRefresh_configurationIsGeneratedAgain() {
+        sut.configure(request(get()));
+        sut.invalidate();
+        sut.configure(request(get()));
+
+        verify(keycloakConfigurationGeneratorService, times(2)).generateConfigurationAsJson();
+    }
+
+    @Test
+    void givenInvalidationDuringExport_staleConfigurationIsNotServed() {
+        AuthorizationSettingsDTO stale = new AuthorizationSettingsDTO();
+        stale.setDecisionStrategy("UNANIMOUS");
+        AuthorizationSettingsDTO refreshed = new AuthorizationSettingsDTO();
+        refreshed.setDecisionStrategy("AFFIRMATIVE");
+        when(keycloakConfigurationGeneratorService.generateConfigurationAsJson())
+                .thenAnswer(invocation -> {
+                    sut.invalidate();
+                    return stale;
+                })
+                .thenReturn(refreshed);
+
+        Assertions.assertTrue(new String(sut.configure(request(get())).getBody()).contains("UNANIMOUS"));
+        Assertions.assertTrue(new String(sut.configure(request(get())).getBody()).contains("AFFIRMATIVE"));
+        Assertions.assertTrue(new String(sut.configure(request(get())).getBody()).contains("AFFIRMATIVE"));
+        verify(keycloakConfigurationGeneratorService, times(2)).generateConfigurationAsJson();
+    }
+
+    @Test
+    void givenGzipEnabled_responseIsCompressed() throws IOException {
+        ReflectionTestUtils.setField(sut, "gzip", true);
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+
+        MockHttpServletResponse gzipResponse = new MockHttpServletResponse();
+        MockHttpServletResponse plainResponse = new MockHttpServletResponse();
+        ResponseEntity<byte[]> response = sut.configure(new ServletWebRequest(request, gzipResponse));
+        ResponseEntity<byte[]> plain = sut.configure(new ServletWebRequest(get(), plainResponse));
+
+        Assertions.assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertNotEquals(plainResponse.getHeader(HttpHeaders.ETAG), gzipResponse.getHeader(HttpHeaders.ETAG));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            Assertions.assertArrayEquals(plain.getBody(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void givenGzipRefused_responseIsNotCompressed() {
+        ReflectionTestUtils.setField(sut, "gzip", true);
+
+        for (String acceptEncoding : List.of("gzip;q=0, deflate", "deflate, GZIP ; Q=0.0", "*;q=0", "gzip;q=0, *")) {
+            MockHttpServletRequest request = get();
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+            ResponseEntity<byte[]> response = sut.configure(new ServletWebRequest(request, new MockHttpServletResponse()));
+            Assertions.assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING), acceptEncoding);
+        }
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "deflate;q=1, *;q=0.5");
+        ResponseEntity<byte[]> response = sut.configure(new ServletWebRequest(request, new MockHttpServletResponse()));
+        Assertions.assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void givenStreamingEnabled_configurationIsWrittenToTheResponse() throws IOException {
+        ReflectionTestUtils.setField(sut, "streaming", true);
+        doAnswer(invocation -> {
+            JsonGenerator generator = invocation.getArgument(0);
+            generator.writeStartObject();
+            generator.writeStringField("decisionStrategy", "AFFIRMATIVE");
+            generator.writeEndObject();
+            return null;
+        }).when(keycloakConfigurationGeneratorService).writeConfigurationAsJson(any());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Assertions.assertNull(sut.configure(new ServletWebRequest(get(), response)));
+        Assertions.assertEquals("{\"decisionStrategy\":\"AFFIRMATIVE\"}", response.getContentAsString());
+        Assertions.assertEquals("application/json", response.getContentType());
+    }
+
+    private MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/mac/configuration/export");
+    }
+
+    private ServletWebRequest request(MockHttpServletRequest request) {
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
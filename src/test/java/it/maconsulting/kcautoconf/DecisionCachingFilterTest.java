@@ -0,0 +1,148 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.enforcement.DecisionCache;
+import it.maconsulting.kcautoconf.enforcement.DecisionCachingFilter;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class DecisionCachingFilterTest {
+
+    private final AtomicInteger enforcements = new AtomicInteger();
+
+    private final Instant now = Instant.parse("2025-01-01T10:00:00Z");
+
+    private DecisionCache decisionCache;
+
+    private DecisionCachingFilter sut;
+
+    /**
+     * Grants GET requests, denies everything else
+     */
+    private final Filter policyEnforcerFilter = (request, response, chain) -> {
+        enforcements.incrementAndGet();
+        if ("GET".equals(((MockHttpServletRequest) request).getMethod())) {
+            chain.doFilter(request, response);
+        } else {
+            ((HttpServletResponse) response).sendError(HttpServletResponse.SC_FORBIDDEN);
+        }
+    };
+
+    @BeforeEach
+    void setup() {
+        decisionCache = new DecisionCache(100, Duration.ofMinutes(5), Duration.ofSeconds(10), Clock.fixed(now, ZoneOffset.UTC));
+        sut = new DecisionCachingFilter(policyEnforcerFilter, decisionCache, null);
+    }
+
+    @Test
+    void givenSameTokenPathAndMethod_decisionIsCached() throws Exception {
+        String token = token("alice", now.plusSeconds(300));
+
+        MockFilterChain firstChain = filter("GET", "/cars/1", token);
+        MockFilterChain secondChain = filter("GET", "/cars/1", token);
+
+        Assertions.assertEquals(1, enforcements.get());
+        Assertions.assertNotNull(firstChain.getRequest());
+        Assertions.assertNotNull(secondChain.getRequest());
+
+        filter("GET", "/cars/2", token);
+        filter("GET", "/cars/1", token("bob", now.plusSeconds(300)));
+        Assertions.assertEquals(3, enforcements.get());
+    }
+
+    @Test
+    void givenDeniedRequest_denialIsCached() throws Exception {
+        String token = token("alice", now.plusSeconds(300));
+        filter("DELETE", "/cars/1", token);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        sut.doFilter(request("DELETE", "/cars/1", token), response, chain);
+
+        Assertions.assertEquals(1, enforcements.get());
+        Assertions.assertEquals(HttpServletResponse.SC_FORBIDDEN, response.getStatus());
+        Assertions.assertNull(chain.getRequest());
+    }
+
+    @Test
+    void givenDenialWithChallenge_denialIsNotCached() throws Exception {
+        sut = new DecisionCachingFilter((request, response, chain) -> {
+            enforcements.incrementAndGet();
+            ((HttpServletResponse) response).setHeader("WWW-Authenticate", "UMA realm=\"acme\",ticket=\"" + enforcements.get() + "\"");
+            ((HttpServletResponse) response).sendError(HttpServletResponse.SC_UNAUTHORIZED);
+        }, decisionCache, null);
+        String token = token("alice", now.plusSeconds(300));
+        filter("GET", "/cars/1", token);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        sut.doFilter(request("GET", "/cars/1", token), response, new MockFilterChain());
+
+        Assertions.assertEquals(2, enforcements.get());
+        Assertions.assertEquals(0, decisionCache.size());
+        Assertions.assertEquals("UMA realm=\"acme\",ticket=\"2\"", response.getHeader("WWW-Authenticate"));
+    }
+
+    @Test
+    void givenExpiredToken_decisionIsNotCached() throws Exception {
+        String token = token("alice", now.minusSeconds(1));
+        filter("GET", "/cars/1", token);
+        filter("GET", "/cars/1", token);
+
+        Assertions.assertEquals(2, enforcements.get());
+        Assertions.assertEquals(0, decisionCache.size());
+    }
+
+    @Test
+    void givenRequestWithoutToken_decisionIsNotCached() throws Exception {
+        filter("GET", "/cars/1", null);
+        filter("GET", "/cars/1", null);
+
+        Assertions.assertEquals(2, enforcements.get());
+    }
+
+    @Test
+    void givenFullCache_entriesAreEvicted() {
+        for (int i = 0; i < 150; i++) {
+            decisionCache.putGranted(new DecisionCache.Key("token" + i, "/cars", "GET"), null, null);
+        }
+        Assertions.assertTrue(decisionCache.size() <= 100);
+    }
+
+    private MockFilterChain filter(String method, String path, String token) throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        sut.doFilter(request(method, path, token), new MockHttpServletResponse(), chain);
+        return chain;
+    }
+
+    private MockHttpServletRequest request(String method, String path, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        if (token != null) {
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        return request;
+    }
+
+    private String token(String subject, Instant expiration) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) + "." +
+                encoder.encodeToString(("{\"sub\":\"" + subject + "\",\"exp\":" + expiration.getEpochSecond() + "}")
+                        .getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+}
@@ -0,0 +1,60 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.fixtures.ControllerWithInterfaceMappings;
+import it.maconsulting.kcautoconf.model.MethodConfiguration;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import it.maconsulting.kcautoconf.services.AutoconfigurationService;
+import it.maconsulting.kcautoconf.services.SwaggerV3OperationService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class HandlerMappingDiscoveryTest {
+
+    private AutoconfigurationService autoconfigurationService;
+
+    @BeforeEach
+    void setup() {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean(ControllerWithInterfaceMappings.class);
+        context.registerBean(RequestMappingHandlerMapping.class);
+        context.refresh();
+
+        autoconfigurationService = new AutoconfigurationService(context, new PolicyEnforcerConfig(),
+                List.of(new SwaggerV3OperationService()));
+        ReflectionTestUtils.setField(autoconfigurationService, "discovery", "handler-mapping");
+    }
+
+    @Test
+    void givenHandlerMappingDiscovery_interfaceAndVerbLessMappingsAreFound() {
+        Map<String, List<String>> paths = autoconfigurationService.getPathConfigurationsDom().stream()
+                .collect(Collectors.toMap(PathConfiguration::getPath,
+                        path -> path.getMethods().stream().map(MethodConfiguration::getMethod).toList()));
+
+        Assertions.assertEquals(2, paths.size());
+        Assertions.assertEquals(List.of("GET"), paths.get("/mappings/{id}"));
+        Assertions.assertEquals(RequestMethod.values().length, paths.get("/mappings/any").size());
+    }
+
+    @Test
+    void givenOperationOnInterfaceMethod_itsScopesAreFound() {
+        Map<String, PathConfiguration> paths = autoconfigurationService.getPathConfigurationsDom().stream()
+                .collect(Collectors.toMap(PathConfiguration::getPath, path -> path));
+
+        Assertions.assertEquals("Mapping Getter", paths.get("/mappings/{id}").getName());
+        Assertions.assertEquals(List.of("mapping:read"), paths.get("/mappings/{id}").getMethods().get(0).getScopes());
+    }
+}
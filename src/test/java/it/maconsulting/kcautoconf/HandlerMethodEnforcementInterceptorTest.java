@@ -0,0 +1,221 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.enforcement.DecisionCache;
+import it.maconsulting.kcautoconf.enforcement.HandlerMethodEnforcementInterceptor;
+import it.maconsulting.kcautoconf.fixtures.ControllerWithInterfaceMappings;
+import it.maconsulting.kcautoconf.fixtures.ControllerWithPublicEndpoints;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.ServletRequestPathUtils;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class HandlerMethodEnforcementInterceptorTest {
+
+    private final HttpClient httpClient = Mockito.mock(HttpClient.class);
+
+    private final PolicyEnforcerConfig policyEnforcerConfig = new PolicyEnforcerConfig();
+
+    private RequestMappingHandlerMapping handlerMapping;
+
+    private HandlerMethodEnforcementInterceptor sut;
+
+    @BeforeEach
+    void setup() {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean(ControllerWithPublicEndpoints.class);
+        context.registerBean(ControllerWithInterfaceMappings.class);
+        context.registerBean(RequestMappingHandlerMapping.class);
+        context.refresh();
+        handlerMapping = context.getBean(RequestMappingHandlerMapping.class);
+
+        policyEnforcerConfig.setAuthServerUrl("http://keycloak:8080");
+        policyEnforcerConfig.setRealm("test");
+        policyEnforcerConfig.setResource("test-client");
+        policyEnforcerConfig.getPaths().add(path("/public/status", PolicyEnforcerConfig.EnforcementMode.DISABLED, Map.of()));
+        policyEnforcerConfig.getPaths().add(path("/public/documents", PolicyEnforcerConfig.EnforcementMode.ENFORCING,
+                Map.of("POST", List.of("document:write"))));
+
+        sut = new HandlerMethodEnforcementInterceptor(policyEnforcerConfig, handlerMapping, httpClient,
+                new DecisionCache(100, Duration.ofMinutes(5), Duration.ofSeconds(10)));
+    }
+
+    @Test
+    void givenPublicHandler_keycloakIsNotCalled() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Assertions.assertTrue(preHandle("GET", "/public/status", null, response));
+        Mockito.verifyNoInteractions(httpClient);
+    }
+
+    @Test
+    void givenGrantedHandler_decisionIsCached() throws Exception {
+        givenKeycloakAnswers(200, "[{\"rsid\":\"1\",\"rsname\":\"documents\",\"scopes\":[\"document:write\"]}]");
+        String token = token();
+
+        Assertions.assertTrue(preHandle("POST", "/public/documents", token, new MockHttpServletResponse()));
+        Assertions.assertTrue(preHandle("POST", "/public/documents", token, new MockHttpServletResponse()));
+        Mockito.verify(httpClient, Mockito.times(1)).send(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void givenMissingScope_requestIsDenied() throws Exception {
+        givenKeycloakAnswers(200, "[{\"rsid\":\"1\",\"rsname\":\"documents\",\"scopes\":[\"document:read\"]}]");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Assertions.assertFalse(preHandle("POST", "/public/documents", token(), response));
+        Assertions.assertEquals(HttpServletResponse.SC_FORBIDDEN, response.getStatus());
+    }
+
+    @Test
+    void givenMissingTokenOrUnconfiguredHandler_requestIsRejected() throws Exception {
+        MockHttpServletResponse unauthenticated = new MockHttpServletResponse();
+        Assertions.assertFalse(preHandle("POST", "/public/documents", null, unauthenticated));
+        Assertions.assertEquals(HttpServletResponse.SC_UNAUTHORIZED, unauthenticated.getStatus());
+
+        MockHttpServletResponse unconfigured = new MockHttpServletResponse();
+        Assertions.assertFalse(preHandle("GET", "/public/audit", token(), unconfigured));
+        Assertions.assertEquals(HttpServletResponse.SC_FORBIDDEN, unconfigured.getStatus());
+        Mockito.verifyNoInteractions(httpClient);
+    }
+
+    @Test
+    void givenConfiguredPathOverlappingHandlerPattern_moreSpecificPathIsEnforced() throws Exception {
+        PolicyEnforcerConfig.PathConfig any = path("/mappings/{id}", null, Map.of());
+        any.setScopes(List.of("mapping:read"));
+        policyEnforcerConfig.getPaths().add(any);
+        PolicyEnforcerConfig.PathConfig admin = path("/mappings/admin", null, Map.of());
+        admin.setScopes(List.of("mapping:admin"));
+        policyEnforcerConfig.getPaths().add(admin);
+        givenKeycloakAnswers(200, "[{\"rsid\":\"1\",\"rsname\":\"mappings\",\"scopes\":[\"mapping:read\"]}]");
+
+        Assertions.assertTrue(preHandle("GET", "/mappings/7", token(), new MockHttpServletResponse()));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Assertions.assertFalse(preHandle("GET", "/mappings/admin", token(), response));
+        Assertions.assertEquals(HttpServletResponse.SC_FORBIDDEN, response.getStatus());
+        Assertions.assertTrue(sentForms().get(1).contains("mapping%3Aadmin"));
+    }
+
+    @Test
+    void givenHttpMethodAsScope_methodIsRequested() throws Exception {
+        policyEnforcerConfig.setHttpMethodAsScope(true);
+        givenKeycloakAnswers(200, "[{\"rsid\":\"1\",\"rsname\":\"documents\",\"scopes\":[\"GET\"]}]");
+
+        Assertions.assertTrue(preHandle("GET", "/public/documents", token(), new MockHttpServletResponse()));
+        Assertions.assertTrue(sentForms().get(0).contains("%23GET"));
+    }
+
+    @Test
+    void givenKeycloakUnavailable_requestIsNotDeniedNorCached() throws Exception {
+        givenKeycloakAnswers(503, "");
+        String token = token();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Assertions.assertFalse(preHandle("POST", "/public/documents", token, response));
+        Assertions.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+        Mockito.doThrow(new IOException("Connection refused")).when(httpClient).send(Mockito.any(HttpRequest.class), Mockito.any());
+        MockHttpServletResponse unreachable = new MockHttpServletResponse();
+        Assertions.assertFalse(preHandle("POST", "/public/documents", token, unreachable));
+        Assertions.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, unreachable.getStatus());
+
+        givenKeycloakAnswers(200, "[{\"rsid\":\"1\",\"rsname\":\"documents\",\"scopes\":[\"document:write\"]}]");
+        Assertions.assertTrue(preHandle("POST", "/public/documents", token, new MockHttpServletResponse()));
+        Mockito.verify(httpClient, Mockito.times(3)).send(Mockito.any(), Mockito.any());
+    }
+
+    /**
+     * @return the forms sent to Keycloak, in order
+     */
+    private List<String> sentForms() throws Exception {
+        ArgumentCaptor<HttpRequest> requests = ArgumentCaptor.forClass(HttpRequest.class);
+        Mockito.verify(httpClient, Mockito.atLeastOnce()).send(requests.capture(), Mockito.any());
+        return requests.getAllValues().stream().map(this::body).toList();
+    }
+
+    private String body(HttpRequest request) {
+        StringBuilder body = new StringBuilder();
+        request.bodyPublisher().orElseThrow().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                body.append(StandardCharsets.UTF_8.decode(item));
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return body.toString();
+    }
+
+    private boolean preHandle(String method, String uri, String token, MockHttpServletResponse response) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        if (token != null) {
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        ServletRequestPathUtils.parseAndCache(request);
+        Object handler = handlerMapping.getHandler(request).getHandler();
+        return sut.preHandle(request, response, handler);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenKeycloakAnswers(int status, String body) throws Exception {
+        HttpResponse<byte[]> response = Mockito.mock(HttpResponse.class);
+        Mockito.when(response.statusCode()).thenReturn(status);
+        Mockito.when(response.body()).thenReturn(body.getBytes(StandardCharsets.UTF_8));
+        Mockito.doReturn(response).when(httpClient).send(Mockito.any(HttpRequest.class), Mockito.any());
+    }
+
+    private PolicyEnforcerConfig.PathConfig path(String path, PolicyEnforcerConfig.EnforcementMode enforcementMode,
+                                                 Map<String, List<String>> methods) {
+        PolicyEnforcerConfig.PathConfig pathConfig = new PolicyEnforcerConfig.PathConfig();
+        pathConfig.setPath(path);
+        pathConfig.setEnforcementMode(enforcementMode);
+        methods.forEach((method, scopes) -> {
+            PolicyEnforcerConfig.MethodConfig methodConfig = new PolicyEnforcerConfig.MethodConfig();
+            methodConfig.setMethod(method);
+            methodConfig.setScopes(scopes);
+            pathConfig.getMethods().add(methodConfig);
+        });
+        return pathConfig;
+    }
+
+    private String token() {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) + "." +
+                encoder.encodeToString(("{\"sub\":\"alice\",\"exp\":" + Instant.now().plusSeconds(300).getEpochSecond() + "}")
+                        .getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+}
@@ -1,8 +1,11 @@
 package it.maconsulting.kcautoconf;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import it.maconsulting.kcautoconf.model.EnforcementMode;
 import it.maconsulting.kcautoconf.model.MethodConfiguration;
 import it.maconsulting.kcautoconf.model.PathConfiguration;
+import it.maconsulting.kcautoconf.model.PathDefinition;
 import it.maconsulting.kcautoconf.pojo.AuthorizationSettingsDTO;
 import it.maconsulting.kcautoconf.pojo.AuthorizedResourceDTO;
 import it.maconsulting.kcautoconf.services.AutoconfigurationService;
@@ -14,9 +17,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -41,7 +51,7 @@ class JsonKeycloakConfigurationGeneratorTest {
         existingPath.setId("123456");
         pathConfigurations.add(existingPath);
 
-        when(autoconfigurationService.getPathConfigurationsDom()).thenReturn(pathConfigurations);
+        when(autoconfigurationService.getPathDefinitions()).thenReturn(PathDefinition.of(pathConfigurations));
 
         AuthorizationSettingsDTO settings = sut.generateConfigurationAsJson();
         Assertions.assertTrue(settings.getResources().isEmpty());
@@ -62,7 +72,7 @@ class JsonKeycloakConfigurationGeneratorTest {
         existingPath.getMethods().add(myMethod);
         pathConfigurations.add(existingPath);
 
-        when(autoconfigurationService.getPathConfigurationsDom()).thenReturn(pathConfigurations);
+        when(autoconfigurationService.getPathDefinitions()).thenReturn(PathDefinition.of(pathConfigurations));
         AuthorizationSettingsDTO settings = sut.generateConfigurationAsJson();
 
         Assertions.assertEquals("ENFORCING", settings.getPolicyEnforcementMode());
@@ -79,4 +89,51 @@ class JsonKeycloakConfigurationGeneratorTest {
         Assertions.assertEquals("user:add", resource.getScopes().iterator().next().getName());
 
     }
+
+    @Test
+    void givenPaths_streamedExportMatchesSettings() throws IOException {
+        List<PathConfiguration> pathConfigurations = new ArrayList<>();
+        pathConfigurations.add(path("/users", "Users", "user:view"));
+        pathConfigurations.add(path("/users/{id}", "User", "user:view"));
+        pathConfigurations.add(path("/cars", null, ""));
+        PathConfiguration disabledPath = path("/health", "Health", "health:view");
+        disabledPath.setEnforcementMode(EnforcementMode.DISABLED);
+        pathConfigurations.add(disabledPath);
+
+        when(autoconfigurationService.getPathDefinitions()).thenReturn(PathDefinition.of(pathConfigurations));
+        ObjectMapper objectMapper = new ObjectMapper();
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(streamed)) {
+            sut.writeConfigurationAsJson(generator);
+        }
+
+        Assertions.assertEquals(objectMapper.valueToTree(sut.generateConfigurationAsJson()), objectMapper.readTree(streamed.toByteArray()));
+        verify(autoconfigurationService, never()).getPathConfigurationsDom();
+    }
+
+    @Test
+    void givenLargeApi_scopesAreDeduplicated() {
+        when(autoconfigurationService.getPathDefinitions()).thenReturn(PathDefinition.of(ScopeRegistryTest.syntheticApi(10_000, 20)));
+
+        AuthorizationSettingsDTO settings = sut.generateConfigurationAsJson();
+
+        Set<Object> scopeDTOs = Collections.newSetFromMap(new IdentityHashMap<>());
+        settings.getResources().forEach(resource -> scopeDTOs.addAll(resource.getScopes()));
+        Assertions.assertEquals(10_000, settings.getResources().size());
+        Assertions.assertEquals(20, settings.getScopes().size());
+        Assertions.assertEquals(20, scopeDTOs.size());
+        Assertions.assertTrue(scopeDTOs.containsAll(settings.getScopes()));
+    }
+
+    private PathConfiguration path(String path, String name, String scope) {
+        PathConfiguration pathConfiguration = new PathConfiguration();
+        pathConfiguration.setPath(path);
+        pathConfiguration.setName(name);
+        pathConfiguration.setDisplayName(name);
+        MethodConfiguration methodConfiguration = new MethodConfiguration();
+        methodConfiguration.setMethod("GET");
+        methodConfiguration.setScopes(List.of(scope));
+        pathConfiguration.getMethods().add(methodConfiguration);
+        return pathConfiguration;
+    }
 }
@@ -16,7 +16,9 @@
 package it.maconsulting.kcautoconf;
 
 import it.maconsulting.kcautoconf.fixtures.*;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
 import it.maconsulting.kcautoconf.services.AutoconfigurationService;
+import it.maconsulting.kcautoconf.services.PublishedConfiguration;
 import it.maconsulting.kcautoconf.services.SwaggerOperationService;
 import it.maconsulting.kcautoconf.services.SwaggerV2OperationService;
 import it.maconsulting.kcautoconf.services.SwaggerV3OperationService;
@@ -29,11 +31,16 @@ import org.mockito.Mockito;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * @author Michele Arciprete
@@ -70,7 +77,7 @@ class KeycloakResourceAutoConfigurationTest {
         Map<String, Object> beansWithAnnotation = new HashMap<>();
         beansWithAnnotation.put("ControllerWithAuthzScopes", new ControllerV2WithAuthzScopes());
 
-        Mockito.when(context.getBeansWithAnnotation(Mockito.any())).thenReturn(beansWithAnnotation);
+        givenControllers(beansWithAnnotation);
         autoconfigurationService.updateKeycloakConfiguration();
 
         List<PolicyEnforcerConfig.PathConfig> paths = policyEnforcerConfig.getPaths();
@@ -91,7 +98,7 @@ class KeycloakResourceAutoConfigurationTest {
         Map<String, Object> beansWithAnnotation = new HashMap<>();
         beansWithAnnotation.put("ControllerWithAuthzScopes", new ControllerV3WithAuthzScopes());
 
-        Mockito.when(context.getBeansWithAnnotation(Mockito.any())).thenReturn(beansWithAnnotation);
+        givenControllers(beansWithAnnotation);
 
         autoconfigurationService.updateKeycloakConfiguration();
 
@@ -106,12 +113,25 @@ class KeycloakResourceAutoConfigurationTest {
         });
     }
 
+    @Test
+    void givenControllerImplementingMappingInterface_interfaceMappingsAreUsed() {
+        swaggerOperationServices.add(swaggerV3OperationService);
+        givenControllers(Map.of("ControllerWithInterfaceMappings", new ControllerWithInterfaceMappings()));
+
+        autoconfigurationService.updateKeycloakConfiguration();
+
+        Map<String, PolicyEnforcerConfig.PathConfig> paths = new HashMap<>();
+        policyEnforcerConfig.getPaths().forEach(path -> paths.put(path.getPath(), path));
+        Assertions.assertEquals(Set.of("/mappings/{id}"), paths.keySet());
+        Assertions.assertEquals(List.of("mapping:read"), paths.get("/mappings/{id}").getMethods().get(0).getScopes());
+    }
+
     @Test
     void givenAnnotatedController_resourcesAreCreated() {
         Map<String, Object> beansWithAnnotation = new HashMap<>();
         beansWithAnnotation.put("ControllerWithSingleRequestMapping", new ControllerWithSingleRequestMapping());
 
-        Mockito.when(context.getBeansWithAnnotation(Mockito.any())).thenReturn(beansWithAnnotation);
+        givenControllers(beansWithAnnotation);
         autoconfigurationService.updateKeycloakConfiguration();
 
         List<PolicyEnforcerConfig.PathConfig> paths = policyEnforcerConfig.getPaths();
@@ -126,16 +146,15 @@ class KeycloakResourceAutoConfigurationTest {
         Map<String, Object> beansWithAnnotation = new HashMap<>();
         beansWithAnnotation.put("ControllerWithMultiplePathsInRequestMapping", new ControllerWithMultiplePathsInRequestMapping());
 
-        Mockito.when(context.getBeansWithAnnotation(Mockito.any())).thenReturn(beansWithAnnotation);
+        givenControllers(beansWithAnnotation);
         autoconfigurationService.updateKeycloakConfiguration();
 
         List<PolicyEnforcerConfig.PathConfig> paths = policyEnforcerConfig.getPaths();
         Assertions.assertNotNull(paths);
         Assertions.assertFalse(paths.isEmpty());
         Assertions.assertEquals(3, paths.size());
-        Assertions.assertEquals("/foo", paths.get(0).getPath());
-        Assertions.assertEquals("/bar", paths.get(1).getPath());
-        Assertions.assertEquals("/myAwesomeMapping", paths.get(2).getPath());
+        Assertions.assertEquals(Set.of("/foo", "/bar", "/myAwesomeMapping"),
+                paths.stream().map(PolicyEnforcerConfig.PathConfig::getPath).collect(Collectors.toSet()));
     }
 
     @Test
@@ -143,15 +162,15 @@ class KeycloakResourceAutoConfigurationTest {
         Map<String, Object> beansWithAnnotation = new HashMap<>();
         beansWithAnnotation.put("ControllerWithMultiplePathOnMethod", new ControllerWithMultiplePathOnMethod());
 
-        Mockito.when(context.getBeansWithAnnotation(Mockito.any())).thenReturn(beansWithAnnotation);
+        givenControllers(beansWithAnnotation);
         autoconfigurationService.updateKeycloakConfiguration();
 
         List<PolicyEnforcerConfig.PathConfig> paths = policyEnforcerConfig.getPaths();
         Assertions.assertNotNull(paths);
         Assertions.assertFalse(paths.isEmpty());
         Assertions.assertEquals(2, paths.size());
-        Assertions.assertEquals("/foo", paths.get(0).getPath());
-        Assertions.assertEquals("/bar", paths.get(1).getPath());
+        Assertions.assertEquals(Set.of("/foo", "/bar"),
+                paths.stream().map(PolicyEnforcerConfig.PathConfig::getPath).collect(Collectors.toSet()));
     }
 
     @Test
@@ -159,7 +178,7 @@ class KeycloakResourceAutoConfigurationTest {
         Map<String, Object> beansWithAnnotation = new HashMap<>();
         beansWithAnnotation.put("ControllerWithoutRequestMapping", new ControllerWithoutRequestMapping());
 
-        Mockito.when(context.getBeansWithAnnotation(Mockito.any())).thenReturn(beansWithAnnotation);
+        givenControllers(beansWithAnnotation);
         autoconfigurationService.updateKeycloakConfiguration();
 
         List<PolicyEnforcerConfig.PathConfig> paths = policyEnforcerConfig.getPaths();
@@ -169,4 +188,93 @@ class KeycloakResourceAutoConfigurationTest {
         paths.forEach(path -> Assertions.assertEquals("/", path.getPath()));
     }
 
-}
\ No newline at end of file
+    @Test
+    void givenParallelScan_resultsMatchSequentialScan() {
+        swaggerOperationServices.add(swaggerV3OperationService);
+
+        Map<String, Object> beansWithAnnotation = new LinkedHashMap<>();
+        beansWithAnnotation.put("ControllerV3WithAuthzScopes", new ControllerV3WithAuthzScopes());
+        beansWithAnnotation.put("ControllerWithSingleRequestMapping", new ControllerWithSingleRequestMapping());
+        beansWithAnnotation.put("ControllerWithMultiplePathsInRequestMapping", new ControllerWithMultiplePathsInRequestMapping());
+        beansWithAnnotation.put("ControllerWithMultiplePathOnMethod", new ControllerWithMultiplePathOnMethod());
+        beansWithAnnotation.put("ControllerWithoutRequestMapping", new ControllerWithoutRequestMapping());
+
+        givenControllers(beansWithAnnotation);
+        List<PathConfiguration> sequential = autoconfigurationService.getPathConfigurationsDom();
+
+        ReflectionTestUtils.setField(autoconfigurationService, "scanParallelism", 4);
+        List<PathConfiguration> parallel = autoconfigurationService.getPathConfigurationsDom();
+
+        Assertions.assertFalse(sequential.isEmpty());
+        Assertions.assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void givenLazyController_itIsNotInstantiated() {
+        GenericApplicationContext lazyContext = new GenericApplicationContext();
+        lazyContext.registerBean(ControllerWithSingleRequestMapping.class, bd -> bd.setLazyInit(true));
+        lazyContext.refresh();
+        AutoconfigurationService lazyService = new AutoconfigurationService(lazyContext, policyEnforcerConfig, swaggerOperationServices);
+
+        List<PathConfiguration> paths = lazyService.getPathConfigurationsDom();
+
+        Assertions.assertEquals(1, paths.size());
+        Assertions.assertFalse(lazyContext.getDefaultListableBeanFactory()
+                .containsSingleton(lazyContext.getBeanNamesForType(ControllerWithSingleRequestMapping.class)[0]));
+    }
+
+    @Test
+    void givenRefresh_newConfigurationIsPublished() {
+        givenControllers(Map.of("ControllerWithSingleRequestMapping", new ControllerWithSingleRequestMapping()));
+        autoconfigurationService.updateKeycloakConfiguration();
+        PublishedConfiguration first = autoconfigurationService.getPublishedConfiguration();
+
+        givenControllers(Map.of("ControllerWithMultiplePathsInRequestMapping", new ControllerWithMultiplePathsInRequestMapping()));
+        PublishedConfiguration second = autoconfigurationService.refresh().join();
+
+        Assertions.assertEquals(1, first.version());
+        Assertions.assertEquals(2, second.version());
+        Assertions.assertSame(second.policyEnforcerConfig(), autoconfigurationService.getEnforcerConfiguration());
+        Assertions.assertEquals(List.of("/myAwesomeMapping"), first.policyEnforcerConfig().getPaths().stream()
+                .map(PolicyEnforcerConfig.PathConfig::getPath).toList());
+        Assertions.assertEquals(3, second.policyEnforcerConfig().getPaths().size());
+        Assertions.assertEquals(1, policyEnforcerConfig.getPaths().size());
+    }
+
+    @Test
+    void givenUpdate_declaredPathListIsReplacedNotChanged() {
+        PolicyEnforcerConfig.PathConfig declared = new PolicyEnforcerConfig.PathConfig();
+        declared.setPath("/foo");
+        policyEnforcerConfig.getPaths().add(declared);
+        List<PolicyEnforcerConfig.PathConfig> declaredPaths = policyEnforcerConfig.getPaths();
+        givenControllers(Map.of("ControllerWithMultiplePathsInRequestMapping", new ControllerWithMultiplePathsInRequestMapping()));
+
+        autoconfigurationService.updateKeycloakConfiguration();
+
+        Assertions.assertEquals(List.of(declared), declaredPaths);
+        Assertions.assertTrue(declared.getMethods().isEmpty());
+        Assertions.assertEquals(3, policyEnforcerConfig.getPaths().size());
+    }
+
+    @Test
+    void givenDisabledDeclaredPath_annotationsPrecedenceKeepsItsEnforcementMode() {
+        ReflectionTestUtils.setField(autoconfigurationService, "mergePrecedence", "annotations");
+        PolicyEnforcerConfig.PathConfig declared = new PolicyEnforcerConfig.PathConfig();
+        declared.setPath("/myAwesomeMapping");
+        declared.setEnforcementMode(PolicyEnforcerConfig.EnforcementMode.DISABLED);
+        policyEnforcerConfig.getPaths().add(declared);
+        givenControllers(Map.of("ControllerWithSingleRequestMapping", new ControllerWithSingleRequestMapping()));
+
+        autoconfigurationService.updateKeycloakConfiguration();
+
+        Assertions.assertEquals(PolicyEnforcerConfig.EnforcementMode.DISABLED,
+                policyEnforcerConfig.getPaths().get(0).getEnforcementMode());
+    }
+
+    private void givenControllers(Map<String, Object> controllers) {
+        Mockito.when(context.getBeanNamesForAnnotation(Mockito.any())).thenReturn(controllers.keySet().toArray(String[]::new));
+        controllers.forEach((beanName, controller) ->
+                Mockito.doReturn(controller.getClass()).when(context).getType(beanName, false));
+    }
+
+}
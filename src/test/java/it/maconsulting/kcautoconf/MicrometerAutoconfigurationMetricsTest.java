@@ -0,0 +1,116 @@
+package it.maconsulting.kcautoconf;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.maconsulting.kcautoconf.enforcement.MeteredPolicyEnforcerFilter;
+import it.maconsulting.kcautoconf.metrics.MicrometerAutoconfigurationMetrics;
+import it.maconsulting.kcautoconf.metrics.PathStatistics;
+import it.maconsulting.kcautoconf.model.MethodConfiguration;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class MicrometerAutoconfigurationMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final MicrometerAutoconfigurationMetrics sut = new MicrometerAutoconfigurationMetrics(registry);
+
+    @Test
+    void givenScannedPaths_gaugesAndDuplicatesAreRecorded() {
+        List<PathConfiguration> discovered = List.of(
+                path("/cars", method("GET", "car:view"), method("POST", "car:edit"), method("GET", "car:view")),
+                path("/cars/{id}", method("GET", "car:view")));
+        sut.recordScan("controllers", 1_000_000, discovered);
+        sut.recordScan("controllers", 1_000_000, discovered);
+
+        Assertions.assertEquals(2, registry.get("kcautoconf.paths").gauge().value());
+        Assertions.assertEquals(4, registry.get("kcautoconf.methods").gauge().value());
+        Assertions.assertEquals(2, registry.get("kcautoconf.scopes").gauge().value());
+        Assertions.assertEquals(1, registry.get("kcautoconf.paths.duplicates").gauge().value());
+        Assertions.assertEquals(2, registry.get("kcautoconf.scan").tag("source", "controllers").timer().count());
+    }
+
+    @Test
+    void givenEnforcedRequests_timersAreTaggedByPathPattern() throws Exception {
+        Filter policyEnforcerFilter = (request, response, chain) -> {
+            if ("GET".equals(((MockHttpServletRequest) request).getMethod())) {
+                chain.doFilter(request, response);
+            } else {
+                ((HttpServletResponse) response).sendError(HttpServletResponse.SC_FORBIDDEN);
+            }
+        };
+        PolicyEnforcerConfig.PathConfig carPath = new PolicyEnforcerConfig.PathConfig();
+        carPath.setPath("/cars/{id}");
+        PolicyEnforcerConfig policyEnforcerConfig = new PolicyEnforcerConfig();
+        policyEnforcerConfig.setPaths(new ArrayList<>(List.of(carPath)));
+        MeteredPolicyEnforcerFilter filter = new MeteredPolicyEnforcerFilter(policyEnforcerFilter, sut, policyEnforcerConfig);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/cars/1"), new MockHttpServletResponse(), new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("GET", "/cars/2"), new MockHttpServletResponse(), new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("DELETE", "/cars/2"), new MockHttpServletResponse(), new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("GET", "/trucks/2"), new MockHttpServletResponse(), new MockFilterChain());
+
+        Assertions.assertEquals(2, registry.get("kcautoconf.enforcement")
+                .tags("path", "/cars/{id}", "method", "GET", "outcome", "granted").timer().count());
+        Assertions.assertEquals(1, registry.get("kcautoconf.enforcement")
+                .tags("path", "/cars/{id}", "method", "DELETE", "outcome", "denied").timer().count());
+        Assertions.assertEquals(1, registry.get("kcautoconf.enforcement")
+                .tags("path", MeteredPolicyEnforcerFilter.UNMATCHED).timer().count());
+    }
+
+    @Test
+    void givenPathStatistics_hitsAreRecordedWhateverTheResolverOfTheEnforcer() throws Exception {
+        PolicyEnforcerConfig.PathConfig carPath = new PolicyEnforcerConfig.PathConfig();
+        carPath.setPath("/cars/{id}");
+        PolicyEnforcerConfig policyEnforcerConfig = new PolicyEnforcerConfig();
+        policyEnforcerConfig.setPaths(new ArrayList<>(List.of(carPath)));
+        Filter policyEnforcerFilter = (request, response, chain) -> chain.doFilter(request, response);
+        PathStatistics statistics = new PathStatistics();
+        AtomicReference<PolicyEnforcerConfig> current = new AtomicReference<>(policyEnforcerConfig);
+        MeteredPolicyEnforcerFilter filter = new MeteredPolicyEnforcerFilter(policyEnforcerFilter, sut, current::get, statistics);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/cars/1"), new MockHttpServletResponse(), new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("GET", "/trucks/1"), new MockHttpServletResponse(), new MockFilterChain());
+
+        Assertions.assertEquals(1, statistics.get("/cars/{id}").hits());
+        Assertions.assertTrue(statistics.get("/cars/{id}").matchNanos() > 0);
+        Assertions.assertEquals(1, statistics.get(MeteredPolicyEnforcerFilter.UNMATCHED).hits());
+
+        PolicyEnforcerConfig.PathConfig truckPath = new PolicyEnforcerConfig.PathConfig();
+        truckPath.setPath("/trucks/{id}");
+        PolicyEnforcerConfig refreshed = new PolicyEnforcerConfig();
+        refreshed.setPaths(new ArrayList<>(List.of(carPath, truckPath)));
+        current.set(refreshed);
+        filter.doFilter(new MockHttpServletRequest("GET", "/trucks/1"), new MockHttpServletResponse(), new MockFilterChain());
+
+        Assertions.assertEquals(1, statistics.get("/trucks/{id}").hits());
+    }
+
+    private PathConfiguration path(String path, MethodConfiguration... methods) {
+        PathConfiguration pathConfiguration = new PathConfiguration();
+        pathConfiguration.setPath(path);
+        pathConfiguration.getMethods().addAll(List.of(methods));
+        return pathConfiguration;
+    }
+
+    private MethodConfiguration method(String method, String scope) {
+        MethodConfiguration methodConfiguration = new MethodConfiguration();
+        methodConfiguration.setMethod(method);
+        methodConfiguration.getScopes().add(scope);
+        return methodConfiguration;
+    }
+}
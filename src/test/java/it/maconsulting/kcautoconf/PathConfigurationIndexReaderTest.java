@@ -0,0 +1,138 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.fixtures.ControllerWithMultiplePathsInRequestMapping;
+import it.maconsulting.kcautoconf.fixtures.ControllerWithSingleRequestMapping;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import it.maconsulting.kcautoconf.services.AutoconfigurationService;
+import it.maconsulting.kcautoconf.services.PathConfigurationIndexReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class PathConfigurationIndexReaderTest {
+
+    private static final String FIRST_CONTROLLER = "com.example.first.FirstController";
+
+    private static final String SECOND_CONTROLLER = "com.example.second.SecondController";
+
+    private final PathConfigurationIndexReader sut = new PathConfigurationIndexReader();
+
+    @TempDir
+    Path firstModule;
+
+    @TempDir
+    Path secondModule;
+
+    @Test
+    void givenNoIndex_emptyIsReturned() throws IOException {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{firstModule.toUri().toURL()}, null)) {
+            Assertions.assertTrue(sut.read(classLoader, Set.of(FIRST_CONTROLLER)).isEmpty());
+        }
+    }
+
+    @Test
+    void givenIndexesInMultipleModules_pathsAreMerged() throws IOException {
+        writeIndex(firstModule, FIRST_CONTROLLER, """
+                [{"path":"/authorized","name":"Entity Getter","displayName":"get","methods":[{"method":"GET","scopes":["entity:read"]}]}]
+                """);
+        writeIndex(secondModule, SECOND_CONTROLLER, """
+                [{"path":"/authorized","name":"Entity Writer","displayName":"post","methods":[{"method":"POST","scopes":["entity:write"]}]},
+                 {"path":"/other","name":"other","displayName":"other","methods":[{"method":"DELETE","scopes":[]}]}]
+                """);
+
+        try (URLClassLoader classLoader = new URLClassLoader(
+                new URL[]{firstModule.toUri().toURL(), secondModule.toUri().toURL()}, null)) {
+            Optional<PathConfigurationIndexReader.IndexedPaths> indexedPaths =
+                    sut.read(classLoader, Set.of(FIRST_CONTROLLER, SECOND_CONTROLLER));
+
+            Assertions.assertTrue(indexedPaths.isPresent());
+            Assertions.assertEquals(Set.of(FIRST_CONTROLLER, SECOND_CONTROLLER), indexedPaths.get().controllers());
+            List<PathConfiguration> paths = indexedPaths.get().paths();
+            Assertions.assertEquals(2, paths.size());
+            PathConfiguration authorized = paths.get(0);
+            Assertions.assertEquals("/authorized", authorized.getPath());
+            Assertions.assertEquals("Entity Writer", authorized.getName());
+            Assertions.assertEquals(2, authorized.getMethods().size());
+            Assertions.assertEquals("entity:read", authorized.getMethods().get(0).getScopes().get(0));
+            Assertions.assertEquals("POST", authorized.getMethods().get(1).getMethod());
+        }
+    }
+
+    @Test
+    void givenIndexOfOtherControllers_itIsIgnored() throws IOException {
+        writeIndex(firstModule, FIRST_CONTROLLER, """
+                [{"path":"/authorized","name":"get","displayName":"get","methods":[{"method":"GET","scopes":[]}]}]
+                """);
+        writeIndex(secondModule, "com.example.library.LibraryController", """
+                [{"path":"/library","name":"get","displayName":"get","methods":[{"method":"GET","scopes":[]}]}]
+                """);
+
+        try (URLClassLoader classLoader = new URLClassLoader(
+                new URL[]{firstModule.toUri().toURL(), secondModule.toUri().toURL()}, null)) {
+            PathConfigurationIndexReader.IndexedPaths indexedPaths =
+                    sut.read(classLoader, Set.of(FIRST_CONTROLLER, SECOND_CONTROLLER)).orElseThrow();
+
+            Assertions.assertEquals(Set.of(FIRST_CONTROLLER), indexedPaths.controllers());
+            Assertions.assertEquals(List.of("/authorized"), indexedPaths.paths().stream().map(PathConfiguration::getPath).toList());
+        }
+    }
+
+    @Test
+    void givenIndexWithoutControllers_itIsIgnored() throws IOException {
+        Path index = firstModule.resolve(PathConfigurationIndexReader.INDEX_LOCATION);
+        Files.createDirectories(index.getParent());
+        Files.writeString(index, "[]");
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{firstModule.toUri().toURL()}, null)) {
+            Assertions.assertTrue(sut.read(classLoader, Set.of(FIRST_CONTROLLER)).isEmpty());
+        }
+    }
+
+    @Test
+    void givenPartialIndex_notIndexedControllersAreScanned() throws IOException {
+        writeIndex(firstModule, ControllerWithSingleRequestMapping.class.getName(), """
+                [{"path":"/myAwesomeMapping","name":"indexed","displayName":"indexed","methods":[{"method":"GET","scopes":[]}]}]
+                """);
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean(ControllerWithSingleRequestMapping.class);
+        context.registerBean(ControllerWithMultiplePathsInRequestMapping.class);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{firstModule.toUri().toURL()}, getClass().getClassLoader())) {
+            context.setClassLoader(classLoader);
+            context.refresh();
+            AutoconfigurationService service = new AutoconfigurationService(context, new PolicyEnforcerConfig(), List.of());
+            ReflectionTestUtils.setField(service, "pathIndexEnabled", true);
+
+            Map<String, PathConfiguration> paths = service.getPathConfigurationsDom().stream()
+                    .collect(Collectors.toMap(PathConfiguration::getPath, path -> path));
+
+            Assertions.assertEquals(Set.of("/myAwesomeMapping", "/foo", "/bar"), paths.keySet());
+            Assertions.assertEquals("indexed", paths.get("/myAwesomeMapping").getName());
+        }
+    }
+
+    private void writeIndex(Path root, String controller, String content) throws IOException {
+        Path index = root.resolve(PathConfigurationIndexReader.INDEX_LOCATION);
+        Files.createDirectories(index.getParent());
+        Files.writeString(index, content);
+        Files.writeString(root.resolve(PathConfigurationIndexReader.CONTROLLERS_LOCATION), controller + "\n");
+    }
+}
@@ -0,0 +1,68 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.model.EnforcementMode;
+import it.maconsulting.kcautoconf.model.MethodConfiguration;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import it.maconsulting.kcautoconf.model.PathConfigurationMapper;
+import it.maconsulting.kcautoconf.model.PathDefinition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class PathConfigurationMapperTest {
+
+    @Test
+    void givenMethodsWithSameScopes_theyAreGrouped() {
+        PathDefinition definition = PathDefinition.of(path());
+
+        Assertions.assertEquals(2, definition.methods().size());
+        Assertions.assertEquals(Set.of(RequestMethod.GET, RequestMethod.POST), definition.methods().get(0).methods());
+        Assertions.assertEquals(List.of("cars:read", "cars:write"), definition.methods().get(0).scopes());
+        Assertions.assertEquals(Set.of(RequestMethod.DELETE), definition.methods().get(1).methods());
+        Assertions.assertEquals(3, definition.methodCount());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> definition.methods().get(0).scopes().add("x"));
+    }
+
+    @Test
+    void givenPathDefinition_pathConfigSharesTheScopes() {
+        PathDefinition definition = PathDefinition.of(path());
+
+        PolicyEnforcerConfig.PathConfig pathConfig = new PathConfigurationMapper().toPathConfig(definition, true);
+
+        Assertions.assertEquals("/cars/{id}", pathConfig.getPath());
+        Assertions.assertEquals("cars", pathConfig.getName());
+        Assertions.assertEquals(PolicyEnforcerConfig.EnforcementMode.ENFORCING, pathConfig.getEnforcementMode());
+        List<PolicyEnforcerConfig.MethodConfig> methods = pathConfig.getMethods();
+        Assertions.assertEquals(List.of("GET", "POST", "DELETE"), methods.stream().map(PolicyEnforcerConfig.MethodConfig::getMethod).toList());
+        Assertions.assertSame(methods.get(0).getScopes(), methods.get(1).getScopes());
+        Assertions.assertEquals(List.of("cars:delete"), methods.get(2).getScopes());
+    }
+
+    private PathConfiguration path() {
+        PathConfiguration path = new PathConfiguration();
+        path.setPath("/cars/{id}");
+        path.setName("cars");
+        path.setEnforcementMode(EnforcementMode.ENFORCING);
+        path.setMethods(new ArrayList<>(List.of(
+                method("POST", "cars:read", "cars:write"),
+                method("DELETE", "cars:delete"),
+                method("GET", "cars:read", "cars:write"))));
+        return path;
+    }
+
+    private MethodConfiguration method(String verb, String... scopes) {
+        MethodConfiguration method = new MethodConfiguration();
+        method.setMethod(verb);
+        method.setScopes(new ArrayList<>(List.of(scopes)));
+        return method;
+    }
+}
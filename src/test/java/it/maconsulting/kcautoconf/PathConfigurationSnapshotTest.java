@@ -0,0 +1,90 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.fixtures.ControllerV3WithAuthzScopes;
+import it.maconsulting.kcautoconf.fixtures.ControllerWithInterfaceMappings;
+import it.maconsulting.kcautoconf.fixtures.ControllerWithoutRequestMapping;
+import it.maconsulting.kcautoconf.model.MethodConfiguration;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import it.maconsulting.kcautoconf.services.PathConfigurationSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class PathConfigurationSnapshotTest {
+
+    private final PathConfigurationSnapshot sut = new PathConfigurationSnapshot();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void givenSameFingerprint_snapshotIsLoaded() {
+        Path file = directory.resolve("snapshot.json");
+        String fingerprint = sut.fingerprint(List.of(ControllerV3WithAuthzScopes.class), "annotations");
+        List<PathConfiguration> paths = List.of(path("/authorized", "entity:read"));
+
+        sut.write(file, fingerprint, paths);
+
+        Assertions.assertEquals(Optional.of(paths), sut.read(file, fingerprint));
+    }
+
+    @Test
+    void givenDifferentFingerprint_snapshotIsIgnored() {
+        Path file = directory.resolve("snapshot.json");
+        sut.write(file, sut.fingerprint(List.of(ControllerV3WithAuthzScopes.class), "annotations"),
+                List.of(path("/authorized", "entity:read")));
+
+        String fingerprint = sut.fingerprint(List.of(ControllerV3WithAuthzScopes.class, ControllerWithoutRequestMapping.class), "annotations");
+
+        Assertions.assertTrue(Files.exists(file));
+        Assertions.assertTrue(sut.read(file, fingerprint).isEmpty());
+        Assertions.assertTrue(sut.read(directory.resolve("missing.json"), fingerprint).isEmpty());
+    }
+
+    @Test
+    void givenControllers_fingerprintIsStable() {
+        String fingerprint = sut.fingerprint(List.of(ControllerWithInterfaceMappings.class, ControllerV3WithAuthzScopes.class), "annotations");
+
+        Assertions.assertEquals(fingerprint,
+                sut.fingerprint(List.of(ControllerV3WithAuthzScopes.class, ControllerWithInterfaceMappings.class), "annotations"));
+        Assertions.assertNotEquals(fingerprint,
+                sut.fingerprint(List.of(ControllerWithInterfaceMappings.class, ControllerV3WithAuthzScopes.class), "handler-mapping"));
+    }
+
+    @Test
+    void givenSnapshotWritableByOthers_itIsIgnored() throws IOException {
+        Assumptions.assumeTrue(directory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path file = directory.resolve("kcautoconf").resolve("snapshot.json");
+        String fingerprint = sut.fingerprint(List.of(ControllerV3WithAuthzScopes.class), "annotations");
+        sut.write(file, fingerprint, List.of(path("/authorized", "entity:read")));
+
+        Assertions.assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(file.getParent()));
+        Assertions.assertTrue(sut.read(file, fingerprint).isPresent());
+
+        Files.setPosixFilePermissions(file.getParent(), PosixFilePermissions.fromString("rwxrwxrwx"));
+
+        Assertions.assertTrue(sut.read(file, fingerprint).isEmpty());
+    }
+
+    private PathConfiguration path(String path, String scope) {
+        PathConfiguration pathConfiguration = new PathConfiguration();
+        pathConfiguration.setPath(path);
+        MethodConfiguration methodConfiguration = new MethodConfiguration();
+        methodConfiguration.setMethod("GET");
+        methodConfiguration.getScopes().add(scope);
+        pathConfiguration.getMethods().add(methodConfiguration);
+        return pathConfiguration;
+    }
+}
@@ -0,0 +1,96 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.events.PathConfigurationsPublishedEvent;
+import it.maconsulting.kcautoconf.fixtures.ControllerWithSingleRequestMapping;
+import it.maconsulting.kcautoconf.services.AutoconfigurationService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class PathConfigurationsPublishedEventTest {
+
+    @Test
+    void givenPublicationDuringTheRefresh_eventIsReceivedAfterTheRefresh() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            registerBeans(context);
+            context.registerBean(SynchronousAutoconfiguration.class);
+            context.refresh();
+
+            Assertions.assertEquals(1, context.getBean(PublishedEventListener.class).events.size());
+            Assertions.assertEquals(1, context.getBean(PublishedEventListener.class).events.get(0).getPathCount());
+        }
+    }
+
+    @Test
+    void givenDeferredAutoconfiguration_eventIsReceivedAfterTheRefresh() throws Exception {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources()
+                    .addFirst(new MapPropertySource("test", Map.of("kcautoconf.deferred", "true")));
+            registerBeans(context);
+            context.registerBean(PublicationAwaiter.class);
+            context.refresh();
+
+            context.getBean(AutoconfigurationService.class).getPublication().get(5, TimeUnit.SECONDS);
+            List<PathConfigurationsPublishedEvent> events = context.getBean(PublishedEventListener.class).events;
+            Assertions.assertEquals(1, events.size());
+            Assertions.assertEquals(1, events.get(0).getPathCount());
+        }
+    }
+
+    private void registerBeans(AnnotationConfigApplicationContext context) {
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        context.registerBean(PolicyEnforcerConfig.class);
+        context.registerBean(AutoconfigurationService.class, () -> new AutoconfigurationService(context,
+                context.getBean(PolicyEnforcerConfig.class), List.of()));
+        context.registerBean(ControllerWithSingleRequestMapping.class);
+        context.registerBean(PublishedEventListener.class);
+    }
+
+    static class PublishedEventListener {
+        private final List<PathConfigurationsPublishedEvent> events = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        public void onPublished(PathConfigurationsPublishedEvent event) {
+            events.add(event);
+        }
+    }
+
+    /**
+     * Runs the autoconfiguration while the beans are created, as the {@code KeycloakResourceAutoConfiguration} does.
+     */
+    static class SynchronousAutoconfiguration {
+        SynchronousAutoconfiguration(AutoconfigurationService autoconfigurationService) {
+            autoconfigurationService.updateKeycloakConfiguration();
+        }
+    }
+
+    /**
+     * Waits for the deferred autoconfiguration before the refresh ends, so that it always publishes during the refresh.
+     */
+    static class PublicationAwaiter implements SmartInitializingSingleton {
+        private final AutoconfigurationService autoconfigurationService;
+
+        PublicationAwaiter(AutoconfigurationService autoconfigurationService) {
+            this.autoconfigurationService = autoconfigurationService;
+        }
+
+        @Override
+        public void afterSingletonsInstantiated() {
+            autoconfigurationService.getPublication().join();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package it.maconsulting.kcautoconf;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.maconsulting.kcautoconf.aot.KeycloakAutoconfigurationRuntimeHints;
+import it.maconsulting.kcautoconf.aot.PathIndexAotProcessor;
+import it.maconsulting.kcautoconf.fixtures.ControllerV3WithAuthzScopes;
+import it.maconsulting.kcautoconf.fixtures.ControllerWithSingleRequestMapping;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import it.maconsulting.kcautoconf.services.AutoconfigurationService;
+import it.maconsulting.kcautoconf.services.PathConfigurationIndexReader;
+import it.maconsulting.kcautoconf.services.SwaggerV3OperationService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.aot.generate.ClassNameGenerator;
+import org.springframework.aot.generate.DefaultGenerationContext;
+import org.springframework.aot.generate.GeneratedFiles;
+import org.springframework.aot.generate.InMemoryGeneratedFiles;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.javapoet.ClassName;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class PathIndexAotProcessorTest {
+
+    private final PathIndexAotProcessor sut = new PathIndexAotProcessor();
+
+    @Test
+    void givenControllers_pathIndexIsGenerated() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("autoconfigurationService", new RootBeanDefinition(AutoconfigurationService.class));
+        beanFactory.registerBeanDefinition("swaggerV3OperationService", new RootBeanDefinition(SwaggerV3OperationService.class));
+        beanFactory.registerBeanDefinition("authorized", new RootBeanDefinition(ControllerV3WithAuthzScopes.class));
+        beanFactory.registerBeanDefinition("single", new RootBeanDefinition(ControllerWithSingleRequestMapping.class));
+
+        BeanFactoryInitializationAotContribution contribution = sut.processAheadOfTime(beanFactory);
+        Assertions.assertNotNull(contribution);
+
+        InMemoryGeneratedFiles generatedFiles = new InMemoryGeneratedFiles();
+        DefaultGenerationContext generationContext = new DefaultGenerationContext(
+                new ClassNameGenerator(ClassName.get("com.example", "Application")), generatedFiles);
+        contribution.applyTo(generationContext, null);
+
+        String index = generatedFiles.getGeneratedFileContent(GeneratedFiles.Kind.RESOURCE, PathConfigurationIndexReader.INDEX_LOCATION);
+        List<PathConfiguration> paths = new ObjectMapper().readValue(index, new TypeReference<List<PathConfiguration>>() {
+        }).stream().sorted(Comparator.comparing(PathConfiguration::getPath)).toList();
+
+        Assertions.assertEquals(2, paths.size());
+        Assertions.assertEquals("/authorized", paths.get(0).getPath());
+        Assertions.assertEquals(List.of("entity:read"), paths.get(0).getMethods().get(0).getScopes());
+        Assertions.assertEquals("/myAwesomeMapping", paths.get(1).getPath());
+        String controllers = generatedFiles.getGeneratedFileContent(GeneratedFiles.Kind.RESOURCE,
+                PathConfigurationIndexReader.CONTROLLERS_LOCATION);
+        Assertions.assertEquals(Set.of(ControllerV3WithAuthzScopes.class.getName(), ControllerWithSingleRequestMapping.class.getName()),
+                Set.of(controllers.split("\n")));
+        Assertions.assertTrue(RuntimeHintsPredicates.resource().forResource(PathConfigurationIndexReader.INDEX_LOCATION)
+                .test(generationContext.getRuntimeHints()));
+    }
+
+    @Test
+    void givenHandlerMappingDiscovery_nothingIsGenerated() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", Map.of("kcautoconf.discovery", "handler-mapping")));
+        beanFactory.registerSingleton(ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME, environment);
+        beanFactory.registerBeanDefinition("autoconfigurationService", new RootBeanDefinition(AutoconfigurationService.class));
+        beanFactory.registerBeanDefinition("authorized", new RootBeanDefinition(ControllerV3WithAuthzScopes.class));
+
+        Assertions.assertNull(sut.processAheadOfTime(beanFactory));
+    }
+
+    @Test
+    void givenAutoconfigurationNotEnabled_nothingIsGenerated() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("authorized", new RootBeanDefinition(ControllerV3WithAuthzScopes.class));
+
+        Assertions.assertNull(sut.processAheadOfTime(beanFactory));
+    }
+
+    @Test
+    void givenRuntimeHints_boundTypesAreRegistered() {
+        RuntimeHints hints = new RuntimeHints();
+        new KeycloakAutoconfigurationRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        Assertions.assertTrue(RuntimeHintsPredicates.reflection().onType(PathConfiguration.class).test(hints));
+        Assertions.assertTrue(RuntimeHintsPredicates.reflection().onType(PolicyEnforcerConfig.PathConfig.class).test(hints));
+    }
+}
@@ -0,0 +1,67 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.enforcement.PathMatchingConfigurationResolver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.keycloak.adapters.authorization.spi.HttpRequest;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class PathMatchingConfigurationResolverTest {
+
+    @Test
+    void givenMatchingPath_pathIsResolvedAndSharedConfigurationIsHandedToTheEnforcer() {
+        PolicyEnforcerConfig policyEnforcerConfig = new PolicyEnforcerConfig();
+        policyEnforcerConfig.getPaths().add(pathConfig("/cars/{id}", "car:view-detail"));
+        policyEnforcerConfig.getPaths().add(pathConfig("/car", "car:create"));
+
+        PathMatchingConfigurationResolver sut = new PathMatchingConfigurationResolver(policyEnforcerConfig);
+
+        Assertions.assertSame(policyEnforcerConfig.getPaths().get(0), sut.resolvePathConfig("/cars/42"));
+        Assertions.assertSame(policyEnforcerConfig.getPaths().get(1), sut.resolvePathConfig("/car"));
+        Assertions.assertNull(sut.resolvePathConfig("/unknown"));
+        Assertions.assertSame(policyEnforcerConfig, sut.resolve(request("/cars/42")));
+        Assertions.assertSame(policyEnforcerConfig, sut.resolve(request("/car")));
+        Assertions.assertSame(policyEnforcerConfig, sut.resolve(request("/unknown")));
+    }
+
+    @Test
+    void givenUnsupportedPattern_itIsNotShadowedByTheTrie() {
+        PolicyEnforcerConfig policyEnforcerConfig = new PolicyEnforcerConfig();
+        PolicyEnforcerConfig.PathConfig catchAll = pathConfig("/*", "any");
+        catchAll.setEnforcementMode(PolicyEnforcerConfig.EnforcementMode.DISABLED);
+        policyEnforcerConfig.getPaths().add(catchAll);
+        policyEnforcerConfig.getPaths().add(pathConfig("/files/*.html", "file:read"));
+        policyEnforcerConfig.getPaths().add(pathConfig("/reports/{name}.{ext}", "report:read"));
+
+        PathMatchingConfigurationResolver sut = new PathMatchingConfigurationResolver(policyEnforcerConfig);
+
+        Assertions.assertNull(sut.resolvePathConfig("/files/index.html"));
+        Assertions.assertNull(sut.resolvePathConfig("/reports/q1.pdf"));
+        Assertions.assertNull(sut.resolvePathConfig("/files/docs/index.html"));
+        Assertions.assertSame(catchAll, sut.resolvePathConfig("/files/logo.png"));
+        Assertions.assertSame(catchAll, sut.resolvePathConfig("/reports/q1"));
+    }
+
+    private HttpRequest request(String path) {
+        HttpRequest request = Mockito.mock(HttpRequest.class);
+        Mockito.when(request.getRelativePath()).thenReturn(path);
+        return request;
+    }
+
+    private PolicyEnforcerConfig.PathConfig pathConfig(String path, String scope) {
+        PolicyEnforcerConfig.PathConfig pathConfig = new PolicyEnforcerConfig.PathConfig();
+        pathConfig.setPath(path);
+        PolicyEnforcerConfig.MethodConfig methodConfig = new PolicyEnforcerConfig.MethodConfig();
+        methodConfig.setMethod("GET");
+        methodConfig.setScopes(List.of(scope));
+        pathConfig.setMethods(List.of(methodConfig));
+        return pathConfig;
+    }
+}
@@ -0,0 +1,74 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import it.maconsulting.kcautoconf.services.PathSpecificitySorter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class PathSpecificitySorterTest {
+
+    private final PathSpecificitySorter sut = new PathSpecificitySorter();
+
+    @Test
+    void givenMixedPaths_literalsComeBeforeVariablesAndWildcards() {
+        List<PathConfiguration> paths = paths("/cars/**", "/cars/{id}", "/cars//new/", "/cars/{id}/doors", "/cars");
+
+        sut.sort(paths);
+
+        Assertions.assertEquals(List.of("/cars/new", "/cars", "/cars/{id}/doors", "/cars/{id}", "/cars/**"),
+                paths.stream().map(PathConfiguration::getPath).toList());
+    }
+
+    @Test
+    void givenLiteralPaths_longerPathsComeFirstThenPathsAreOrderedByPattern() {
+        List<PathConfiguration> paths = paths("/foo", "/bar", "/myAwesomeMapping");
+
+        sut.sort(paths);
+
+        Assertions.assertEquals(List.of("/myAwesomeMapping", "/bar", "/foo"),
+                paths.stream().map(PathConfiguration::getPath).toList());
+    }
+
+    @Test
+    void givenOverlappingPaths_theyAreReported() {
+        List<PathConfiguration> paths = paths("/cars/*", "/cars/{id}", "/cars/{id}/tag", "/cars/new/{part}", "/trucks/{id}");
+
+        sut.sort(paths);
+        PathSpecificitySorter.SortResult result = sut.findOverlaps(paths);
+
+        Assertions.assertEquals(List.of(new PathSpecificitySorter.Overlap("/cars/*", "/cars/{id}")), result.shadowed());
+        Assertions.assertEquals(List.of(new PathSpecificitySorter.Overlap("/cars/{id}/tag", "/cars/new/{part}")),
+                result.ambiguous());
+    }
+
+    @Test
+    void givenPathsUnderDifferentPrefixes_overlapsAcrossPrefixesAreReported() {
+        List<PathConfiguration> paths = paths("/{area}/b/{c}", "/api/b/*", "/api/v1/{id}", "/orders/{id}", "/orders/*",
+                "/trucks/{id}");
+
+        sut.sort(paths);
+        PathSpecificitySorter.SortResult result = sut.findOverlaps(paths);
+
+        Assertions.assertEquals(Set.of(new PathSpecificitySorter.Overlap("/api/b/*", "/{area}/b/{c}"),
+                        new PathSpecificitySorter.Overlap("/orders/*", "/orders/{id}")),
+                Set.copyOf(result.shadowed()));
+        Assertions.assertTrue(result.ambiguous().isEmpty());
+    }
+
+    private List<PathConfiguration> paths(String... patterns) {
+        return new ArrayList<>(Stream.of(patterns).map(pattern -> {
+            PathConfiguration path = new PathConfiguration();
+            path.setPath(pattern);
+            return path;
+        }).toList());
+    }
+}
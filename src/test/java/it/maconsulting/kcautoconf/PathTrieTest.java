@@ -0,0 +1,67 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.enforcement.PathTrie;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class PathTrieTest {
+
+    @Test
+    void givenLiteralAndTemplate_literalWins() {
+        PathTrie.Builder<String> builder = PathTrie.builder();
+        builder.add("/cars/{id}", "template");
+        builder.add("/cars/search", "literal");
+        builder.add("/cars/{id}/wheels", "nested");
+        PathTrie<String> sut = builder.build();
+
+        Assertions.assertEquals("literal", sut.match("/cars/search"));
+        Assertions.assertEquals("template", sut.match("/cars/42"));
+        Assertions.assertEquals("template", sut.match("/cars/42/"));
+        Assertions.assertEquals("nested", sut.match("/cars/search/wheels"));
+        Assertions.assertNull(sut.match("/cars"));
+        Assertions.assertNull(sut.match("/cars/42/doors"));
+    }
+
+    @Test
+    void givenWildcards_longestMatchWins() {
+        PathTrie.Builder<String> builder = PathTrie.builder();
+        builder.add("/*", "root");
+        builder.add("/api/*", "api");
+        builder.add("/api/v1/export*", "export");
+        builder.add("/api/v1/cars", "cars");
+        PathTrie<String> sut = builder.build();
+
+        Assertions.assertEquals("cars", sut.match("/api/v1/cars"));
+        Assertions.assertEquals("api", sut.match("/api/v1/cars/42"));
+        Assertions.assertEquals("api", sut.match("/api"));
+        Assertions.assertEquals("export", sut.match("/api/v1/export"));
+        Assertions.assertEquals("export", sut.match("/api/v1/exporter/json"));
+        Assertions.assertEquals("root", sut.match("/other"));
+        Assertions.assertEquals("root", sut.match("/"));
+    }
+
+    @Test
+    void givenRootAndDuplicates_firstValueIsKept() {
+        PathTrie.Builder<String> builder = PathTrie.builder();
+        builder.add("/", "root");
+        builder.add("/foo", "first");
+        builder.add("foo/", "second");
+        PathTrie<String> sut = builder.build();
+
+        Assertions.assertEquals("root", sut.match("/"));
+        Assertions.assertEquals("root", sut.match(""));
+        Assertions.assertEquals("first", sut.match("/foo"));
+    }
+
+    @Test
+    void givenUnsupportedPattern_isNotAdded() {
+        PathTrie.Builder<String> builder = PathTrie.builder();
+        Assertions.assertFalse(builder.add("/files/*.html", "suffix"));
+        Assertions.assertFalse(builder.add("/files/{name}.{ext}", "partial template"));
+        Assertions.assertEquals(0, builder.build().size());
+    }
+}
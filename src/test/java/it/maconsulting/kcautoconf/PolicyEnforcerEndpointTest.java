@@ -0,0 +1,103 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.actuator.PolicyEnforcerEndpoint;
+import it.maconsulting.kcautoconf.enforcement.MeteredPolicyEnforcerFilter;
+import it.maconsulting.kcautoconf.metrics.PathStatistics;
+import it.maconsulting.kcautoconf.model.MethodConfiguration;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import it.maconsulting.kcautoconf.model.PathDefinition;
+import it.maconsulting.kcautoconf.services.AutoconfigurationService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class PolicyEnforcerEndpointTest {
+
+    @Mock
+    private AutoconfigurationService autoconfigurationService;
+
+    private final PolicyEnforcerConfig policyEnforcerConfig = new PolicyEnforcerConfig();
+
+    private final PathStatistics statistics = new PathStatistics();
+
+    private PolicyEnforcerEndpoint sut;
+
+    @BeforeEach
+    void setup() {
+        policyEnforcerConfig.getPaths().add(pathConfig("/cars/{carId}"));
+        policyEnforcerConfig.getPaths().add(pathConfig("/legacy"));
+        policyEnforcerConfig.getPaths().add(pathConfig("/trucks"));
+        Mockito.when(autoconfigurationService.getDeclaredPaths()).thenReturn(Set.of("/cars/{}", "/legacy"));
+        Mockito.when(autoconfigurationService.getPathDefinitions())
+                .thenReturn(List.of(definition("/cars/{id}"), definition("/trucks")));
+        sut = new PolicyEnforcerEndpoint(policyEnforcerConfig, autoconfigurationService, statistics);
+    }
+
+    @Test
+    void givenPaths_sourceAndMethodsAreListed() {
+        List<PolicyEnforcerEndpoint.PathEntry> paths = sut.policies().paths();
+
+        Assertions.assertEquals(3, paths.size());
+        Assertions.assertEquals("yaml+annotations", paths.get(0).source());
+        Assertions.assertEquals("yaml", paths.get(1).source());
+        Assertions.assertEquals("annotations", paths.get(2).source());
+        Assertions.assertEquals("GET", paths.get(0).methods().get(0).method());
+        Assertions.assertEquals(List.of("car:view"), paths.get(0).methods().get(0).scopes());
+        Assertions.assertEquals("ENFORCING", paths.get(0).enforcementMode());
+    }
+
+    @Test
+    void givenRecordedRequests_statisticsAreReported() {
+        statistics.record("/cars/{carId}", true, 1_000, 10_000);
+        statistics.record("/cars/{carId}", false, 3_000, 30_000);
+        statistics.record(MeteredPolicyEnforcerFilter.UNMATCHED, true, 500, 0);
+
+        PolicyEnforcerEndpoint.PolicyTable table = sut.policies();
+
+        PolicyEnforcerEndpoint.Statistics cars = table.paths().get(0).statistics();
+        Assertions.assertEquals(2, cars.hits());
+        Assertions.assertEquals(1, cars.granted());
+        Assertions.assertEquals(1, cars.denied());
+        Assertions.assertEquals(2.0, cars.averageMatchMicros());
+        Assertions.assertEquals(20.0, cars.averageDecisionMicros());
+        Assertions.assertEquals(0, table.paths().get(1).statistics().hits());
+        Assertions.assertEquals(1, table.unmatched().hits());
+
+        sut.resetStatistics();
+
+        Assertions.assertEquals(0, sut.policies().paths().get(0).statistics().hits());
+    }
+
+    private PolicyEnforcerConfig.PathConfig pathConfig(String path) {
+        PolicyEnforcerConfig.PathConfig pathConfig = new PolicyEnforcerConfig.PathConfig();
+        pathConfig.setPath(path);
+        pathConfig.setEnforcementMode(PolicyEnforcerConfig.EnforcementMode.ENFORCING);
+        PolicyEnforcerConfig.MethodConfig methodConfig = new PolicyEnforcerConfig.MethodConfig();
+        methodConfig.setMethod("GET");
+        methodConfig.setScopes(List.of("car:view"));
+        pathConfig.getMethods().add(methodConfig);
+        return pathConfig;
+    }
+
+    private PathDefinition definition(String path) {
+        PathConfiguration pathConfiguration = new PathConfiguration();
+        pathConfiguration.setPath(path);
+        MethodConfiguration methodConfiguration = new MethodConfiguration();
+        methodConfiguration.setMethod("GET");
+        pathConfiguration.getMethods().add(methodConfiguration);
+        return PathDefinition.of(pathConfiguration);
+    }
+}
@@ -0,0 +1,108 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.services.PolicyEnforcerPathMerger;
+import it.maconsulting.kcautoconf.services.PolicyEnforcerPathMerger.Precedence;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class PolicyEnforcerPathMergerTest {
+
+    @Test
+    void givenDeclaredPath_discoveredPathIsMergedIntoIt() {
+        List<PolicyEnforcerConfig.PathConfig> declared = declaredPaths();
+
+        PolicyEnforcerPathMerger.MergeResult result = new PolicyEnforcerPathMerger(Precedence.YAML)
+                .merge(declared, discoveredPaths());
+
+        Assertions.assertEquals(2, declared.size());
+        Assertions.assertEquals(1, result.added());
+        Assertions.assertEquals(1, result.merged());
+        PolicyEnforcerConfig.PathConfig cars = declared.get(0);
+        Assertions.assertEquals("/cars/{carId}/", cars.getPath());
+        Assertions.assertEquals("cars", cars.getName());
+        Assertions.assertEquals(2, cars.getMethods().size());
+        Assertions.assertEquals(List.of("car:read"), cars.getMethods().get(0).getScopes());
+        Assertions.assertEquals("POST", cars.getMethods().get(1).getMethod());
+        Assertions.assertEquals("/trucks", declared.get(1).getPath());
+
+        Assertions.assertEquals(1, result.conflicts().size());
+        PolicyEnforcerPathMerger.Conflict conflict = result.conflicts().get(0);
+        Assertions.assertEquals("GET", conflict.method());
+        Assertions.assertEquals(List.of("car:read"), conflict.declaredScopes());
+        Assertions.assertEquals(List.of("car:view-detail"), conflict.discoveredScopes());
+    }
+
+    @Test
+    void givenAnnotationsPrecedence_discoveredScopesAreKept() {
+        List<PolicyEnforcerConfig.PathConfig> declared = declaredPaths();
+
+        new PolicyEnforcerPathMerger(Precedence.of("annotations")).merge(declared, discoveredPaths());
+
+        Assertions.assertEquals(List.of("car:view-detail"), declared.get(0).getMethods().get(0).getScopes());
+    }
+
+    @Test
+    void givenAnnotationsPrecedence_onlyAnnotatedEnforcementModeIsKept() {
+        List<PolicyEnforcerConfig.PathConfig> declared = declaredPaths();
+        declared.get(0).setEnforcementMode(PolicyEnforcerConfig.EnforcementMode.DISABLED);
+        PolicyEnforcerPathMerger sut = new PolicyEnforcerPathMerger(Precedence.of("annotations"));
+
+        sut.merge(declared, discoveredPaths(), path -> false);
+        Assertions.assertEquals(PolicyEnforcerConfig.EnforcementMode.DISABLED, declared.get(0).getEnforcementMode());
+
+        PolicyEnforcerConfig.PathConfig permissive = path("/cars/{id}", "cars");
+        permissive.setEnforcementMode(PolicyEnforcerConfig.EnforcementMode.PERMISSIVE);
+        sut.merge(declared, List.of(permissive), path -> true);
+        Assertions.assertEquals(PolicyEnforcerConfig.EnforcementMode.PERMISSIVE, declared.get(0).getEnforcementMode());
+    }
+
+    @Test
+    void givenUnionPrecedence_allScopesAreRequired() {
+        List<PolicyEnforcerConfig.PathConfig> declared = declaredPaths();
+
+        new PolicyEnforcerPathMerger(Precedence.of("UNION")).merge(declared, discoveredPaths());
+
+        Assertions.assertEquals(List.of("car:read", "car:view-detail"), declared.get(0).getMethods().get(0).getScopes());
+    }
+
+    @Test
+    void givenUnknownPrecedence_exceptionIsThrown() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Precedence.of("properties"));
+        Assertions.assertEquals(Precedence.YAML, Precedence.of(null));
+    }
+
+    private List<PolicyEnforcerConfig.PathConfig> declaredPaths() {
+        List<PolicyEnforcerConfig.PathConfig> paths = new ArrayList<>();
+        paths.add(path("/cars/{carId}/", null, method("get", "car:read")));
+        return paths;
+    }
+
+    private List<PolicyEnforcerConfig.PathConfig> discoveredPaths() {
+        return List.of(
+                path("/cars/{id}", "cars", method("GET", "car:view-detail"), method("POST", "car:create")),
+                path("/trucks", "trucks", method("GET", "truck:view")));
+    }
+
+    private PolicyEnforcerConfig.PathConfig path(String path, String name, PolicyEnforcerConfig.MethodConfig... methods) {
+        PolicyEnforcerConfig.PathConfig pathConfig = new PolicyEnforcerConfig.PathConfig();
+        pathConfig.setPath(path);
+        pathConfig.setName(name);
+        pathConfig.setMethods(new ArrayList<>(List.of(methods)));
+        return pathConfig;
+    }
+
+    private PolicyEnforcerConfig.MethodConfig method(String verb, String scope) {
+        PolicyEnforcerConfig.MethodConfig methodConfig = new PolicyEnforcerConfig.MethodConfig();
+        methodConfig.setMethod(verb);
+        methodConfig.setScopes(List.of(scope));
+        return methodConfig;
+    }
+}
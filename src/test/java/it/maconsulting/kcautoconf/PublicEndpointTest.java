@@ -0,0 +1,132 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.enforcement.PublicPathBypassFilter;
+import it.maconsulting.kcautoconf.fixtures.ControllerWithPublicEndpoints;
+import it.maconsulting.kcautoconf.model.EnforcementMode;
+import it.maconsulting.kcautoconf.services.ControllerPathScanner;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class PublicEndpointTest {
+
+    @Test
+    void givenPublicController_enforcementModesAreScanned() {
+        ControllerPathScanner scanner = new ControllerPathScanner(List.of());
+        Map<String, EnforcementMode> modes = new HashMap<>();
+        scanner.scanControllers(Map.of("publicController", ControllerWithPublicEndpoints.class), 1)
+                .forEach(path -> modes.put(path.getPath(), path.getEnforcementMode()));
+
+        Assertions.assertEquals(EnforcementMode.DISABLED, modes.get("/public/status"));
+        Assertions.assertEquals(EnforcementMode.ENFORCING, modes.get("/public/documents"));
+        Assertions.assertEquals(EnforcementMode.PERMISSIVE, modes.get("/public/audit"));
+    }
+
+    @Test
+    void givenPublicPaths_enforcerIsBypassed() {
+        PolicyEnforcerConfig config = new PolicyEnforcerConfig();
+        config.getPaths().add(path("/public/status", PolicyEnforcerConfig.EnforcementMode.DISABLED));
+        config.getPaths().add(path("/docs/*", PolicyEnforcerConfig.EnforcementMode.DISABLED));
+        config.getPaths().add(path("/assets*", PolicyEnforcerConfig.EnforcementMode.DISABLED));
+        config.getPaths().add(path("/users/{id}/avatar", PolicyEnforcerConfig.EnforcementMode.DISABLED));
+        config.getPaths().add(path("/open/*", PolicyEnforcerConfig.EnforcementMode.DISABLED));
+        config.getPaths().add(path("/open/admin", null));
+        PublicPathBypassFilter sut = new PublicPathBypassFilter((request, response, chain) -> {}, config);
+
+        Map<String, Boolean> bypassed = List.of("/public/status", "/public/status/more", "/docs", "/docs/api/index.html",
+                        "/assets.css", "/users/7/avatar", "/open/admin", "/open/other", "/cars").stream()
+                .collect(Collectors.toMap(path -> path, sut::isPublic));
+
+        Assertions.assertEquals(Map.of("/public/status", true, "/public/status/more", false, "/docs", true,
+                "/docs/api/index.html", true, "/assets.css", true, "/users/7/avatar", false, "/open/admin", false,
+                "/open/other", false, "/cars", false), bypassed);
+    }
+
+    @Test
+    void givenEnforcedPatternUnderPublicPrefix_enforcerIsNotBypassed() {
+        PolicyEnforcerConfig config = new PolicyEnforcerConfig();
+        config.getPaths().add(path("/public/*", PolicyEnforcerConfig.EnforcementMode.DISABLED));
+        config.getPaths().add(path("/{section}/admin", null));
+        config.getPaths().add(path("/static/*", PolicyEnforcerConfig.EnforcementMode.DISABLED));
+        config.getPaths().add(path("/st*/private/**", null));
+        config.getPaths().add(path("/api/docs/*", PolicyEnforcerConfig.EnforcementMode.DISABLED));
+        config.getPaths().add(path("/api/{id}", null));
+        PublicPathBypassFilter sut = new PublicPathBypassFilter((request, response, chain) -> {}, config);
+
+        Assertions.assertFalse(sut.isPublic("/public/admin"));
+        Assertions.assertFalse(sut.isPublic("/public/other"));
+        Assertions.assertFalse(sut.isPublic("/static/private/key"));
+        Assertions.assertTrue(sut.isPublic("/api/docs/admin"));
+    }
+
+    @Test
+    void givenNotNormalizedPath_enforcerIsNotBypassed() {
+        PolicyEnforcerConfig config = new PolicyEnforcerConfig();
+        config.getPaths().add(path("/public/*", PolicyEnforcerConfig.EnforcementMode.DISABLED));
+        config.getPaths().add(path("/status", PolicyEnforcerConfig.EnforcementMode.DISABLED));
+        PublicPathBypassFilter sut = new PublicPathBypassFilter((request, response, chain) -> {}, config);
+
+        List.of("/public/../admin", "/public/%2e%2e/admin", "/public/%2E%2E/admin", "/public/;x/../admin",
+                        "/public/..;/admin", "/public/.%2e/admin", "/public/%2fadmin", "/public/%5c../admin",
+                        "/public/%252e%252e/admin", "/public/..\\admin", "/public/./x", "/public//x", "/status;jsessionid=1")
+                .forEach(path -> Assertions.assertFalse(sut.isPublic(path), path));
+        Assertions.assertTrue(sut.isPublic("/public/caf%C3%A8"));
+        Assertions.assertTrue(sut.isPublic("/st%61tus"));
+    }
+
+    @Test
+    void givenTraversalRequest_enforcerIsCalled() throws Exception {
+        PolicyEnforcerConfig config = new PolicyEnforcerConfig();
+        config.getPaths().add(path("/public/*", PolicyEnforcerConfig.EnforcementMode.DISABLED));
+        Filter denyingEnforcer = (request, response, chain) -> ((HttpServletResponse) response).sendError(HttpServletResponse.SC_FORBIDDEN);
+        PublicPathBypassFilter sut = new PublicPathBypassFilter(denyingEnforcer, config);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/public/%2e%2e/admin");
+        request.setContextPath("/app");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        sut.doFilter(request, response, chain);
+
+        Assertions.assertNull(chain.getRequest());
+        Assertions.assertEquals(HttpServletResponse.SC_FORBIDDEN, response.getStatus());
+    }
+
+    @Test
+    void givenPublicRequest_chainIsCalledWithoutEnforcer() throws Exception {
+        PolicyEnforcerConfig config = new PolicyEnforcerConfig();
+        config.getPaths().add(path("/public/status", PolicyEnforcerConfig.EnforcementMode.DISABLED));
+        Filter denyingEnforcer = (request, response, chain) -> ((HttpServletResponse) response).sendError(HttpServletResponse.SC_FORBIDDEN);
+        PublicPathBypassFilter sut = new PublicPathBypassFilter(denyingEnforcer, config);
+
+        MockFilterChain publicChain = new MockFilterChain();
+        sut.doFilter(new MockHttpServletRequest("GET", "/public/status"), new MockHttpServletResponse(), publicChain);
+        Assertions.assertNotNull(publicChain.getRequest());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain protectedChain = new MockFilterChain();
+        sut.doFilter(new MockHttpServletRequest("GET", "/cars"), response, protectedChain);
+        Assertions.assertNull(protectedChain.getRequest());
+        Assertions.assertEquals(HttpServletResponse.SC_FORBIDDEN, response.getStatus());
+    }
+
+    private PolicyEnforcerConfig.PathConfig path(String path, PolicyEnforcerConfig.EnforcementMode enforcementMode) {
+        PolicyEnforcerConfig.PathConfig pathConfig = new PolicyEnforcerConfig.PathConfig();
+        pathConfig.setPath(path);
+        pathConfig.setEnforcementMode(enforcementMode);
+        return pathConfig;
+    }
+}
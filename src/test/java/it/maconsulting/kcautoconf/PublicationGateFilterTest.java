@@ -0,0 +1,69 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.enforcement.PublicationGateFilter;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class PublicationGateFilterTest {
+
+    private final Filter policyEnforcerFilter = (request, response, chain) -> chain.doFilter(request, response);
+
+    private final CompletableFuture<Void> publication = new CompletableFuture<>();
+
+    @Test
+    void givenPathsNotPublished_requestIsRejected() throws Exception {
+        PublicationGateFilter sut = new PublicationGateFilter(policyEnforcerFilter, publication, Duration.ZERO, Duration.ofSeconds(3));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        sut.doFilter(new MockHttpServletRequest("GET", "/cars"), response, chain);
+
+        Assertions.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+        Assertions.assertEquals("3", response.getHeader("Retry-After"));
+        Assertions.assertNull(chain.getRequest());
+    }
+
+    @Test
+    void givenPathsPublishedWhileWaiting_requestIsEnforced() throws Exception {
+        PublicationGateFilter sut = new PublicationGateFilter(policyEnforcerFilter, publication, Duration.ofSeconds(10), Duration.ofSeconds(1));
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            executor.schedule(() -> publication.complete(null), 100, TimeUnit.MILLISECONDS);
+
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            MockFilterChain chain = new MockFilterChain();
+            sut.doFilter(new MockHttpServletRequest("GET", "/cars"), response, chain);
+
+            Assertions.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+            Assertions.assertNotNull(chain.getRequest());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void givenFailedAutoconfiguration_requestIsRejected() throws Exception {
+        publication.completeExceptionally(new IllegalStateException("scan failed"));
+        PublicationGateFilter sut = new PublicationGateFilter(policyEnforcerFilter, publication, Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        sut.doFilter(new MockHttpServletRequest("GET", "/cars"), response, new MockFilterChain());
+
+        Assertions.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+    }
+}
@@ -0,0 +1,113 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.enforcement.PathMatchingConfigurationResolver;
+import it.maconsulting.kcautoconf.enforcement.RefreshablePolicyEnforcerFilter;
+import it.maconsulting.kcautoconf.fixtures.ControllerWithMultiplePathsInRequestMapping;
+import it.maconsulting.kcautoconf.services.AutoconfigurationService;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.adapters.authorization.spi.ConfigurationResolver;
+import org.keycloak.adapters.authorization.spi.HttpRequest;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.mockito.Mockito;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class RefreshablePolicyEnforcerFilterTest {
+
+    private final AtomicInteger liveEnforcers = new AtomicInteger();
+
+    private final AtomicInteger createdFilters = new AtomicInteger();
+
+    private AutoconfigurationService autoconfigurationService;
+
+    private RefreshablePolicyEnforcerFilter sut;
+
+    @BeforeEach
+    void setup() {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean(ControllerWithMultiplePathsInRequestMapping.class);
+        context.refresh();
+        autoconfigurationService = new AutoconfigurationService(context, new PolicyEnforcerConfig(), List.of());
+        autoconfigurationService.updateKeycloakConfiguration();
+        sut = new RefreshablePolicyEnforcerFilter(autoconfigurationService::getEnforcerConfiguration,
+                config -> new CountingEnforcerFilter(new PathMatchingConfigurationResolver(config)));
+    }
+
+    @Test
+    void givenRefreshes_previousEnforcersAreReleased() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            for (String path : List.of("/foo", "/bar", "/myAwesomeMapping", "/unknown")) {
+                sut.doFilter(new MockHttpServletRequest("GET", path), new MockHttpServletResponse(), new MockFilterChain());
+            }
+            autoconfigurationService.refresh().join();
+        }
+        sut.doFilter(new MockHttpServletRequest("GET", "/foo"), new MockHttpServletResponse(), new MockFilterChain());
+
+        Assertions.assertEquals(6, createdFilters.get());
+        Assertions.assertEquals(1, liveEnforcers.get());
+    }
+
+    @Test
+    void givenInFlightRequest_previousEnforcersAreReleasedWhenItCompletes() throws Exception {
+        FilterChain refreshingChain = (request, response) -> {
+            autoconfigurationService.refresh().join();
+            sut.doFilter(new MockHttpServletRequest("GET", "/bar"), new MockHttpServletResponse(), new MockFilterChain());
+            Assertions.assertEquals(2, liveEnforcers.get());
+        };
+
+        sut.doFilter(new MockHttpServletRequest("GET", "/foo"), new MockHttpServletResponse(), refreshingChain);
+
+        Assertions.assertEquals(1, liveEnforcers.get());
+    }
+
+    /**
+     * Keeps an enforcer per resolved configuration, as {@code ServletPolicyEnforcerFilter} does.
+     */
+    private final class CountingEnforcerFilter implements Filter {
+        private final ConfigurationResolver resolver;
+        private final Map<PolicyEnforcerConfig, Object> enforcers = Collections.synchronizedMap(new IdentityHashMap<>());
+
+        private CountingEnforcerFilter(ConfigurationResolver resolver) {
+            this.resolver = resolver;
+            createdFilters.incrementAndGet();
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+                throws IOException, ServletException {
+            HttpRequest httpRequest = Mockito.mock(HttpRequest.class);
+            Mockito.when(httpRequest.getRelativePath()).thenReturn(((HttpServletRequest) request).getRequestURI());
+            enforcers.computeIfAbsent(resolver.resolve(httpRequest), config -> {
+                liveEnforcers.incrementAndGet();
+                return new Object();
+            });
+            chain.doFilter(request, response);
+        }
+
+        @Override
+        public void destroy() {
+            liveEnforcers.addAndGet(-enforcers.size());
+        }
+    }
+}
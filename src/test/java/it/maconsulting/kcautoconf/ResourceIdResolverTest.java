@@ -0,0 +1,126 @@
+package it.maconsulting.kcautoconf;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import it.maconsulting.kcautoconf.services.ResourceIdResolver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves the resource ids against a stub of the Keycloak token endpoint and Protection API.
+ *
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class ResourceIdResolverTest {
+
+    private final Map<String, String> resources = Map.of("/cars", "car-resource", "/cars/{id}", "car-detail-resource");
+
+    private final Map<String, AtomicInteger> lookups = new ConcurrentHashMap<>();
+
+    private HttpServer keycloak;
+
+    private PolicyEnforcerConfig policyEnforcerConfig;
+
+    @BeforeEach
+    void setup() throws IOException {
+        keycloak = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        keycloak.createContext("/realms/test/protocol/openid-connect/token", exchange -> {
+            String form = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            if (form.contains("client_secret=secret")) {
+                respond(exchange, 200, "{\"access_token\":\"pat\"}");
+            } else {
+                respond(exchange, 401, "{}");
+            }
+        });
+        keycloak.createContext("/realms/test/authz/protection/resource_set", exchange -> {
+            if (!"Bearer pat".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                respond(exchange, 401, "{}");
+                return;
+            }
+            String query = exchange.getRequestURI().getRawQuery();
+            String uri = URLDecoder.decode(query.substring(query.indexOf("uri=") + 4), StandardCharsets.UTF_8);
+            // the first lookup of each path fails, to exercise the retries
+            if (lookups.computeIfAbsent(uri, k -> new AtomicInteger()).incrementAndGet() == 1) {
+                respond(exchange, 503, "{}");
+                return;
+            }
+            String id = resources.get(uri);
+            respond(exchange, 200, id != null ? "[\"" + id + "\"]" : "[]");
+        });
+        keycloak.start();
+
+        policyEnforcerConfig = new PolicyEnforcerConfig();
+        policyEnforcerConfig.setAuthServerUrl("http://localhost:" + keycloak.getAddress().getPort() + "/");
+        policyEnforcerConfig.setRealm("test");
+        policyEnforcerConfig.setResource("backend");
+        policyEnforcerConfig.setCredentials(Map.of("secret", "secret"));
+    }
+
+    @AfterEach
+    void teardown() {
+        keycloak.stop(0);
+    }
+
+    @Test
+    void givenKnownPaths_resourceIdsAreResolved() {
+        List<PolicyEnforcerConfig.PathConfig> paths = List.of(path("/cars"), path("/cars/{id}"), path("/trucks"));
+
+        int resolved = resolver(3).resolve(policyEnforcerConfig, paths);
+
+        Assertions.assertEquals(2, resolved);
+        Assertions.assertEquals("car-resource", paths.get(0).getId());
+        Assertions.assertEquals("car-detail-resource", paths.get(1).getId());
+        Assertions.assertNull(paths.get(2).getId());
+        Assertions.assertEquals(2, lookups.get("/cars").get());
+    }
+
+    @Test
+    void givenRetriesExhausted_pathsAreLeftToLazyLoading() {
+        List<PolicyEnforcerConfig.PathConfig> paths = List.of(path("/cars"));
+
+        Assertions.assertEquals(0, resolver(1).resolve(policyEnforcerConfig, paths));
+        Assertions.assertNull(paths.get(0).getId());
+    }
+
+    @Test
+    void givenWrongCredentials_warmupIsSkipped() {
+        policyEnforcerConfig.setCredentials(Map.of("secret", "wrong"));
+        List<PolicyEnforcerConfig.PathConfig> paths = List.of(path("/cars"));
+
+        Assertions.assertEquals(0, resolver(3).resolve(policyEnforcerConfig, paths));
+        Assertions.assertTrue(lookups.isEmpty());
+    }
+
+    private ResourceIdResolver resolver(int maxAttempts) {
+        return new ResourceIdResolver(HttpClient.newHttpClient(), 4, maxAttempts, Duration.ofMillis(10));
+    }
+
+    private PolicyEnforcerConfig.PathConfig path(String path) {
+        PolicyEnforcerConfig.PathConfig pathConfig = new PolicyEnforcerConfig.PathConfig();
+        pathConfig.setPath(path);
+        return pathConfig;
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,68 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.model.MethodConfiguration;
+import it.maconsulting.kcautoconf.model.PathConfiguration;
+import it.maconsulting.kcautoconf.model.ScopeRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class ScopeRegistryTest {
+
+    @Test
+    void givenLargeApi_scopesAreShared() {
+        List<PathConfiguration> paths = syntheticApi(10_000, 20);
+        ScopeRegistry sut = new ScopeRegistry();
+
+        sut.internScopes(paths);
+
+        Set<Object> scopeLists = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Object> scopes = Collections.newSetFromMap(new IdentityHashMap<>());
+        paths.forEach(path -> path.getMethods().forEach(method -> {
+            scopeLists.add(method.getScopes());
+            scopes.addAll(method.getScopes());
+        }));
+        Assertions.assertEquals(20, sut.size());
+        Assertions.assertEquals(20, scopes.size());
+        // GET and POST of the same scope share a single list
+        Assertions.assertEquals(20, scopeLists.size());
+    }
+
+    @Test
+    void givenEmptyScopes_sharedEmptyListIsUsed() {
+        ScopeRegistry sut = new ScopeRegistry();
+
+        Assertions.assertSame(List.of(), sut.intern(new ArrayList<>()));
+        Assertions.assertSame(List.of(), sut.intern((List<String>) null));
+    }
+
+    /**
+     * Paths with a GET and a POST method, requiring one of the given number of scopes. Every scope name is a
+     * distinct instance, as it happens when the paths are read from json.
+     */
+    static List<PathConfiguration> syntheticApi(int pathCount, int scopeCount) {
+        List<PathConfiguration> paths = new ArrayList<>(pathCount);
+        for (int i = 0; i < pathCount; i++) {
+            PathConfiguration path = new PathConfiguration();
+            path.setPath("/resources" + i + "/{id}");
+            path.setName("resource" + i);
+            for (String verb : List.of("GET", "POST")) {
+                MethodConfiguration method = new MethodConfiguration();
+                method.setMethod(verb);
+                method.getScopes().add(new String("scope" + (i % scopeCount) + ":manage"));
+                path.getMethods().add(method);
+            }
+            paths.add(path);
+        }
+        return paths;
+    }
+}
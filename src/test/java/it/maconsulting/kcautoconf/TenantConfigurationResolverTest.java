@@ -0,0 +1,144 @@
+package it.maconsulting.kcautoconf;
+
+import it.maconsulting.kcautoconf.enforcement.TenantConfigurationResolver;
+import it.maconsulting.kcautoconf.enforcement.TenantResolver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.adapters.authorization.spi.HttpRequest;
+import org.keycloak.representations.adapters.config.PolicyEnforcerConfig;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+class TenantConfigurationResolverTest {
+
+    private final PolicyEnforcerConfig policyEnforcerConfig = new PolicyEnforcerConfig();
+
+    private Map<String, PolicyEnforcerConfig> tenants;
+
+    @BeforeEach
+    void setup() {
+        policyEnforcerConfig.setRealm("shared");
+        policyEnforcerConfig.setAuthServerUrl("https://sso.example.com");
+        PolicyEnforcerConfig.PathConfig pathConfig = new PolicyEnforcerConfig.PathConfig();
+        pathConfig.setPath("/cars/{id}");
+        pathConfig.setId("shared-resource-id");
+        policyEnforcerConfig.getPaths().add(pathConfig);
+
+        tenants = Map.of("acme", settings("acme"), "globex", settings("globex"));
+    }
+
+    @Test
+    void givenKnownTenant_tenantConfigIsBuiltOnce() {
+        TenantConfigurationResolver sut = new TenantConfigurationResolver(policyEnforcerConfig, tenants::get,
+                TenantResolver.header("X-Tenant"), 10);
+
+        PolicyEnforcerConfig resolved = sut.resolve(request("X-Tenant", "acme"));
+
+        Assertions.assertEquals("acme", resolved.getRealm());
+        Assertions.assertEquals("https://sso.example.com", resolved.getAuthServerUrl());
+        Assertions.assertEquals("acme-client", resolved.getResource());
+        Assertions.assertEquals(1, resolved.getPaths().size());
+        Assertions.assertEquals("/cars/{id}", resolved.getPaths().get(0).getPath());
+        Assertions.assertNull(resolved.getPaths().get(0).getId());
+        Assertions.assertEquals("shared-resource-id", policyEnforcerConfig.getPaths().get(0).getId());
+        Assertions.assertSame(resolved, sut.resolve(request("X-Tenant", "acme")));
+        Assertions.assertEquals(1, sut.size());
+    }
+
+    @Test
+    void givenUnknownTenant_sharedConfigIsResolved() {
+        TenantConfigurationResolver sut = new TenantConfigurationResolver(policyEnforcerConfig, tenants::get,
+                TenantResolver.header("X-Tenant"), 10);
+
+        Assertions.assertSame(policyEnforcerConfig, sut.resolve(request("X-Tenant", "initech")));
+        Assertions.assertSame(policyEnforcerConfig, sut.resolve(request("X-Other", "acme")));
+        Assertions.assertEquals(0, sut.size());
+    }
+
+    @Test
+    void givenMaxTenants_furtherTenantsAreNotCached() {
+        TenantConfigurationResolver sut = new TenantConfigurationResolver(policyEnforcerConfig, tenants::get,
+                TenantResolver.header("X-Tenant"), 1);
+
+        Assertions.assertEquals("acme", sut.resolve(request("X-Tenant", "acme")).getRealm());
+        Assertions.assertSame(policyEnforcerConfig, sut.resolve(request("X-Tenant", "globex")));
+        Assertions.assertEquals(1, sut.size());
+    }
+
+    @Test
+    void givenConcurrentTenants_maxTenantsIsNotExceeded() throws Exception {
+        TenantConfigurationResolver sut = new TenantConfigurationResolver(policyEnforcerConfig, this::settings,
+                TenantResolver.header("X-Tenant"), 2);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<PolicyEnforcerConfig>> tasks = IntStream.range(0, 32)
+                    .mapToObj(i -> (Callable<PolicyEnforcerConfig>) () -> sut.resolve(request("X-Tenant", "tenant" + i)))
+                    .toList();
+            List<Future<PolicyEnforcerConfig>> resolved = executor.invokeAll(tasks);
+
+            long tenantConfigs = 0;
+            for (Future<PolicyEnforcerConfig> config : resolved) {
+                tenantConfigs += config.get() != policyEnforcerConfig ? 1 : 0;
+            }
+            Assertions.assertEquals(2, tenantConfigs);
+            Assertions.assertEquals(2, sut.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void givenTokenOrHost_tenantIsDerived() {
+        TenantResolver issuer = TenantResolver.issuer(Map.of("https://sso.example.com/realms/globex", "globex"));
+
+        Assertions.assertEquals("globex", issuer.resolveTenant(request("Authorization", "Bearer " + token("https://sso.example.com/realms/globex"))));
+        Assertions.assertNull(issuer.resolveTenant(request("Authorization", "Bearer " + token("https://evil.example.com/realms/globex"))));
+        Assertions.assertNull(issuer.resolveTenant(request("Authorization", "Basic dXNlcg==")));
+        Assertions.assertEquals("acme.example.com", TenantResolver.host().resolveTenant(request("Host", "acme.example.com:8443")));
+        Assertions.assertEquals("[::1]", TenantResolver.host().resolveTenant(request("Host", "[::1]")));
+    }
+
+    @Test
+    void givenSameToken_issuerTenantIsCached() {
+        String authorization = "Bearer " + token("https://sso.example.com/realms/acme");
+        TenantResolver sut = TenantResolver.issuer(Map.of("https://sso.example.com/realms/acme", "acme"));
+        HttpRequest request = request("Authorization", authorization);
+
+        Assertions.assertEquals("acme", sut.resolveTenant(request));
+        Assertions.assertEquals("acme", sut.resolveTenant(request));
+        Assertions.assertNull(sut.resolveTenant(request("Authorization", "Bearer not-a-token")));
+    }
+
+    private String token(String issuer) {
+        return "header." + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("{\"iss\":\"" + issuer + "\"}").getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+
+    private PolicyEnforcerConfig settings(String realm) {
+        PolicyEnforcerConfig settings = new PolicyEnforcerConfig();
+        settings.setRealm(realm);
+        settings.setResource(realm + "-client");
+        settings.setCredentials(Map.of("secret", realm + "-secret"));
+        return settings;
+    }
+
+    private HttpRequest request(String header, String value) {
+        HttpRequest request = Mockito.mock(HttpRequest.class);
+        Mockito.when(request.getHeader(header)).thenReturn(value);
+        return request;
+    }
+}
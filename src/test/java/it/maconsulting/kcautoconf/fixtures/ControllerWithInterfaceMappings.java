@@ -0,0 +1,20 @@
+package it.maconsulting.kcautoconf.fixtures;
+
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@RestController
+public class ControllerWithInterfaceMappings implements MappingsApi {
+
+    @Override
+    public String get(String id) {
+        return id;
+    }
+
+    @RequestMapping("any")
+    public void any() {}
+}
@@ -0,0 +1,30 @@
+package it.maconsulting.kcautoconf.fixtures;
+
+import it.maconsulting.kcautoconf.annotations.Enforcement;
+import it.maconsulting.kcautoconf.annotations.PublicEndpoint;
+import it.maconsulting.kcautoconf.model.EnforcementMode;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@RestController
+@RequestMapping("/public")
+@PublicEndpoint
+public class ControllerWithPublicEndpoints {
+
+    @GetMapping("/status")
+    public void status() {}
+
+    @GetMapping("/documents")
+    public void getDocuments() {}
+
+    @PostMapping("/documents")
+    @Enforcement(EnforcementMode.ENFORCING)
+    public void postDocument() {}
+
+    @GetMapping("/audit")
+    @Enforcement(EnforcementMode.PERMISSIVE)
+    public void audit() {}
+}
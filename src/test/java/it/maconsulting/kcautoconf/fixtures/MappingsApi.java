@@ -0,0 +1,19 @@
+package it.maconsulting.kcautoconf.fixtures;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+/**
+ * @author Michele Arciprete
+ * @since 1.1.0
+ */
+@RequestMapping("mappings")
+public interface MappingsApi {
+
+    @GetMapping("{id}")
+    @Operation(operationId = "Mapping Getter", security = {@SecurityRequirement(name = "get", scopes = "mapping:read")})
+    String get(@PathVariable("id") String id);
+}